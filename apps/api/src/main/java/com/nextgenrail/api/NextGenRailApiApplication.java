@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 
 /**
@@ -13,12 +14,16 @@ import org.springframework.web.socket.config.annotation.EnableWebSocket;
  * Features enabled:
  * - Spring Boot auto-configuration
  * - MongoDB auditing for created/updated timestamps
+ * - Caching for train search and catalog lookups
  * - Async processing for notifications and background tasks
+ * - Scheduled jobs for timetable and booking maintenance
  * - WebSocket support for real-time updates
  */
 @SpringBootApplication
 @EnableMongoAuditing
+@EnableCaching
 @EnableAsync
+@EnableScheduling
 @EnableWebSocket
 public class NextGenRailApiApplication {
 
@@ -0,0 +1,51 @@
+package com.nextgenrail.api.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caffeine cache configuration
+ * Caches are bounded, record statistics for the actuator metrics endpoint and
+ * are cleared explicitly when the underlying train or station documents change
+ */
+@Configuration
+public class CacheConfig {
+
+    public static final String TRAIN_SEARCH = "trainSearch";
+    public static final String TRAIN_DETAILS = "trainDetails";
+    public static final String STATION_BY_CODE = "stationByCode";
+    public static final String MAJOR_STATIONS = "majorStations";
+
+    @Value("${app.cache.train-search.max-size:20000}")
+    private long trainSearchMaxSize;
+
+    @Value("${app.cache.catalog.max-size:10000}")
+    private long catalogMaxSize;
+
+    @Value("${app.cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(TRAIN_SEARCH, newCache(trainSearchMaxSize));
+        cacheManager.registerCustomCache(TRAIN_DETAILS, newCache(catalogMaxSize));
+        cacheManager.registerCustomCache(STATION_BY_CODE, newCache(catalogMaxSize));
+        cacheManager.registerCustomCache(MAJOR_STATIONS, newCache(1));
+        return cacheManager;
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> newCache(long maximumSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+    }
+}
@@ -59,7 +59,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/kyc/verify").permitAll()
                         .requestMatchers("/api/trains/search").permitAll()
+                        .requestMatchers("/api/trains/journeys").permitAll()
                         .requestMatchers("/api/trains/availability").permitAll()
+                        .requestMatchers("/api/fares/quote").permitAll()
 
                         // Documentation endpoints
                         .requestMatchers("/api/swagger-ui/**").permitAll()
@@ -1,27 +1,35 @@
 package com.nextgenrail.api.controller;
 
+import com.nextgenrail.api.dto.AdmissionTicket;
+import com.nextgenrail.api.model.AdmissionStatus;
 import com.nextgenrail.api.model.Booking;
 import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.QuotaType;
 import com.nextgenrail.api.model.Train;
 import com.nextgenrail.api.model.User;
 import com.nextgenrail.api.repository.BookingRepository;
-import com.nextgenrail.api.repository.TrainRepository;
 import com.nextgenrail.api.repository.UserRepository;
+import com.nextgenrail.api.service.BookingService;
+import com.nextgenrail.api.service.IdempotencyService;
+import com.nextgenrail.api.service.TatkalAdmissionQueue;
+import com.nextgenrail.api.service.TrainService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-import java.util.Random;
 
 @RestController
 @RequestMapping("/bookings")
@@ -31,6 +39,10 @@ public class BookingController {
 
     private static final Logger logger = LoggerFactory.getLogger(BookingController.class);
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     @Autowired
     private BookingRepository bookingRepository;
 
@@ -38,29 +50,84 @@ public class BookingController {
     private UserRepository userRepository;
 
     @Autowired
-    private TrainRepository trainRepository;
+    private TrainService trainService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private TatkalAdmissionQueue tatkalAdmissionQueue;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
 
     @PostMapping
-    @Operation(summary = "Create a new booking")
-    public ResponseEntity<Booking> createBooking(@RequestBody Booking bookingRequest) {
+    @Operation(summary = "Create a new booking", description = "Tatkal bookings are queued and answered with 202 and an admission ticket. "
+            + "Retries with the same Idempotency-Key header get the original response back")
+    public ResponseEntity<?> createBooking(@RequestBody Booking bookingRequest,
+            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+            @AuthenticationPrincipal User user) {
+        if (user == null) {
+            // Bookings belong to the authenticated caller, and idempotency keys are kept per user
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return placeBooking(bookingRequest, user);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        IdempotencyService.Claim claim = idempotencyService.begin(user.getId(), idempotencyKey, bookingRequest);
+        switch (claim.status()) {
+            case COMPLETED:
+                logger.info("Replaying response for idempotency key {}", idempotencyKey);
+                return ResponseEntity.status(claim.record().getHttpStatus())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(IDEMPOTENT_REPLAYED, "true")
+                        .body(claim.record().getBody());
+            case IN_PROGRESS:
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build();
+            case MISMATCH:
+                logger.warn("Idempotency key {} reused with a different booking request", idempotencyKey);
+                return ResponseEntity.unprocessableEntity().build();
+            default:
+                break;
+        }
+
+        ResponseEntity<?> response = placeBooking(bookingRequest, user);
+        if (response.getStatusCode().is2xxSuccessful()) {
+            idempotencyService.complete(claim.record(), response.getStatusCode().value(), response.getBody());
+        } else {
+            // Nothing was booked; let the client retry with the same key
+            idempotencyService.abandon(claim.record().getKey());
+        }
+        return response;
+    }
+
+    private ResponseEntity<?> placeBooking(Booking bookingRequest, User user) {
         logger.info("Creating new booking for train {}",
                 bookingRequest.getTrain() != null ? bookingRequest.getTrain().getTrainNumber() : "unknown");
 
+        // Booked for the caller, whatever user id the request carries
+        bookingRequest.setUserId(user.getId());
+
         try {
-            // Generate PNR number
-            String pnr = generatePNR();
-            bookingRequest.setPnrNumber(pnr);
-            bookingRequest.setStatus(BookingStatus.CONFIRMED);
-            bookingRequest.setBookedAt(LocalDateTime.now());
-            bookingRequest.setUpdatedAt(LocalDateTime.now());
-
-            // Calculate total fare (simplified calculation)
-            if (bookingRequest.getTotalFare() == 0.0) {
-                bookingRequest.setTotalFare(calculateFare(bookingRequest));
+            if (bookingRequest.getQuota() == QuotaType.TATKAL) {
+                AdmissionTicket ticket = tatkalAdmissionQueue.submit(bookingRequest);
+                if (ticket.getStatus() == AdmissionStatus.REJECTED) {
+                    return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                            .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ticket.getEtaSeconds())))
+                            .body(ticket);
+                }
+                return ResponseEntity.accepted().body(ticket);
             }
 
-            Booking savedBooking = bookingRepository.save(bookingRequest);
-            logger.info("Booking created successfully with PNR: {}", pnr);
+            Booking savedBooking = bookingService.createBooking(bookingRequest);
+            logger.info("Booking created successfully with PNR: {} ({})",
+                    savedBooking.getPnrNumber(), savedBooking.getStatus());
 
             return ResponseEntity.status(HttpStatus.CREATED).body(savedBooking);
         } catch (Exception e) {
@@ -69,6 +136,20 @@ public class BookingController {
         }
     }
 
+    @GetMapping("/queue/{ticketId}")
+    @Operation(summary = "Get the queue position or outcome of a Tatkal booking request")
+    public ResponseEntity<AdmissionTicket> getAdmissionTicket(@PathVariable String ticketId,
+            @AuthenticationPrincipal User user) {
+        if (user == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        // Tickets of other users look the same as unknown ones, so ticket ids cannot be probed
+        return tatkalAdmissionQueue.getTicket(ticketId)
+                .filter(ticket -> user.getId().equals(ticket.getUserId()))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/pnr/{pnrNumber}")
     @Operation(summary = "Get booking details by PNR")
     public ResponseEntity<Booking> getBookingByPNR(@PathVariable String pnrNumber) {
@@ -86,18 +167,24 @@ public class BookingController {
 
     @GetMapping("/user/{userEmail}")
     @Operation(summary = "Get user bookings by email")
-    public ResponseEntity<List<Booking>> getUserBookings(@PathVariable String userEmail) {
+    public ResponseEntity<List<Booking>> getUserBookings(@PathVariable String userEmail,
+            @AuthenticationPrincipal User user) {
         logger.info("Fetching bookings for user: {}", userEmail);
 
         try {
-            Optional<User> userOptional = userRepository.findByEmailIgnoreCase(userEmail);
-            if (userOptional.isPresent()) {
-                List<Booking> bookings = bookingRepository.findByUserOrderByBookedAtDesc(userOptional.get());
-                return ResponseEntity.ok(bookings);
+            // The caller was loaded when the token was checked, so their own bookings take a single query
+            String userId;
+            if (user != null && userEmail.equalsIgnoreCase(user.getEmail())) {
+                userId = user.getId();
             } else {
-                logger.warn("User not found: {}", userEmail);
-                return ResponseEntity.notFound().build();
+                Optional<User> userOptional = userRepository.findByEmailIgnoreCase(userEmail);
+                if (userOptional.isEmpty()) {
+                    logger.warn("User not found: {}", userEmail);
+                    return ResponseEntity.notFound().build();
+                }
+                userId = userOptional.get().getId();
             }
+            return ResponseEntity.ok(bookingRepository.findByUserIdOrderByBookedAtDesc(userId));
         } catch (Exception e) {
             logger.error("Error fetching user bookings: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().build();
@@ -126,10 +213,7 @@ public class BookingController {
                     return ResponseEntity.badRequest().build();
                 }
 
-                booking.setStatus(BookingStatus.CANCELLED);
-                booking.setUpdatedAt(LocalDateTime.now());
-
-                Booking cancelledBooking = bookingRepository.save(booking);
+                Booking cancelledBooking = bookingService.cancelBooking(booking);
                 logger.info("Booking cancelled successfully: {}", pnrNumber);
 
                 return ResponseEntity.ok(cancelledBooking);
@@ -137,6 +221,10 @@ public class BookingController {
                 logger.warn("Booking not found for cancellation: {}", pnrNumber);
                 return ResponseEntity.notFound().build();
             }
+        } catch (OptimisticLockingFailureException e) {
+            // Someone else changed the booking (e.g. a concurrent cancellation) since it was read
+            logger.warn("Booking {} was modified concurrently: {}", pnrNumber, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         } catch (Exception e) {
             logger.error("Error cancelling booking: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().build();
@@ -152,10 +240,11 @@ public class BookingController {
         logger.info("Fetching bookings for train {} on {}", trainNumber, journeyDate);
 
         try {
-            Optional<Train> trainOptional = trainRepository.findByTrainNumberIgnoreCase(trainNumber);
+            // Cached, so listing the bookings is the only query
+            Optional<Train> trainOptional = trainService.findByTrainNumber(trainNumber);
             if (trainOptional.isPresent()) {
-                List<Booking> bookings = bookingRepository.findByTrainAndTravelDateOrderByBookedAtDesc(
-                        trainOptional.get(), journeyDate);
+                List<Booking> bookings = bookingRepository.findByTrainIdAndTravelDateOrderByBookedAtDesc(
+                        trainOptional.get().getId(), journeyDate);
                 return ResponseEntity.ok(bookings);
             } else {
                 logger.warn("Train not found: {}", trainNumber);
@@ -166,21 +255,4 @@ public class BookingController {
             return ResponseEntity.badRequest().build();
         }
     }
-
-    private String generatePNR() {
-        // Generate 10-digit PNR number
-        Random random = new Random();
-        StringBuilder pnr = new StringBuilder();
-        for (int i = 0; i < 10; i++) {
-            pnr.append(random.nextInt(10));
-        }
-        return pnr.toString();
-    }
-
-    private Double calculateFare(Booking booking) {
-        // Simplified fare calculation
-        // In real implementation, this would consider distance, class, quota, etc.
-        int passengerCount = booking.getPassengers() != null ? booking.getPassengers().size() : 1;
-        return passengerCount * 500.0; // Base fare per passenger
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,76 @@
+package com.nextgenrail.api.controller;
+
+import com.nextgenrail.api.dto.FareQuoteRequest;
+import com.nextgenrail.api.service.FareEngine;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/fares")
+@Tag(name = "Fares", description = "Fare quotes")
+@CrossOrigin(origins = "*")
+public class FareController {
+
+    private static final Logger logger = LoggerFactory.getLogger(FareController.class);
+
+    @Autowired
+    private FareEngine fareEngine;
+
+    @Value("${app.fares.max-quotes-per-request:500}")
+    private int maxQuotesPerRequest;
+
+    @Value("${app.booking.max-passengers:6}")
+    private int maxPassengers;
+
+    @PostMapping("/quote")
+    @Operation(summary = "Quote fares for many trains and classes at once",
+            description = "Quotes are returned in request order; one call covers a whole search result page")
+    public ResponseEntity<?> quoteFares(@RequestBody List<FareQuoteRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > maxQuotesPerRequest) {
+            return ResponseEntity.badRequest()
+                    .body("Between 1 and " + maxQuotesPerRequest + " quotes can be requested at once");
+        }
+        logger.info("Quoting {} fares", requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            FareQuoteRequest request = requests.get(i);
+            if (request == null) {
+                return ResponseEntity.badRequest().body("Quote " + i + " is null");
+            }
+            if (request.getAdults() < 0 || request.getChildren() < 0 || request.getInfants() < 0
+                    || request.getSeniorMen() < 0 || request.getSeniorWomen() < 0) {
+                return ResponseEntity.badRequest().body("Quote " + i + " has a negative passenger count");
+            }
+            // Summed as long so huge counts cannot wrap around to a small total
+            long passengers = (long) request.getAdults() + request.getChildren() + request.getInfants()
+                    + request.getSeniorMen() + request.getSeniorWomen();
+            if (passengers > maxPassengers) {
+                return ResponseEntity.badRequest().body("Quote " + i + " is for more than " + maxPassengers
+                        + " passengers");
+            }
+            // Timetable codes are upper case
+            request.setFromStationCode(upperCase(request.getFromStationCode()));
+            request.setToStationCode(upperCase(request.getToStationCode()));
+            request.setClassCode(upperCase(request.getClassCode()));
+        }
+
+        try {
+            return ResponseEntity.ok(fareEngine.quoteAll(requests));
+        } catch (Exception e) {
+            logger.error("Error quoting fares: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static String upperCase(String code) {
+        return code != null ? code.trim().toUpperCase() : null;
+    }
+}
@@ -1,14 +1,26 @@
 package com.nextgenrail.api.controller;
 
+import com.nextgenrail.api.dto.CursorPage;
+import com.nextgenrail.api.dto.NearbyStation;
 import com.nextgenrail.api.model.Station;
 import com.nextgenrail.api.repository.StationRepository;
+import com.nextgenrail.api.service.NdjsonStreamer;
+import com.nextgenrail.api.service.NearbyStationIndex;
+import com.nextgenrail.api.service.StationSearchIndex;
+import com.nextgenrail.api.service.StationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 import java.util.Optional;
@@ -24,15 +36,34 @@ public class StationController {
     @Autowired
     private StationRepository stationRepository;
 
+    @Autowired
+    private StationService stationService;
+
+    @Autowired
+    private StationSearchIndex stationSearchIndex;
+
+    @Autowired
+    private NearbyStationIndex nearbyStationIndex;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Value("${app.stations.nearby-max-radius-km:500}")
+    private double maxNearbyRadiusKm;
+
+    @Value("${app.catalog.max-page-size:500}")
+    private int maxPageSize;
+
     @GetMapping("/search")
     @Operation(summary = "Search stations by name or city")
-    public ResponseEntity<List<Station>> searchStations(@RequestParam String query) {
+    public ResponseEntity<List<Station>> searchStations(@RequestParam String query,
+            @RequestParam(defaultValue = "10") int limit) {
         logger.info("Searching stations for query: {}", query);
 
         try {
             List<Station> stations;
             if (query.length() >= 2) {
-                stations = stationRepository.findBySearchQuery(query);
+                stations = stationSearchIndex.suggest(query, limit);
             } else {
                 stations = List.of(); // Return empty list for short queries
             }
@@ -45,12 +76,30 @@ public class StationController {
         }
     }
 
+    @GetMapping("/nearby")
+    @Operation(summary = "Find the nearest stations to a location")
+    public ResponseEntity<List<NearbyStation>> getNearbyStations(@RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(defaultValue = "25") double radiusKm,
+            @RequestParam(defaultValue = "10") int limit) {
+        logger.info("Finding stations within {} km of ({}, {})", radiusKm, latitude, longitude);
+
+        if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180 || radiusKm <= 0
+                || radiusKm > maxNearbyRadiusKm || limit <= 0 || limit > 100) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<NearbyStation> stations = nearbyStationIndex.findNearby(latitude, longitude, radiusKm, limit);
+        logger.info("Found {} stations near ({}, {})", stations.size(), latitude, longitude);
+        return ResponseEntity.ok(stations);
+    }
+
     @GetMapping("/{stationCode}")
     @Operation(summary = "Get station details by code")
     public ResponseEntity<Station> getStationByCode(@PathVariable String stationCode) {
         logger.info("Getting station details for code: {}", stationCode);
 
-        Optional<Station> station = stationRepository.findByCodeIgnoreCase(stationCode.toUpperCase());
+        Optional<Station> station = stationService.findByCode(stationCode);
 
         if (station.isPresent()) {
             return ResponseEntity.ok(station.get());
@@ -74,13 +123,43 @@ public class StationController {
         }
     }
 
+    @GetMapping(produces = NdjsonStreamer.MEDIA_TYPE)
+    @Operation(summary = "Stream all active stations as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllStations() {
+        logger.info("Streaming all active stations");
+
+        Query query = new Query(Criteria.where("isActive").is(true)).with(Sort.by(Sort.Direction.ASC, "code"));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonStreamer.MEDIA_TYPE))
+                .body(ndjsonStreamer.stream(query, Station.class));
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get active stations one page at a time, in code order")
+    public ResponseEntity<CursorPage<Station>> getStationsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        logger.info("Getting stations page after {}", after);
+
+        if (size <= 0 || size > maxPageSize) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(stationService.findStationsPage(after, size));
+        } catch (Exception e) {
+            logger.error("Error getting stations page: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/major")
     @Operation(summary = "Get major railway stations")
     public ResponseEntity<List<Station>> getMajorStations() {
         logger.info("Getting major railway stations");
 
         try {
-            List<Station> stations = stationRepository.findByIsPrincipalStationTrueAndIsActiveTrue();
+            List<Station> stations = stationService.findMajorStations();
             return ResponseEntity.ok(stations);
         } catch (Exception e) {
             logger.error("Error getting major stations: {}", e.getMessage(), e);
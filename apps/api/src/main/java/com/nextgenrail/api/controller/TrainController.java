@@ -1,17 +1,35 @@
 package com.nextgenrail.api.controller;
 
+import com.nextgenrail.api.dto.CursorPage;
+import com.nextgenrail.api.dto.JourneyItinerary;
+import com.nextgenrail.api.dto.TrainAvailability;
+import com.nextgenrail.api.dto.TrainSearchResult;
+import com.nextgenrail.api.model.QuotaType;
 import com.nextgenrail.api.model.Train;
 import com.nextgenrail.api.repository.TrainRepository;
+import com.nextgenrail.api.service.AvailabilityService;
+import com.nextgenrail.api.service.JourneyPlanner;
+import com.nextgenrail.api.service.NdjsonStreamer;
+import com.nextgenrail.api.service.RunCalendar;
+import com.nextgenrail.api.service.TrainSearchIndex;
+import com.nextgenrail.api.service.TrainService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,9 +44,27 @@ public class TrainController {
     @Autowired
     private TrainRepository trainRepository;
 
+    @Autowired
+    private TrainService trainService;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Autowired
+    private JourneyPlanner journeyPlanner;
+
+    @Autowired
+    private NdjsonStreamer ndjsonStreamer;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Value("${app.catalog.max-page-size:500}")
+    private int maxPageSize;
+
     @GetMapping("/search")
     @Operation(summary = "Search trains between stations")
-    public ResponseEntity<List<Train>> searchTrains(
+    public ResponseEntity<List<TrainSearchResult>> searchTrains(
             @RequestParam String fromStation,
             @RequestParam String toStation,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate) {
@@ -36,15 +72,10 @@ public class TrainController {
         logger.info("Searching trains from {} to {} on {}", fromStation, toStation, journeyDate);
 
         try {
-            List<Train> trains = trainRepository.findTrainsBetweenStations(
+            List<TrainSearchResult> trains = trainService.searchTrains(
                     fromStation.toUpperCase(),
-                    toStation.toUpperCase());
-
-            // Filter by operational days
-            String dayOfWeek = journeyDate.getDayOfWeek().name().substring(0, 3);
-            trains = trains.stream()
-                    .filter(train -> train.getOperationalDays().contains(dayOfWeek))
-                    .toList();
+                    toStation.toUpperCase(),
+                    journeyDate);
 
             logger.info("Found {} trains for the route", trains.size());
             return ResponseEntity.ok(trains);
@@ -54,12 +85,75 @@ public class TrainController {
         }
     }
 
+    @GetMapping("/journeys")
+    @Operation(summary = "Plan journeys between stations with up to two changes")
+    public ResponseEntity<List<JourneyItinerary>> planJourneys(
+            @RequestParam String fromStation,
+            @RequestParam String toStation,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate journeyDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.TIME) LocalTime departAfter,
+            @RequestParam(defaultValue = "2") int maxChanges) {
+
+        logger.info("Planning journeys from {} to {} on {}", fromStation, toStation, journeyDate);
+
+        try {
+            List<JourneyItinerary> itineraries = journeyPlanner.plan(
+                    fromStation.toUpperCase(),
+                    toStation.toUpperCase(),
+                    journeyDate,
+                    departAfter,
+                    maxChanges);
+
+            logger.info("Found {} itineraries for the journey", itineraries.size());
+            return ResponseEntity.ok(itineraries);
+        } catch (Exception e) {
+            logger.error("Error planning journeys: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/availability")
+    @Operation(summary = "Get seat availability by class for one or more trains")
+    public ResponseEntity<List<TrainAvailability>> getAvailability(
+            @RequestParam List<String> trainNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(required = false) String classCode,
+            @RequestParam(required = false) QuotaType quota) {
+
+        logger.info("Getting availability for trains {} on {}", trainNumber, date);
+
+        List<TrainAvailability> availability = new ArrayList<>(trainNumber.size());
+        for (String number : trainNumber) {
+            availabilityService.getAvailability(number, date, classCode, quota).ifPresent(availability::add);
+        }
+        return ResponseEntity.ok(availability);
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get trains one page at a time, in train number order")
+    public ResponseEntity<CursorPage<Train>> getTrainsPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "100") int size) {
+        logger.info("Getting trains page after {}", after);
+
+        if (size <= 0 || size > maxPageSize) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            return ResponseEntity.ok(trainService.findTrainsPage(after, size));
+        } catch (Exception e) {
+            logger.error("Error getting trains page: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{trainNumber}")
     @Operation(summary = "Get train details by number")
     public ResponseEntity<Train> getTrainDetails(@PathVariable String trainNumber) {
         logger.info("Getting details for train {}", trainNumber);
 
-        Optional<Train> train = trainRepository.findByTrainNumberIgnoreCase(trainNumber);
+        Optional<Train> train = trainService.findByTrainNumber(trainNumber);
 
         if (train.isPresent()) {
             return ResponseEntity.ok(train.get());
@@ -69,6 +163,21 @@ public class TrainController {
         }
     }
 
+    @GetMapping("/{trainNumber}/run-dates")
+    @Operation(summary = "Get dates a train runs on within the booking horizon")
+    public ResponseEntity<List<LocalDate>> getRunDates(@PathVariable String trainNumber) {
+        logger.info("Getting run dates for train {}", trainNumber);
+
+        Optional<RunCalendar> calendar = trainSearchIndex.getRunCalendar(trainNumber);
+
+        if (calendar.isPresent()) {
+            return ResponseEntity.ok(calendar.get().runDates());
+        } else {
+            logger.warn("Train not found: {}", trainNumber);
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping
     @Operation(summary = "Get all trains")
     public ResponseEntity<List<Train>> getAllTrains() {
@@ -82,4 +191,15 @@ public class TrainController {
             return ResponseEntity.badRequest().build();
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping(produces = NdjsonStreamer.MEDIA_TYPE)
+    @Operation(summary = "Stream all trains as newline-delimited JSON")
+    public ResponseEntity<StreamingResponseBody> streamAllTrains() {
+        logger.info("Streaming all trains");
+
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "trainNumber"));
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(NdjsonStreamer.MEDIA_TYPE))
+                .body(ndjsonStreamer.stream(query, Train.class));
+    }
+}
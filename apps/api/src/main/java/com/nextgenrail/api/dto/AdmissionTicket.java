@@ -0,0 +1,89 @@
+package com.nextgenrail.api.dto;
+
+import com.nextgenrail.api.model.AdmissionStatus;
+
+/**
+ * Place of a Tatkal booking request in the admission queue of its train run
+ */
+public class AdmissionTicket {
+
+    private String ticketId;
+    private String userId; // User who queued the request; only they may poll it
+    private AdmissionStatus status;
+    private long position; // Requests ahead in the queue, including this one; 0 once processing starts
+    private long etaSeconds;
+    private String pnrNumber;
+    private String message;
+
+    // Constructors
+    public AdmissionTicket() {
+    }
+
+    public AdmissionTicket(String ticketId, String userId, AdmissionStatus status, long position, long etaSeconds,
+            String pnrNumber, String message) {
+        this.ticketId = ticketId;
+        this.userId = userId;
+        this.status = status;
+        this.position = position;
+        this.etaSeconds = etaSeconds;
+        this.pnrNumber = pnrNumber;
+        this.message = message;
+    }
+
+    // Getters and Setters
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public AdmissionStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(AdmissionStatus status) {
+        this.status = status;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public void setPosition(long position) {
+        this.position = position;
+    }
+
+    public long getEtaSeconds() {
+        return etaSeconds;
+    }
+
+    public void setEtaSeconds(long etaSeconds) {
+        this.etaSeconds = etaSeconds;
+    }
+
+    public String getPnrNumber() {
+        return pnrNumber;
+    }
+
+    public void setPnrNumber(String pnrNumber) {
+        this.pnrNumber = pnrNumber;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nextgenrail.api.dto;
+
+/**
+ * Seat availability of one travel class on a train run
+ */
+public class ClassAvailability {
+
+    private int available;
+    private int total;
+    private int waitingList;
+    private String status; // AVAILABLE, WAITLISTED, NOT_AVAILABLE
+
+    // Constructors
+    public ClassAvailability() {
+    }
+
+    public ClassAvailability(int available, int total, int waitingList, String status) {
+        this.available = available;
+        this.total = total;
+        this.waitingList = waitingList;
+        this.status = status;
+    }
+
+    // Getters and Setters
+    public int getAvailable() {
+        return available;
+    }
+
+    public void setAvailable(int available) {
+        this.available = available;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public void setTotal(int total) {
+        this.total = total;
+    }
+
+    public int getWaitingList() {
+        return waitingList;
+    }
+
+    public void setWaitingList(int waitingList) {
+        this.waitingList = waitingList;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+}
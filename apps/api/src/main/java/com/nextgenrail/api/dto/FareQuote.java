@@ -0,0 +1,98 @@
+package com.nextgenrail.api.dto;
+
+/**
+ * Quoted fare for one fare quote request, in the order the requests were sent
+ * totalFare is null, with a message, when the train does not offer the class on that journey
+ */
+public class FareQuote {
+
+    private String trainNumber;
+    private String fromStationCode;
+    private String toStationCode;
+    private String classCode;
+    private Integer totalFare;
+    private Integer adultFare; // Fare of one adult, for display next to search results
+    private Integer flexiSurchargePercent; // Added to the base fare by flexi pricing
+    private String message;
+
+    // Constructors
+    public FareQuote() {
+    }
+
+    public FareQuote(FareQuoteRequest request, Integer totalFare, Integer adultFare, Integer flexiSurchargePercent,
+            String message) {
+        this.trainNumber = request.getTrainNumber();
+        this.fromStationCode = request.getFromStationCode();
+        this.toStationCode = request.getToStationCode();
+        this.classCode = request.getClassCode();
+        this.totalFare = totalFare;
+        this.adultFare = adultFare;
+        this.flexiSurchargePercent = flexiSurchargePercent;
+        this.message = message;
+    }
+
+    // Getters and Setters
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public String getFromStationCode() {
+        return fromStationCode;
+    }
+
+    public void setFromStationCode(String fromStationCode) {
+        this.fromStationCode = fromStationCode;
+    }
+
+    public String getToStationCode() {
+        return toStationCode;
+    }
+
+    public void setToStationCode(String toStationCode) {
+        this.toStationCode = toStationCode;
+    }
+
+    public String getClassCode() {
+        return classCode;
+    }
+
+    public void setClassCode(String classCode) {
+        this.classCode = classCode;
+    }
+
+    public Integer getTotalFare() {
+        return totalFare;
+    }
+
+    public void setTotalFare(Integer totalFare) {
+        this.totalFare = totalFare;
+    }
+
+    public Integer getAdultFare() {
+        return adultFare;
+    }
+
+    public void setAdultFare(Integer adultFare) {
+        this.adultFare = adultFare;
+    }
+
+    public Integer getFlexiSurchargePercent() {
+        return flexiSurchargePercent;
+    }
+
+    public void setFlexiSurchargePercent(Integer flexiSurchargePercent) {
+        this.flexiSurchargePercent = flexiSurchargePercent;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,126 @@
+package com.nextgenrail.api.dto;
+
+import com.nextgenrail.api.model.QuotaType;
+
+import java.time.LocalDate;
+
+/**
+ * One fare to quote: a class on a train between two stations, for a mix of passengers
+ * A request without passengers is quoted for one adult
+ */
+public class FareQuoteRequest {
+
+    private String trainNumber;
+    private String fromStationCode;
+    private String toStationCode;
+    private String classCode;
+    private LocalDate travelDate; // Flexi fares depend on it; without it they are quoted at the lowest tier
+    private QuotaType quota = QuotaType.GENERAL;
+
+    // Passenger mix
+    private int adults;
+    private int children; // 5 to 11 years
+    private int infants; // Under 5, travel free
+    private int seniorMen;
+    private int seniorWomen;
+
+    // Constructors
+    public FareQuoteRequest() {
+    }
+
+    public FareQuoteRequest(String trainNumber, String fromStationCode, String toStationCode, String classCode) {
+        this.trainNumber = trainNumber;
+        this.fromStationCode = fromStationCode;
+        this.toStationCode = toStationCode;
+        this.classCode = classCode;
+    }
+
+    // Getters and Setters
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public String getFromStationCode() {
+        return fromStationCode;
+    }
+
+    public void setFromStationCode(String fromStationCode) {
+        this.fromStationCode = fromStationCode;
+    }
+
+    public String getToStationCode() {
+        return toStationCode;
+    }
+
+    public void setToStationCode(String toStationCode) {
+        this.toStationCode = toStationCode;
+    }
+
+    public String getClassCode() {
+        return classCode;
+    }
+
+    public void setClassCode(String classCode) {
+        this.classCode = classCode;
+    }
+
+    public LocalDate getTravelDate() {
+        return travelDate;
+    }
+
+    public void setTravelDate(LocalDate travelDate) {
+        this.travelDate = travelDate;
+    }
+
+    public QuotaType getQuota() {
+        return quota;
+    }
+
+    public void setQuota(QuotaType quota) {
+        this.quota = quota;
+    }
+
+    public int getAdults() {
+        return adults;
+    }
+
+    public void setAdults(int adults) {
+        this.adults = adults;
+    }
+
+    public int getChildren() {
+        return children;
+    }
+
+    public void setChildren(int children) {
+        this.children = children;
+    }
+
+    public int getInfants() {
+        return infants;
+    }
+
+    public void setInfants(int infants) {
+        this.infants = infants;
+    }
+
+    public int getSeniorMen() {
+        return seniorMen;
+    }
+
+    public void setSeniorMen(int seniorMen) {
+        this.seniorMen = seniorMen;
+    }
+
+    public int getSeniorWomen() {
+        return seniorWomen;
+    }
+
+    public void setSeniorWomen(int seniorWomen) {
+        this.seniorWomen = seniorWomen;
+    }
+}
@@ -0,0 +1,47 @@
+package com.nextgenrail.api.dto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A door-to-door journey made of one or more train legs
+ */
+public class JourneyItinerary {
+
+    private List<JourneyLeg> legs;
+
+    // Constructors
+    public JourneyItinerary() {
+    }
+
+    public JourneyItinerary(List<JourneyLeg> legs) {
+        this.legs = legs;
+    }
+
+    // Helper methods
+    public int getChanges() {
+        return legs != null && !legs.isEmpty() ? legs.size() - 1 : 0;
+    }
+
+    public LocalDateTime getDeparture() {
+        return legs != null && !legs.isEmpty() ? legs.get(0).getDeparture() : null;
+    }
+
+    public LocalDateTime getArrival() {
+        return legs != null && !legs.isEmpty() ? legs.get(legs.size() - 1).getArrival() : null;
+    }
+
+    public long getDurationMinutes() {
+        return legs != null && !legs.isEmpty() ? Duration.between(getDeparture(), getArrival()).toMinutes() : 0;
+    }
+
+    // Getters and Setters
+    public List<JourneyLeg> getLegs() {
+        return legs;
+    }
+
+    public void setLegs(List<JourneyLeg> legs) {
+        this.legs = legs;
+    }
+}
@@ -0,0 +1,79 @@
+package com.nextgenrail.api.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * A single train ride within a journey itinerary
+ */
+public class JourneyLeg {
+
+    private String trainNumber;
+    private String trainName;
+    private String fromStationCode;
+    private String toStationCode;
+    private LocalDateTime departure;
+    private LocalDateTime arrival;
+
+    // Constructors
+    public JourneyLeg() {
+    }
+
+    public JourneyLeg(String trainNumber, String trainName, String fromStationCode, String toStationCode,
+            LocalDateTime departure, LocalDateTime arrival) {
+        this.trainNumber = trainNumber;
+        this.trainName = trainName;
+        this.fromStationCode = fromStationCode;
+        this.toStationCode = toStationCode;
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    // Getters and Setters
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public String getTrainName() {
+        return trainName;
+    }
+
+    public void setTrainName(String trainName) {
+        this.trainName = trainName;
+    }
+
+    public String getFromStationCode() {
+        return fromStationCode;
+    }
+
+    public void setFromStationCode(String fromStationCode) {
+        this.fromStationCode = fromStationCode;
+    }
+
+    public String getToStationCode() {
+        return toStationCode;
+    }
+
+    public void setToStationCode(String toStationCode) {
+        this.toStationCode = toStationCode;
+    }
+
+    public LocalDateTime getDeparture() {
+        return departure;
+    }
+
+    public void setDeparture(LocalDateTime departure) {
+        this.departure = departure;
+    }
+
+    public LocalDateTime getArrival() {
+        return arrival;
+    }
+
+    public void setArrival(LocalDateTime arrival) {
+        this.arrival = arrival;
+    }
+}
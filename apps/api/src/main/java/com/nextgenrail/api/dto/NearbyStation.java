@@ -0,0 +1,38 @@
+package com.nextgenrail.api.dto;
+
+import com.nextgenrail.api.model.Station;
+
+/**
+ * Station found near a location, with its great-circle distance
+ */
+public class NearbyStation {
+
+    private Station station;
+    private double distanceKm;
+
+    // Constructors
+    public NearbyStation() {
+    }
+
+    public NearbyStation(Station station, double distanceKm) {
+        this.station = station;
+        this.distanceKm = distanceKm;
+    }
+
+    // Getters and Setters
+    public Station getStation() {
+        return station;
+    }
+
+    public void setStation(Station station) {
+        this.station = station;
+    }
+
+    public double getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(double distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+}
@@ -0,0 +1,71 @@
+package com.nextgenrail.api.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Seat availability of every class on one train run
+ */
+public class TrainAvailability {
+
+    private String trainNumber;
+    private String trainName;
+    private LocalDate date;
+    private Map<String, ClassAvailability> availability;
+    private LocalDateTime lastUpdated;
+
+    // Constructors
+    public TrainAvailability() {
+    }
+
+    public TrainAvailability(String trainNumber, String trainName, LocalDate date,
+            Map<String, ClassAvailability> availability, LocalDateTime lastUpdated) {
+        this.trainNumber = trainNumber;
+        this.trainName = trainName;
+        this.date = date;
+        this.availability = availability;
+        this.lastUpdated = lastUpdated;
+    }
+
+    // Getters and Setters
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public String getTrainName() {
+        return trainName;
+    }
+
+    public void setTrainName(String trainName) {
+        this.trainName = trainName;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public Map<String, ClassAvailability> getAvailability() {
+        return availability;
+    }
+
+    public void setAvailability(Map<String, ClassAvailability> availability) {
+        this.availability = availability;
+    }
+
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+}
@@ -0,0 +1,126 @@
+package com.nextgenrail.api.dto;
+
+import com.nextgenrail.api.model.TrainType;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Search result describing only the searched segment of a train's route
+ */
+public class TrainSearchResult {
+
+    private String trainNumber;
+    private String trainName;
+    private TrainType trainType;
+    private String fromStationCode;
+    private String fromStationName;
+    private String toStationCode;
+    private String toStationName;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    private int durationMinutes;
+    private int distanceKm;
+    private List<String> classes;
+
+    // Constructors
+    public TrainSearchResult() {
+    }
+
+    // Getters and Setters
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public String getTrainName() {
+        return trainName;
+    }
+
+    public void setTrainName(String trainName) {
+        this.trainName = trainName;
+    }
+
+    public TrainType getTrainType() {
+        return trainType;
+    }
+
+    public void setTrainType(TrainType trainType) {
+        this.trainType = trainType;
+    }
+
+    public String getFromStationCode() {
+        return fromStationCode;
+    }
+
+    public void setFromStationCode(String fromStationCode) {
+        this.fromStationCode = fromStationCode;
+    }
+
+    public String getFromStationName() {
+        return fromStationName;
+    }
+
+    public void setFromStationName(String fromStationName) {
+        this.fromStationName = fromStationName;
+    }
+
+    public String getToStationCode() {
+        return toStationCode;
+    }
+
+    public void setToStationCode(String toStationCode) {
+        this.toStationCode = toStationCode;
+    }
+
+    public String getToStationName() {
+        return toStationName;
+    }
+
+    public void setToStationName(String toStationName) {
+        this.toStationName = toStationName;
+    }
+
+    public LocalDateTime getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(LocalDateTime departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    public LocalDateTime getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public void setArrivalTime(LocalDateTime arrivalTime) {
+        this.arrivalTime = arrivalTime;
+    }
+
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    public int getDistanceKm() {
+        return distanceKm;
+    }
+
+    public void setDistanceKm(int distanceKm) {
+        this.distanceKm = distanceKm;
+    }
+
+    public List<String> getClasses() {
+        return classes;
+    }
+
+    public void setClasses(List<String> classes) {
+        this.classes = classes;
+    }
+}
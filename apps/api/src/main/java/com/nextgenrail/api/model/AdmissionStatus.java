@@ -0,0 +1,12 @@
+package com.nextgenrail.api.model;
+
+/**
+ * State of a Tatkal booking request in the admission queue
+ */
+public enum AdmissionStatus {
+    QUEUED, // Waiting for its turn
+    PROCESSING, // Being booked
+    COMPLETED, // Booked; the ticket carries the PNR
+    FAILED, // Booking failed; the ticket carries the reason
+    REJECTED // Queue was full; retry after the ETA
+}
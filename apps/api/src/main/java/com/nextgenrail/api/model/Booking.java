@@ -3,37 +3,51 @@ package com.nextgenrail.api.model;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.index.Indexed;
-import org.springframework.data.mongodb.core.mapping.DBRef;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Booking entity representing train ticket reservations
+ * The user and train are referenced by id; the train details shown with a booking are copied in when it is made
  */
 @Document(collection = "bookings")
+@CompoundIndexes({
+        // Seat inventories, waiting lists and chart preparation read a run's bookings by train
+        @CompoundIndex(name = "run_date_train_id", def = "{'runDate': 1, 'trainId': 1}"),
+        // A user's bookings, newest first
+        @CompoundIndex(name = "user_booked_at", def = "{'userId': 1, 'bookedAt': -1}"),
+        // The refund processor walks pending refunds in id order
+        @CompoundIndex(name = "pending_refunds", def = "{'status': 1, 'refundedAt': 1, '_id': 1}"),
+        // Availability counters catch up on recently changed bookings
+        @CompoundIndex(name = "updated_at_run_date", def = "{'updatedAt': 1, 'runDate': 1}")
+})
 public class Booking {
 
     @Id
     private String id;
 
+    @Version
+    private Long version; // Optimistic locking; concurrent updates of the same booking fail instead of overwriting
+
     @Indexed(unique = true)
     private String pnrNumber;
 
-    @DBRef
-    private User user;
-
-    @DBRef
-    private Train train;
+    private String userId;
+    private String trainId;
+    private TrainSnapshot train;
 
     // Journey details
     private String sourceStationCode;
     private String destinationStationCode;
-    private LocalDate travelDate;
+    private LocalDate travelDate; // Date the train leaves the boarding station
+    private LocalDate runDate; // Date the run left its first station; earlier for stations reached after midnight
     private String classType; // AC1A, AC2A, AC3A, SL, CC, 2S
 
     // Booking details
@@ -53,6 +67,7 @@ public class Booking {
     private double cancellationCharges;
     private double refundAmount;
     private String cancellationReason;
+    private LocalDateTime refundedAt; // Set once the refund has been paid out
 
     @CreatedDate
     private LocalDateTime bookedAt;
@@ -62,30 +77,25 @@ public class Booking {
 
     // Constructors
     public Booking() {
-        this.pnrNumber = generatePnrNumber();
     }
 
-    public Booking(User user, Train train, String sourceStationCode, String destinationStationCode) {
+    public Booking(String userId, Train train, String sourceStationCode, String destinationStationCode) {
         this();
-        this.user = user;
-        this.train = train;
+        this.userId = userId;
+        this.trainId = train.getId();
+        this.train = TrainSnapshot.of(train, sourceStationCode, destinationStationCode);
         this.sourceStationCode = sourceStationCode;
         this.destinationStationCode = destinationStationCode;
     }
 
     // Helper methods
-    private String generatePnrNumber() {
-        // Generate 10-digit PNR number
-        return String.valueOf(System.currentTimeMillis()).substring(3) +
-                String.valueOf(UUID.randomUUID().hashCode()).substring(1, 4);
-    }
-
     public boolean isCancellable() {
         return status == BookingStatus.CONFIRMED || status == BookingStatus.RAC || status == BookingStatus.WAITLISTED;
     }
 
     public boolean isRefundable() {
-        return status == BookingStatus.CANCELLED && refundAmount > 0;
+        return (status == BookingStatus.CANCELLED || status == BookingStatus.CHART_PREPARED) && refundAmount > 0
+                && refundedAt == null;
     }
 
     public int getPassengerCount() {
@@ -101,6 +111,14 @@ public class Booking {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     public String getPnrNumber() {
         return pnrNumber;
     }
@@ -109,19 +127,27 @@ public class Booking {
         this.pnrNumber = pnrNumber;
     }
 
-    public User getUser() {
-        return user;
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
     }
 
-    public void setUser(User user) {
-        this.user = user;
+    public String getTrainId() {
+        return trainId;
     }
 
-    public Train getTrain() {
+    public void setTrainId(String trainId) {
+        this.trainId = trainId;
+    }
+
+    public TrainSnapshot getTrain() {
         return train;
     }
 
-    public void setTrain(Train train) {
+    public void setTrain(TrainSnapshot train) {
         this.train = train;
     }
 
@@ -149,6 +175,17 @@ public class Booking {
         this.travelDate = travelDate;
     }
 
+    /**
+     * Date the train left its first station on this booking's run; the travel date for bookings saved without one
+     */
+    public LocalDate getRunDate() {
+        return runDate != null ? runDate : travelDate;
+    }
+
+    public void setRunDate(LocalDate runDate) {
+        this.runDate = runDate;
+    }
+
     public String getClassType() {
         return classType;
     }
@@ -253,6 +290,14 @@ public class Booking {
         this.cancellationReason = cancellationReason;
     }
 
+    public LocalDateTime getRefundedAt() {
+        return refundedAt;
+    }
+
+    public void setRefundedAt(LocalDateTime refundedAt) {
+        this.refundedAt = refundedAt;
+    }
+
     public LocalDateTime getBookedAt() {
         return bookedAt;
     }
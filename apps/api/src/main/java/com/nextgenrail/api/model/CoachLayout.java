@@ -0,0 +1,92 @@
+package com.nextgenrail.api.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Coach layout per travel class: coach code prefix, seats per coach, seats per bay and the repeating berth pattern
+ */
+public enum CoachLayout {
+    AC1A("AC1A", "H", 24, 4, "LOWER", "UPPER"),
+    AC2A("AC2A", "A", 48, 6, "LOWER", "UPPER", "LOWER", "UPPER", "SIDE_LOWER", "SIDE_UPPER"),
+    AC3A("AC3A", "B", 64, 8, "LOWER", "MIDDLE", "UPPER", "LOWER", "MIDDLE", "UPPER", "SIDE_LOWER", "SIDE_UPPER"),
+    SL("SL", "S", 72, 8, "LOWER", "MIDDLE", "UPPER", "LOWER", "MIDDLE", "UPPER", "SIDE_LOWER", "SIDE_UPPER"),
+    CC("CC", "C", 78, 5, "WINDOW", "MIDDLE", "AISLE", "AISLE", "WINDOW"),
+    EC("EC", "E", 56, 4, "WINDOW", "AISLE", "AISLE", "WINDOW"),
+    SECOND_SITTING("2S", "D", 108, 6, "WINDOW", "MIDDLE", "AISLE", "AISLE", "MIDDLE", "WINDOW");
+
+    // Berth types by code, as used by berthCode
+    public static final List<String> BERTH_TYPES = List.of(
+            "LOWER", "MIDDLE", "UPPER", "SIDE_LOWER", "SIDE_UPPER", "WINDOW", "AISLE");
+
+    private final String classCode;
+    private final String coachPrefix;
+    private final int seatsPerCoach;
+    private final int seatsPerBay;
+    private final String[] berthPattern;
+    private int[] berthCodes;
+
+    // Constants cannot read static fields while they are constructed
+    static {
+        for (CoachLayout layout : values()) {
+            layout.berthCodes = Arrays.stream(layout.berthPattern).mapToInt(BERTH_TYPES::indexOf).toArray();
+        }
+    }
+
+    CoachLayout(String classCode, String coachPrefix, int seatsPerCoach, int seatsPerBay, String... berthPattern) {
+        this.classCode = classCode;
+        this.coachPrefix = coachPrefix;
+        this.seatsPerCoach = seatsPerCoach;
+        this.seatsPerBay = seatsPerBay;
+        this.berthPattern = berthPattern;
+    }
+
+    /**
+     * Layout for a class code such as AC3A or 2S, or null if the class is unknown
+     */
+    public static CoachLayout forClass(String classCode) {
+        for (CoachLayout layout : values()) {
+            if (layout.classCode.equalsIgnoreCase(classCode)) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Code of a berth type name, or -1 if the name is not a known berth type
+     */
+    public static int berthCodeOf(String berthType) {
+        return berthType != null ? BERTH_TYPES.indexOf(berthType.toUpperCase()) : -1;
+    }
+
+    /**
+     * Berth type of a 1-based seat number within a coach
+     */
+    public String berthType(int seatNumber) {
+        return berthPattern[(seatNumber - 1) % berthPattern.length];
+    }
+
+    /**
+     * Berth type code of a 1-based seat number within a coach
+     */
+    public int berthCode(int seatNumber) {
+        return berthCodes[(seatNumber - 1) % berthCodes.length];
+    }
+
+    public String getClassCode() {
+        return classCode;
+    }
+
+    public String getCoachPrefix() {
+        return coachPrefix;
+    }
+
+    public int getSeatsPerCoach() {
+        return seatsPerCoach;
+    }
+
+    public int getSeatsPerBay() {
+        return seatsPerBay;
+    }
+}
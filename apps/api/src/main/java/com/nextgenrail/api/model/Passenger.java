@@ -1,19 +1,30 @@
 package com.nextgenrail.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.Locale;
+import java.util.Set;
+
 /**
  * Passenger information embedded document
+ * Senior citizen, child and infant follow from the age; flags sent by clients are ignored
  */
+@JsonIgnoreProperties(value = {"seniorCitizen", "child", "infant"}, allowGetters = true)
 public class Passenger {
+
+    public static final int MAX_AGE = 125;
+    private static final int SENIOR_AGE = 60;
+    private static final int CHILD_AGE = 5;
+    private static final int ADULT_AGE = 12;
+    // Clients send either the code or the name
+    private static final Set<String> FEMALE = Set.of("F", "FEMALE");
+    private static final Set<String> GENDERS = Set.of("M", "MALE", "F", "FEMALE", "T", "TRANSGENDER");
+
     private String name;
     private int age;
-    private String gender; // M, F, T
+    private String gender; // M, F, T or MALE, FEMALE, TRANSGENDER
     private String berthPreference; // LOWER, MIDDLE, UPPER, SIDE_LOWER, SIDE_UPPER
 
-    // Special categories
-    private boolean isSeniorCitizen = false;
-    private boolean isChild = false;
-    private boolean isInfant = false;
-
     // Constructors
     public Passenger() {
     }
@@ -22,9 +33,6 @@ public class Passenger {
         this.name = name;
         this.age = age;
         this.gender = gender;
-        this.isSeniorCitizen = age >= 60;
-        this.isChild = age >= 5 && age < 12;
-        this.isInfant = age < 5;
     }
 
     // Getters and Setters
@@ -42,9 +50,6 @@ public class Passenger {
 
     public void setAge(int age) {
         this.age = age;
-        this.isSeniorCitizen = age >= 60;
-        this.isChild = age >= 5 && age < 12;
-        this.isInfant = age < 5;
     }
 
     public String getGender() {
@@ -63,27 +68,24 @@ public class Passenger {
         this.berthPreference = berthPreference;
     }
 
+    // Special categories
     public boolean isSeniorCitizen() {
-        return isSeniorCitizen;
-    }
-
-    public void setSeniorCitizen(boolean seniorCitizen) {
-        isSeniorCitizen = seniorCitizen;
+        return age >= SENIOR_AGE;
     }
 
     public boolean isChild() {
-        return isChild;
+        return age >= CHILD_AGE && age < ADULT_AGE;
     }
 
-    public void setChild(boolean child) {
-        isChild = child;
+    public boolean isInfant() {
+        return age < CHILD_AGE;
     }
 
-    public boolean isInfant() {
-        return isInfant;
+    public static boolean isKnownGender(String gender) {
+        return gender != null && GENDERS.contains(gender.trim().toUpperCase(Locale.ROOT));
     }
 
-    public void setInfant(boolean infant) {
-        isInfant = infant;
+    public static boolean isFemale(String gender) {
+        return gender != null && FEMALE.contains(gender.trim().toUpperCase(Locale.ROOT));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,126 @@
+package com.nextgenrail.api.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Berths held per route leg for one class on one train run
+ * Shared by every API instance; updated only through guarded atomic bit updates and removed by Mongo after the run
+ */
+@Document(collection = "seat_ledger")
+public class SeatLedger {
+
+    @Id
+    private String id; // trainNumber:travelDate:classType
+
+    private String trainNumber;
+    private LocalDate travelDate;
+    private String classType;
+    private int seatCount;
+    private int words; // Bitmask words per seat
+    private List<Long> occupancy; // Leg bitmask of every seat, words per seat in seat order
+    private LocalDateTime updatedAt;
+
+    @Indexed(expireAfter = "0s")
+    private LocalDateTime expiresAt;
+
+    // Constructors
+    public SeatLedger() {
+    }
+
+    public SeatLedger(String trainNumber, LocalDate travelDate, String classType, int seatCount, int words,
+            List<Long> occupancy, LocalDateTime expiresAt) {
+        this.id = idOf(trainNumber, travelDate, classType);
+        this.trainNumber = trainNumber;
+        this.travelDate = travelDate;
+        this.classType = classType;
+        this.seatCount = seatCount;
+        this.words = words;
+        this.occupancy = occupancy;
+        this.updatedAt = LocalDateTime.now();
+        this.expiresAt = expiresAt;
+    }
+
+    // Helper methods
+    public static String idOf(String trainNumber, LocalDate travelDate, String classType) {
+        return trainNumber + ":" + travelDate + ":" + classType;
+    }
+
+    // Getters and Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public LocalDate getTravelDate() {
+        return travelDate;
+    }
+
+    public void setTravelDate(LocalDate travelDate) {
+        this.travelDate = travelDate;
+    }
+
+    public String getClassType() {
+        return classType;
+    }
+
+    public void setClassType(String classType) {
+        this.classType = classType;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    public void setSeatCount(int seatCount) {
+        this.seatCount = seatCount;
+    }
+
+    public int getWords() {
+        return words;
+    }
+
+    public void setWords(int words) {
+        this.words = words;
+    }
+
+    public List<Long> getOccupancy() {
+        return occupancy;
+    }
+
+    public void setOccupancy(List<Long> occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -204,54 +204,3 @@ public class Station {
         this.updatedAt = updatedAt;
     }
 }
-
-/**
- * Geographic coordinates for location services
- */
-class Coordinates {
-    private double latitude;
-    private double longitude;
-
-    // Constructors
-    public Coordinates() {
-    }
-
-    public Coordinates(double latitude, double longitude) {
-        this.latitude = latitude;
-        this.longitude = longitude;
-    }
-
-    // Helper methods
-    public double distanceFromKm(Coordinates other) {
-        if (other == null) {
-            return Double.MAX_VALUE;
-        }
-
-        // Haversine formula for distance calculation
-        final int R = 6371; // Radius of the earth in km
-        double latDistance = Math.toRadians(other.latitude - this.latitude);
-        double lonDistance = Math.toRadians(other.longitude - this.longitude);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(this.latitude)) * Math.cos(Math.toRadians(other.latitude))
-                        * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c; // Distance in km
-    }
-
-    // Getters and Setters
-    public double getLatitude() {
-        return latitude;
-    }
-
-    public void setLatitude(double latitude) {
-        this.latitude = latitude;
-    }
-
-    public double getLongitude() {
-        return longitude;
-    }
-
-    public void setLongitude(double longitude) {
-        this.longitude = longitude;
-    }
-}
\ No newline at end of file
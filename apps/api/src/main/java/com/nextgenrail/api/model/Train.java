@@ -7,6 +7,8 @@ import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -67,6 +69,27 @@ public class Train {
         return operationalDays != null && operationalDays.contains(day.toUpperCase());
     }
 
+    /**
+     * Deep copy that shares no mutable state with this train
+     */
+    public Train copy() {
+        Train copy = new Train(trainNumber, trainName, trainType);
+        copy.id = id;
+        if (routes != null) {
+            copy.routes = new ArrayList<>(routes.size());
+            for (TrainRoute route : routes) {
+                copy.routes.add(route.copy());
+            }
+        }
+        copy.operationalDays = operationalDays != null ? new ArrayList<>(operationalDays) : null;
+        copy.isActive = isActive;
+        copy.coachConfiguration = coachConfiguration != null ? new HashMap<>(coachConfiguration) : null;
+        copy.baseFarePerKm = baseFarePerKm != null ? new HashMap<>(baseFarePerKm) : null;
+        copy.createdAt = createdAt;
+        copy.updatedAt = updatedAt;
+        return copy;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -35,6 +35,15 @@ public class TrainRoute {
         return haltDurationMinutes > 0;
     }
 
+    public TrainRoute copy() {
+        TrainRoute copy = new TrainRoute(stationCode, stationName, arrivalTime, departureTime, distanceFromSource,
+                stopNumber);
+        copy.haltDurationMinutes = haltDurationMinutes;
+        copy.isSourceStation = isSourceStation;
+        copy.isDestinationStation = isDestinationStation;
+        return copy;
+    }
+
     // Getters and Setters
     public String getStationCode() {
         return stationCode;
@@ -0,0 +1,87 @@
+package com.nextgenrail.api.model;
+
+import java.time.LocalTime;
+
+/**
+ * Train details copied into a booking when it is made
+ * Lets bookings be listed and shown without loading the train and its route
+ */
+public class TrainSnapshot {
+    private String trainNumber;
+    private String trainName;
+    private TrainType trainType;
+    private LocalTime departureTime; // From the boarding station
+    private LocalTime arrivalTime; // At the destination station
+
+    // Constructors
+    public TrainSnapshot() {
+    }
+
+    public TrainSnapshot(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    /**
+     * Snapshot of a train for a journey between two of its stations
+     */
+    public static TrainSnapshot of(Train train, String sourceStationCode, String destinationStationCode) {
+        TrainSnapshot snapshot = new TrainSnapshot(train.getTrainNumber());
+        snapshot.trainName = train.getTrainName();
+        snapshot.trainType = train.getTrainType();
+        if (train.getRoutes() != null) {
+            for (TrainRoute route : train.getRoutes()) {
+                String stationCode = route.getStationCode();
+                if (stationCode == null) {
+                    continue; // Incomplete route entry; it cannot be either end of the journey
+                }
+                if (stationCode.equalsIgnoreCase(sourceStationCode)) {
+                    snapshot.departureTime = route.getDepartureTime();
+                } else if (stationCode.equalsIgnoreCase(destinationStationCode)) {
+                    snapshot.arrivalTime = route.getArrivalTime();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    // Getters and Setters
+    public String getTrainNumber() {
+        return trainNumber;
+    }
+
+    public void setTrainNumber(String trainNumber) {
+        this.trainNumber = trainNumber;
+    }
+
+    public String getTrainName() {
+        return trainName;
+    }
+
+    public void setTrainName(String trainName) {
+        this.trainName = trainName;
+    }
+
+    public TrainType getTrainType() {
+        return trainType;
+    }
+
+    public void setTrainType(TrainType trainType) {
+        this.trainType = trainType;
+    }
+
+    public LocalTime getDepartureTime() {
+        return departureTime;
+    }
+
+    public void setDepartureTime(LocalTime departureTime) {
+        this.departureTime = departureTime;
+    }
+
+    public LocalTime getArrivalTime() {
+        return arrivalTime;
+    }
+
+    public void setArrivalTime(LocalTime arrivalTime) {
+        this.arrivalTime = arrivalTime;
+    }
+}
@@ -1,8 +1,6 @@
 package com.nextgenrail.api.repository;
 
 import com.nextgenrail.api.model.Booking;
-import com.nextgenrail.api.model.Train;
-import com.nextgenrail.api.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
@@ -34,22 +32,22 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     /**
      * Find all bookings by user
      */
-    List<Booking> findByUserOrderByBookedAtDesc(User user);
+    List<Booking> findByUserIdOrderByBookedAtDesc(String userId);
 
     /**
      * Find user bookings with pagination
      */
-    Page<Booking> findByUserOrderByBookedAtDesc(User user, Pageable pageable);
+    Page<Booking> findByUserIdOrderByBookedAtDesc(String userId, Pageable pageable);
 
     /**
      * Find bookings by user and status
      */
-    List<Booking> findByUserAndStatusOrderByBookedAtDesc(User user, String status);
+    List<Booking> findByUserIdAndStatusOrderByBookedAtDesc(String userId, String status);
 
     /**
      * Find bookings by train
      */
-    List<Booking> findByTrainOrderByBookedAtDesc(Train train);
+    List<Booking> findByTrainIdOrderByBookedAtDesc(String trainId);
 
     /**
      * Find bookings by travel date
@@ -59,7 +57,7 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     /**
      * Find bookings by train and travel date
      */
-    List<Booking> findByTrainAndTravelDateOrderByBookedAtDesc(Train train, LocalDate travelDate);
+    List<Booking> findByTrainIdAndTravelDateOrderByBookedAtDesc(String trainId, LocalDate travelDate);
 
     /**
      * Find bookings by status
@@ -97,10 +95,16 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     List<Booking> findRecentBookings(LocalDateTime thirtyDaysAgo);
 
     /**
-     * Find bookings for specific train and date (for availability calculation)
+     * Find bookings on the run of a train that left its first station on the run date (for seat inventories)
      */
-    @Query("{ 'train': ?0, 'travelDate': ?1, 'status': { '$ne': 'CANCELLED' } }")
-    List<Booking> findActiveBookingsForTrainAndDate(Train train, LocalDate travelDate);
+    @Query("{ 'trainId': ?0, 'runDate': ?1, 'status': { '$ne': 'CANCELLED' } }")
+    List<Booking> findActiveBookingsForTrainRun(String trainId, LocalDate runDate);
+
+    /**
+     * Find bookings still waiting for seats in one class of a train run
+     */
+    @Query("{ 'trainId': ?0, 'runDate': ?1, 'classType': ?2, 'status': { '$in': ['RAC', 'WAITLISTED'] } }")
+    List<Booking> findWaitingBookingsForTrainRun(String trainId, LocalDate runDate, String classType);
 
     /**
      * Find bookings by station pair
@@ -114,12 +118,6 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     @Query("{ 'isPaid': false, 'status': { '$ne': 'CANCELLED' } }")
     List<Booking> findPendingPaymentBookings();
 
-    /**
-     * Find refundable bookings
-     */
-    @Query("{ 'status': 'CANCELLED', 'refundAmount': { '$gt': 0 } }")
-    List<Booking> findRefundableBookings();
-
     /**
      * Find bookings by quota type
      */
@@ -157,13 +155,13 @@ public interface BookingRepository extends MongoRepository<Booking, String> {
     /**
      * Count user's total bookings
      */
-    long countByUser(User user);
+    long countByUserId(String userId);
 
     /**
      * Count bookings for train on specific date
      */
-    @Query(value = "{ 'train': ?0, 'travelDate': ?1, 'status': { '$ne': 'CANCELLED' } }", count = true)
-    long countActiveBookingsForTrainAndDate(Train train, LocalDate travelDate);
+    @Query(value = "{ 'trainId': ?0, 'travelDate': ?1, 'status': { '$ne': 'CANCELLED' } }", count = true)
+    long countActiveBookingsForTrainAndDate(String trainId, LocalDate travelDate);
 
     /**
      * Find bookings that can be cancelled (within cancellation window)
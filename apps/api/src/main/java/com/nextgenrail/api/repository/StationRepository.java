@@ -1,6 +1,7 @@
 package com.nextgenrail.api.repository;
 
 import com.nextgenrail.api.model.Station;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -40,6 +41,12 @@ public interface StationRepository extends MongoRepository<Station, String> {
      */
     List<Station> findByIsActiveTrue();
 
+    /**
+     * Keyset page of active stations after the given code, in code order
+     * Returns a plain list so no count query is issued
+     */
+    List<Station> findByIsActiveTrueAndCodeGreaterThanOrderByCodeAsc(String code, Pageable pageable);
+
     /**
      * Find principal/major stations
      */
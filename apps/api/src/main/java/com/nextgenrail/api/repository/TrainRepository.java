@@ -1,6 +1,7 @@
 package com.nextgenrail.api.repository;
 
 import com.nextgenrail.api.model.Train;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -30,6 +31,12 @@ public interface TrainRepository extends MongoRepository<Train, String> {
         */
        List<Train> findByIsActiveTrue();
 
+       /**
+        * Keyset page of trains after the given train number, in train number order
+        * Returns a plain list so no count query is issued
+        */
+       List<Train> findByTrainNumberGreaterThanOrderByTrainNumberAsc(String trainNumber, Pageable pageable);
+
        /**
         * Find trains by train type
         */
@@ -44,16 +51,11 @@ public interface TrainRepository extends MongoRepository<Train, String> {
 
        /**
         * Find trains between two stations
-        * Complex query to find trains that have both source and destination in their
-        * route
+        * Matches trains that have both source and destination in their route;
+        * direction of travel is not checked here (see TrainSearchIndex)
         */
        @Query("{ " +
-                     "'routes': { " +
-                     "  '$elemMatch': { 'stationCode': ?0 } " +
-                     "}, " +
-                     "'routes': { " +
-                     "  '$elemMatch': { 'stationCode': ?1 } " +
-                     "}, " +
+                     "'routes.stationCode': { '$all': [?0, ?1] }, " +
                      "'isActive': true " +
                      "}")
        List<Train> findTrainsBetweenStations(String sourceStationCode, String destinationStationCode);
@@ -91,12 +93,7 @@ public interface TrainRepository extends MongoRepository<Train, String> {
         * Complex search for trains between stations on specific days
         */
        @Query("{ " +
-                     "'routes': { " +
-                     "  '$elemMatch': { 'stationCode': ?0 } " +
-                     "}, " +
-                     "'routes': { " +
-                     "  '$elemMatch': { 'stationCode': ?1 } " +
-                     "}, " +
+                     "'routes.stationCode': { '$all': [?0, ?1] }, " +
                      "'operationalDays': { '$in': ?2 }, " +
                      "'isActive': true " +
                      "}")
@@ -121,12 +118,7 @@ public interface TrainRepository extends MongoRepository<Train, String> {
         * travel time
         */
        @Query("{ " +
-                     "'routes': { " +
-                     "  '$elemMatch': { 'stationCode': ?0 } " +
-                     "}, " +
-                     "'routes': { " +
-                     "  '$elemMatch': { 'stationCode': ?1 } " +
-                     "}, " +
+                     "'routes.stationCode': { '$all': [?0, ?1] }, " +
                      "'trainType': { '$in': ['RAJDHANI', 'SHATABDI', 'VANDE_BHARAT', 'DURONTO'] }, " +
                      "'isActive': true " +
                      "}")
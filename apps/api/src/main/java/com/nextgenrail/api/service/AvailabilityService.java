@@ -0,0 +1,363 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.dto.ClassAvailability;
+import com.nextgenrail.api.dto.TrainAvailability;
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.CoachLayout;
+import com.nextgenrail.api.model.QuotaType;
+import com.nextgenrail.api.model.SeatAllocation;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Seat availability from in-memory counters per (train, run date, class, quota)
+ *
+ * A run is keyed by the date the train left its first station, the same key
+ * as its seat inventory, so counts include passengers boarding after midnight.
+ * Counters are loaded with one aggregation over upcoming bookings at startup
+ * and then kept current by the booking service, so availability queries never
+ * touch the database. Bookings made on other instances are caught up with
+ * every few seconds: the runs whose bookings changed since the last catch-up
+ * are recounted from the database, so every instance quotes the same
+ * availability and flexi fares within one catch-up interval. Sold counts
+ * include every confirmed passenger on the run;
+ * seats reused on later legs of the route can make real availability higher.
+ * Counters are striped, so a booking surge on one run does not make every
+ * booking thread contend on the same counter.
+ */
+@Service
+public class AvailabilityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AvailabilityService.class);
+
+    private static final CoachLayout[] CLASSES = CoachLayout.values();
+    private static final QuotaType[] QUOTAS = QuotaType.values();
+    private static final int SOLD = 0;
+    private static final int WAITLISTED = 1;
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(10);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Value("${app.booking.waitlist-limit:200}")
+    private int waitlistLimit;
+
+    // One counter array per train run, indexed by class, quota and counter kind
+    private final Map<RunKey, StripedCounters> counters = new ConcurrentHashMap<>();
+
+    // Bookings changed after this were not seen by the last load or catch-up; null until counters are loaded
+    private volatile LocalDateTime syncedUpTo;
+
+    private record RunKey(String trainNumber, LocalDate runDate) {
+    }
+
+    /**
+     * Load counters from bookings on runs that left yesterday onwards
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        long start = System.nanoTime();
+        LocalDateTime loadedAt = LocalDateTime.now();
+
+        Map<RunKey, StripedCounters> loaded = count(new Document("runDate", new Document("$gte", yesterday())));
+        counters.putAll(loaded);
+        syncedUpTo = loadedAt;
+
+        logger.info("Availability counters loaded for {} train runs in {} ms",
+                loaded.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Recount the runs whose bookings changed since the last catch-up, on this instance or any other
+     * Bookings recorded here while a run is recounted are picked up again by the next catch-up
+     */
+    @Scheduled(fixedDelayString = "${app.booking.availability-sync-ms:15000}",
+            initialDelayString = "${app.booking.availability-sync-ms:15000}")
+    public void catchUp() {
+        LocalDateTime since = syncedUpTo;
+        if (since == null) {
+            return; // Still loading
+        }
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        // Bookings queued for a group commit reach the database a little after they were stamped
+        Date changedSince = Date.from(since.minus(SYNC_OVERLAP).atZone(ZoneId.systemDefault()).toInstant());
+        List<Document> changedRuns = new ArrayList<>();
+        for (Document run : mongoTemplate.getCollection("bookings").aggregate(List.of(
+                new Document("$match", new Document("updatedAt", new Document("$gte", changedSince))
+                        .append("runDate", new Document("$gte", yesterday()))),
+                new Document("$group", new Document("_id", new Document()
+                        .append("trainNumber", "$train.trainNumber")
+                        .append("runDate", "$runDate")))))) {
+            Document id = run.get("_id", Document.class);
+            if (id.getString("trainNumber") != null && id.getDate("runDate") != null) {
+                changedRuns.add(new Document("train.trainNumber", id.getString("trainNumber"))
+                        .append("runDate", id.getDate("runDate")));
+            }
+        }
+
+        if (!changedRuns.isEmpty()) {
+            Map<RunKey, StripedCounters> recounted = count(new Document("$or", changedRuns));
+            for (Document run : changedRuns) {
+                RunKey key = new RunKey(run.getString("train.trainNumber"), localDate(run.getDate("runDate")));
+                // A run left without active bookings counts nothing any more
+                counters.put(key, recounted.getOrDefault(key, newCounters()));
+            }
+            logger.debug("Availability caught up on {} train runs", changedRuns.size());
+        }
+        syncedUpTo = startedAt;
+    }
+
+    /**
+     * Count the seats and waitlist places taken by a new booking
+     */
+    public void recordBooking(Booking booking) {
+        apply(booking, 1);
+    }
+
+    /**
+     * Return the seats and waitlist places of a cancelled booking
+     */
+    public void recordCancellation(Booking booking) {
+        apply(booking, -1);
+    }
+
+    /**
+     * Move passengers of a booking from the waiting list to sold seats
+     */
+    public void recordPromotion(Booking booking, int passengers) {
+        CoachLayout layout = CoachLayout.forClass(booking.getClassType());
+        if (layout == null || booking.getTrain() == null || passengers <= 0) {
+            return;
+        }
+
+        StripedCounters run = counters(booking.getTrain().getTrainNumber(), booking.getRunDate());
+        QuotaType quota = booking.getQuota() != null ? booking.getQuota() : QuotaType.GENERAL;
+        run.add(slot(layout, quota, SOLD), passengers);
+        run.add(slot(layout, quota, WAITLISTED), -passengers);
+    }
+
+    /**
+     * Clear the waiting lists of a train run whose chart has been prepared
+     */
+    public void recordChartPrepared(String trainNumber, LocalDate runDate) {
+        StripedCounters run = counters.get(new RunKey(trainNumber, runDate));
+        if (run == null) {
+            return;
+        }
+        for (CoachLayout layout : CLASSES) {
+            for (QuotaType quota : QUOTAS) {
+                run.reset(slot(layout, quota, WAITLISTED));
+            }
+        }
+    }
+
+    /**
+     * Availability of the train's classes on its run leaving the first station on the date, optionally limited to
+     * one class
+     * The waiting list is that of the given quota, or of all quotas when none is given
+     */
+    public Optional<TrainAvailability> getAvailability(String trainNumber, LocalDate runDate, String classCode,
+            QuotaType quota) {
+        CompiledTimetable timetable = trainSearchIndex.getTimetable();
+        int train = timetable.trainId(trainNumber);
+        if (train < 0) {
+            return Optional.empty();
+        }
+
+        StripedCounters run = counters.get(new RunKey(trainNumber, runDate));
+        Map<String, ClassAvailability> availability = new LinkedHashMap<>();
+        for (String offered : timetable.classesOffered(train)) {
+            CoachLayout layout = CoachLayout.forClass(offered);
+            if (layout == null || (classCode != null && !offered.equalsIgnoreCase(classCode))) {
+                continue;
+            }
+
+            int total = timetable.coachCount(train, timetable.classId(offered)) * layout.getSeatsPerCoach();
+            int sold = 0;
+            if (run != null) {
+                for (QuotaType q : QUOTAS) {
+                    sold += run.get(slot(layout, q, SOLD));
+                }
+            }
+            int waiting = waiting(run, layout, quota);
+
+            int available = Math.max(0, total - sold);
+            availability.put(offered, new ClassAvailability(available, total, waiting, statusOf(available, waiting)));
+        }
+
+        return Optional.of(new TrainAvailability(trainNumber, timetable.trainName(train), runDate,
+                availability, LocalDateTime.now()));
+    }
+
+    /**
+     * Seats sold in a class on a train run, across quotas; read without locking
+     */
+    public int soldSeats(String trainNumber, LocalDate runDate, String classCode) {
+        CoachLayout layout = CoachLayout.forClass(classCode);
+        StripedCounters run = layout != null ? counters.get(new RunKey(trainNumber, runDate)) : null;
+        if (run == null) {
+            return 0;
+        }
+
+        int sold = 0;
+        for (QuotaType quota : QUOTAS) {
+            sold += run.get(slot(layout, quota, SOLD));
+        }
+        return sold;
+    }
+
+    /**
+     * Whether the waiting list of a class on a train run has room for the passengers, within the waitlist limit
+     * The list is that of the quota, or of all quotas when none is given, as getAvailability reports it. Call with
+     * the run's inventory lock held and record the booking before releasing it, so concurrent bookings on this
+     * instance cannot overfill the list
+     */
+    public boolean hasWaitlistRoom(String trainNumber, LocalDate runDate, String classCode, QuotaType quota,
+            int passengers) {
+        CoachLayout layout = CoachLayout.forClass(classCode);
+        if (layout == null) {
+            return true;
+        }
+        return waiting(counters.get(new RunKey(trainNumber, runDate)), layout, quota) + passengers <= waitlistLimit;
+    }
+
+    /**
+     * Drop counters for journeys that have already departed
+     */
+    @Scheduled(cron = "${app.booking.calendar-refresh-cron:0 0 0 * * *}")
+    public void evictDeparted() {
+        LocalDate cutoff = LocalDate.now().minusDays(1);
+        counters.keySet().removeIf(key -> key.runDate().isBefore(cutoff));
+    }
+
+    private void apply(Booking booking, int delta) {
+        CoachLayout layout = CoachLayout.forClass(booking.getClassType());
+        if (layout == null || booking.getTrain() == null || booking.getSeatAllocations() == null) {
+            return;
+        }
+
+        StripedCounters run = counters(booking.getTrain().getTrainNumber(), booking.getRunDate());
+        QuotaType quota = booking.getQuota() != null ? booking.getQuota() : QuotaType.GENERAL;
+        for (SeatAllocation allocation : booking.getSeatAllocations()) {
+            int kind = kindOf(allocation.getAllocationStatus() != null ? allocation.getAllocationStatus().name() : null);
+            if (kind >= 0) {
+                run.add(slot(layout, quota, kind), delta);
+            }
+        }
+    }
+
+    /**
+     * Passengers waiting in a class of the run, in the quota or in all quotas when none is given
+     */
+    private static int waiting(StripedCounters run, CoachLayout layout, QuotaType quota) {
+        int waiting = 0;
+        if (run != null) {
+            for (QuotaType q : QUOTAS) {
+                if (quota == null || quota == q) {
+                    waiting += run.get(slot(layout, q, WAITLISTED));
+                }
+            }
+        }
+        return waiting;
+    }
+
+    private StripedCounters counters(String trainNumber, LocalDate runDate) {
+        return counters.computeIfAbsent(new RunKey(trainNumber, runDate), key -> newCounters());
+    }
+
+    /**
+     * Fresh counters of the runs of the bookings matching the filter, from one aggregation
+     */
+    private Map<RunKey, StripedCounters> count(Document match) {
+        List<Document> pipeline = List.of(
+                new Document("$match", new Document(match)
+                        .append("status", new Document("$in", List.of(BookingStatus.CONFIRMED.name(),
+                                BookingStatus.RAC.name(), BookingStatus.WAITLISTED.name(),
+                                BookingStatus.CHART_PREPARED.name())))),
+                new Document("$unwind", "$seatAllocations"),
+                new Document("$group", new Document("_id", new Document()
+                        .append("trainNumber", "$train.trainNumber")
+                        .append("runDate", "$runDate")
+                        .append("classType", "$classType")
+                        .append("quota", "$quota")
+                        .append("status", "$seatAllocations.allocationStatus"))
+                        .append("count", new Document("$sum", 1))));
+
+        Map<RunKey, StripedCounters> runs = new HashMap<>();
+        for (Document group : mongoTemplate.getCollection("bookings").aggregate(pipeline)) {
+            Document id = group.get("_id", Document.class);
+            String trainNumber = id.getString("trainNumber");
+            CoachLayout layout = CoachLayout.forClass(id.getString("classType"));
+            Date runDate = id.getDate("runDate");
+            int kind = kindOf(id.getString("status"));
+            if (trainNumber == null || layout == null || runDate == null || kind < 0) {
+                continue;
+            }
+
+            runs.computeIfAbsent(new RunKey(trainNumber, localDate(runDate)), key -> newCounters())
+                    .add(slot(layout, quotaOf(id.getString("quota")), kind), group.getInteger("count"));
+        }
+        return runs;
+    }
+
+    private static StripedCounters newCounters() {
+        return new StripedCounters(CLASSES.length * QUOTAS.length * 2);
+    }
+
+    private static Date yesterday() {
+        return Date.from(LocalDate.now().minusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static LocalDate localDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private String statusOf(int available, int waiting) {
+        if (available > 0) {
+            return "AVAILABLE";
+        }
+        return waiting < waitlistLimit ? "WAITLISTED" : "NOT_AVAILABLE";
+    }
+
+    private static int slot(CoachLayout layout, QuotaType quota, int kind) {
+        return (layout.ordinal() * QUOTAS.length + quota.ordinal()) * 2 + kind;
+    }
+
+    private static int kindOf(String allocationStatus) {
+        if (BookingStatus.CONFIRMED.name().equals(allocationStatus)) {
+            return SOLD;
+        }
+        if (BookingStatus.WAITLISTED.name().equals(allocationStatus)) {
+            return WAITLISTED;
+        }
+        return -1;
+    }
+
+    private static QuotaType quotaOf(String quota) {
+        try {
+            return quota != null ? QuotaType.valueOf(quota) : QuotaType.GENERAL;
+        } catch (IllegalArgumentException e) {
+            return QuotaType.GENERAL;
+        }
+    }
+}
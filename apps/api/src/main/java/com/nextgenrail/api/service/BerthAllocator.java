@@ -0,0 +1,248 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.CoachLayout;
+
+import java.util.Arrays;
+
+/**
+ * Preference-aware seat picker for one seat inventory
+ *
+ * Works on primitive seat maps with scratch arrays sized once per inventory,
+ * so picking seats allocates nothing. A group is placed in the shortest run
+ * of adjacent bays within one coach that has a seat for everybody, choosing
+ * the run that satisfies the most berth preferences. Seniors without a
+ * preference are given lower berths where possible. A group that fits in no
+ * single coach is split, filling the coaches with the most free seats first.
+ * Not thread-safe; the owning inventory only calls it under its lock.
+ */
+public final class BerthAllocator {
+
+    public static final int NO_PREFERENCE = -1;
+
+    private static final int CODES = CoachLayout.BERTH_TYPES.size();
+    private static final int LOWER = CoachLayout.berthCodeOf("LOWER");
+    private static final int SIDE_LOWER = CoachLayout.berthCodeOf("SIDE_LOWER");
+
+    private final int coaches;
+    private final int seatsPerCoach;
+    private final int seatsPerBay;
+    private final int baysPerCoach;
+    private final int[] seatCode;
+
+    // Scratch state of the current call
+    private final int[] bayFree; // Free seats per bay and berth code, at bay * CODES + code
+    private final int[] bayTotal; // Free seats per bay
+    private final int[] need = new int[CODES]; // Unseated passengers wanting each berth code
+    private final int[] windowFree = new int[CODES];
+
+    public BerthAllocator(CoachLayout layout, int coaches) {
+        this.coaches = coaches;
+        this.seatsPerCoach = layout.getSeatsPerCoach();
+        this.seatsPerBay = layout.getSeatsPerBay();
+        this.baysPerCoach = (seatsPerCoach + seatsPerBay - 1) / seatsPerBay;
+        this.seatCode = new int[coaches * seatsPerCoach];
+        for (int seat = 0; seat < seatCode.length; seat++) {
+            seatCode[seat] = layout.berthCode(seat % seatsPerCoach + 1);
+        }
+        this.bayFree = new int[coaches * baysPerCoach * CODES];
+        this.bayTotal = new int[coaches * baysPerCoach];
+    }
+
+    /**
+     * Pick seats for the first count passengers
+     * free marks the seats free for the journey and is updated as seats are taken; partlyHeld marks seats
+     * sold on other legs, which passengers without a preference get first so untouched seats stay open for
+     * long journeys. wanted holds a berth code or NO_PREFERENCE per passenger, senior marks senior citizens.
+     * If there are fewer free seats than passengers, the passengers listed first are seated.
+     * Writes each seated passenger's seat to seats and returns the number seated
+     */
+    public int allocate(boolean[] free, boolean[] partlyHeld, int[] wanted, boolean[] senior, int count,
+            int[] seats) {
+        Arrays.fill(seats, 0, count, -1);
+        Arrays.fill(bayFree, 0);
+        Arrays.fill(bayTotal, 0);
+        Arrays.fill(need, 0);
+
+        int totalFree = 0;
+        for (int seat = 0; seat < seatCode.length; seat++) {
+            if (free[seat]) {
+                int bay = bayOf(seat);
+                bayTotal[bay]++;
+                bayFree[bay * CODES + seatCode[seat]]++;
+                totalFree++;
+            }
+        }
+
+        int seating = Math.min(count, totalFree);
+        for (int p = 0; p < seating; p++) {
+            int code = preferenceOf(wanted, senior, p);
+            if (code >= 0) {
+                need[code]++;
+            }
+        }
+
+        int seated = 0;
+        long window = findWindow(seating);
+        if (window >= 0) {
+            seated = seatInBays((int) (window >>> 32), (int) window, free, partlyHeld, wanted, senior, seating, seats);
+        }
+        // No coach has room for everybody; fill the emptiest coaches first
+        while (seated < seating) {
+            int coach = emptiestCoach();
+            seated += seatInBays(coach * baysPerCoach, (coach + 1) * baysPerCoach - 1, free, partlyHeld, wanted,
+                    senior, seating, seats);
+        }
+        return seated;
+    }
+
+    /**
+     * Shortest run of bays in one coach with at least count free seats, best preference match first
+     * Returns the first and last bay packed into a long, or -1 if no coach has count free seats
+     */
+    private long findWindow(int count) {
+        if (count == 0) {
+            return -1;
+        }
+
+        long best = -1;
+        int bestSpan = Integer.MAX_VALUE;
+        int bestScore = -1;
+        for (int coach = 0; coach < coaches; coach++) {
+            int firstBay = coach * baysPerCoach;
+            int endBay = firstBay + baysPerCoach;
+            for (int start = firstBay; start < endBay; start++) {
+                if (bayTotal[start] == 0) {
+                    continue;
+                }
+                Arrays.fill(windowFree, 0);
+                int seats = 0;
+                for (int end = start; end < endBay && end - start < bestSpan; end++) {
+                    seats += bayTotal[end];
+                    for (int code = 0; code < CODES; code++) {
+                        windowFree[code] += bayFree[end * CODES + code];
+                    }
+                    if (seats >= count) {
+                        int span = end - start + 1;
+                        int score = score();
+                        if (span < bestSpan || score > bestScore) {
+                            best = ((long) start << 32) | end;
+                            bestSpan = span;
+                            bestScore = score;
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Number of berth preferences the current window can satisfy
+     */
+    private int score() {
+        int score = 0;
+        for (int code = 0; code < CODES; code++) {
+            score += Math.min(need[code], windowFree[code]);
+        }
+        return score;
+    }
+
+    /**
+     * Seat unseated passengers in bays firstBay..lastBay; returns the number seated
+     */
+    private int seatInBays(int firstBay, int lastBay, boolean[] free, boolean[] partlyHeld, int[] wanted,
+            boolean[] senior, int count, int[] seats) {
+        int from = bayStart(firstBay);
+        int to = bayEnd(lastBay);
+        int seated = 0;
+
+        // Seniors first, then everybody else with a preference: the berth type asked for
+        for (int round = 0; round < 2; round++) {
+            for (int p = 0; p < count; p++) {
+                int code = preferenceOf(wanted, senior, p);
+                if (seats[p] < 0 && code >= 0 && senior[p] == (round == 0)) {
+                    seated += take(p, findSeat(free, null, from, to, code), free, wanted, senior, seats);
+                }
+            }
+        }
+        // Seniors who did not get their choice still get a side lower berth before any upper one
+        for (int p = 0; p < count; p++) {
+            if (seats[p] < 0 && senior[p]) {
+                seated += take(p, findSeat(free, null, from, to, SIDE_LOWER), free, wanted, senior, seats);
+            }
+        }
+        // Everybody else: seats sold on other legs first, then any free seat
+        for (int p = 0; p < count; p++) {
+            if (seats[p] < 0) {
+                int seat = findSeat(free, partlyHeld, from, to, NO_PREFERENCE);
+                if (seat < 0) {
+                    seat = findSeat(free, null, from, to, NO_PREFERENCE);
+                }
+                seated += take(p, seat, free, wanted, senior, seats);
+            }
+        }
+        return seated;
+    }
+
+    /**
+     * First free seat in [from, to) with the berth code (any code for NO_PREFERENCE), optionally only partly held seats
+     */
+    private int findSeat(boolean[] free, boolean[] partlyHeld, int from, int to, int code) {
+        for (int seat = from; seat < to; seat++) {
+            if (free[seat] && (code < 0 || seatCode[seat] == code) && (partlyHeld == null || partlyHeld[seat])) {
+                return seat;
+            }
+        }
+        return -1;
+    }
+
+    private int take(int passenger, int seat, boolean[] free, int[] wanted, boolean[] senior, int[] seats) {
+        if (seat < 0) {
+            return 0;
+        }
+        seats[passenger] = seat;
+        free[seat] = false;
+        int bay = bayOf(seat);
+        bayTotal[bay]--;
+        bayFree[bay * CODES + seatCode[seat]]--;
+        int code = preferenceOf(wanted, senior, passenger);
+        if (code >= 0) {
+            need[code]--;
+        }
+        return 1;
+    }
+
+    private int emptiestCoach() {
+        int best = 0;
+        int bestFree = -1;
+        for (int coach = 0; coach < coaches; coach++) {
+            int coachFree = 0;
+            for (int bay = coach * baysPerCoach; bay < (coach + 1) * baysPerCoach; bay++) {
+                coachFree += bayTotal[bay];
+            }
+            if (coachFree > bestFree) {
+                best = coach;
+                bestFree = coachFree;
+            }
+        }
+        return best;
+    }
+
+    private static int preferenceOf(int[] wanted, boolean[] senior, int passenger) {
+        return wanted[passenger] >= 0 ? wanted[passenger] : senior[passenger] ? LOWER : NO_PREFERENCE;
+    }
+
+    private int bayOf(int seat) {
+        return seat / seatsPerCoach * baysPerCoach + seat % seatsPerCoach / seatsPerBay;
+    }
+
+    private int bayStart(int bay) {
+        return bay / baysPerCoach * seatsPerCoach + bay % baysPerCoach * seatsPerBay;
+    }
+
+    private int bayEnd(int bay) {
+        int coachEnd = (bay / baysPerCoach + 1) * seatsPerCoach;
+        return Math.min(bayStart(bay) + seatsPerBay, coachEnd);
+    }
+}
@@ -0,0 +1,240 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainSnapshot;
+import com.nextgenrail.api.repository.BookingRepository;
+import com.nextgenrail.api.repository.TrainRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Booking service
+ * Handles seat reservation for new bookings, and seat release and waitlist promotion on cancellation
+ */
+@Service
+public class BookingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingService.class);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private BookingWriter bookingWriter;
+
+    @Autowired
+    private WaitlistPromotionService waitlistPromotionService;
+
+    @Autowired
+    private PnrGenerator pnrGenerator;
+
+    @Autowired
+    private FareEngine fareEngine;
+
+    @Autowired
+    private RefundEngine refundEngine;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Value("${app.booking.max-passengers:6}")
+    private int maxPassengers;
+
+    @Value("${app.booking.advance-reservation-days:120}")
+    private int advanceReservationDays;
+
+    /**
+     * Reserve seats for every passenger and save the booking
+     * The booking is CONFIRMED only if every passenger got a seat, otherwise WAITLISTED; it is refused when it would
+     * put more passengers on a waiting list than the waitlist limit allows
+     */
+    public Booking createBooking(Booking bookingRequest) {
+        if (bookingRequest.getTrain() == null || bookingRequest.getTrain().getTrainNumber() == null) {
+            throw new IllegalArgumentException("Train is required");
+        }
+        if (bookingRequest.getPassengers() == null || bookingRequest.getPassengers().isEmpty()) {
+            throw new IllegalArgumentException("At least one passenger is required");
+        }
+        if (bookingRequest.getPassengers().size() > maxPassengers) {
+            throw new IllegalArgumentException("At most " + maxPassengers + " passengers can be booked together");
+        }
+        for (Passenger passenger : bookingRequest.getPassengers()) {
+            // Concessions follow from the age, so it has to be a real one
+            if (passenger == null || passenger.getAge() < 0 || passenger.getAge() > Passenger.MAX_AGE) {
+                throw new IllegalArgumentException("Every passenger needs an age between 0 and " + Passenger.MAX_AGE);
+            }
+            // Senior concessions differ by gender, so it has to be one the fares know
+            if (!Passenger.isKnownGender(passenger.getGender())) {
+                throw new IllegalArgumentException("Every passenger needs a gender of M, F or T");
+            }
+        }
+        if (bookingRequest.getTravelDate() == null || bookingRequest.getClassType() == null) {
+            throw new IllegalArgumentException("Travel date and class are required");
+        }
+
+        Train train = trainRepository.findByTrainNumberIgnoreCase(bookingRequest.getTrain().getTrainNumber())
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Train not found: " + bookingRequest.getTrain().getTrainNumber()));
+
+        // Only runs still to leave the boarding station within the reservation horizon can be booked
+        LocalDate travelDate = bookingRequest.getTravelDate();
+        LocalDate today = LocalDate.now();
+        if (travelDate.isBefore(today) || travelDate.isAfter(today.plusDays(advanceReservationDays))) {
+            throw new IllegalArgumentException("Travel date must be between today and " + advanceReservationDays
+                    + " days ahead");
+        }
+        Departure departure = departureFrom(train.getTrainNumber(), bookingRequest.getSourceStationCode(),
+                travelDate);
+        if (departure == null) {
+            throw new IllegalArgumentException("Train " + train.getTrainNumber() + " does not leave "
+                    + bookingRequest.getSourceStationCode() + " on " + travelDate);
+        }
+        if (!departure.at().isAfter(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Train " + train.getTrainNumber() + " has already left "
+                    + bookingRequest.getSourceStationCode());
+        }
+        // Seats are sold per run, which left its first station a day or more earlier for stations after midnight
+        bookingRequest.setRunDate(departure.runDate());
+        bookingRequest.setTrainId(train.getId());
+        bookingRequest.setTrain(TrainSnapshot.of(train, bookingRequest.getSourceStationCode(),
+                bookingRequest.getDestinationStationCode()));
+
+        // Always priced here; a fare sent by the client is never trusted
+        bookingRequest.setTotalFare(fareEngine.quote(train.getTrainNumber(), bookingRequest.getClassType(),
+                bookingRequest.getSourceStationCode(), bookingRequest.getDestinationStationCode(),
+                bookingRequest.getTravelDate(), bookingRequest.getQuota(), bookingRequest.getPassengers())
+                .orElseThrow(() -> new IllegalArgumentException("No fare for class " + bookingRequest.getClassType()
+                        + " between " + bookingRequest.getSourceStationCode() + " and "
+                        + bookingRequest.getDestinationStationCode())));
+
+        // Taken before any seat is held, so a failed PNR lease cannot leave seats behind
+        String pnrNumber = pnrGenerator.next();
+        List<SeatAllocation> allocations = seatInventoryService.withInventoryLock(train, bookingRequest.getRunDate(),
+                bookingRequest.getClassType(), () -> holdSeats(train, bookingRequest));
+        boolean allConfirmed = allocations.stream()
+                .allMatch(allocation -> allocation.getAllocationStatus() == BookingStatus.CONFIRMED);
+
+        bookingRequest.setStatus(allConfirmed ? BookingStatus.CONFIRMED : BookingStatus.WAITLISTED);
+        bookingRequest.setPnrNumber(pnrNumber);
+        bookingRequest.setBookedAt(LocalDateTime.now());
+        bookingRequest.setUpdatedAt(LocalDateTime.now());
+
+        Booking savedBooking;
+        try {
+            savedBooking = bookingWriter.save(bookingRequest);
+        } catch (RuntimeException e) {
+            // Give the seats and waitlist places back if the booking never made it to the database
+            seatInventoryService.release(bookingRequest);
+            availabilityService.recordCancellation(bookingRequest);
+            throw e;
+        }
+
+        waitlistPromotionService.enqueue(savedBooking);
+        return savedBooking;
+    }
+
+    /**
+     * Cancel a booking and give its seats to waiting passengers first
+     */
+    public Booking cancelBooking(Booking booking) {
+        LocalDateTime now = LocalDateTime.now();
+        // Charged on the allocations held before the seats are released
+        RefundEngine.Refund refund = refundEngine.calculate(booking, now);
+        if (booking.getStatus() == BookingStatus.CHART_PREPARED) {
+            // Passengers dropped at chart preparation were charged then; an unpaid refund of theirs is paid with this one
+            double pending = booking.getRefundedAt() == null ? booking.getRefundAmount() : 0;
+            booking.setCancellationCharges(booking.getCancellationCharges() + refund.cancellationCharges());
+            booking.setRefundAmount(pending + refund.refundAmount());
+            booking.setRefundedAt(null);
+        } else {
+            booking.setCancellationCharges(refund.cancellationCharges());
+            booking.setRefundAmount(refund.refundAmount());
+        }
+        booking.setStatus(BookingStatus.CANCELLED);
+        booking.setCancelledAt(now);
+        booking.setUpdatedAt(now);
+
+        Booking cancelledBooking = bookingRepository.save(booking);
+
+        // The cancellation is saved; failing to release its seats must not turn it into an error for the caller
+        try {
+            availabilityService.recordCancellation(cancelledBooking);
+            List<Booking> promoted = waitlistPromotionService.releaseAndPromote(cancelledBooking);
+            logger.info("Released seats of cancelled booking {}, promoting {} waiting bookings",
+                    cancelledBooking.getPnrNumber(), promoted.size());
+        } catch (RuntimeException e) {
+            logger.error("Cancelled booking {} but could not release its seats: {}",
+                    cancelledBooking.getPnrNumber(), e.getMessage(), e);
+        }
+        return cancelledBooking;
+    }
+
+    /**
+     * Seat the passengers and count the booking in the run's availability; called with the run's inventory locked
+     * Passengers without a seat join the waiting list, and the booking is refused when there is no room on it for them
+     */
+    private List<SeatAllocation> holdSeats(Train train, Booking booking) {
+        List<SeatAllocation> allocations = seatInventoryService.allocate(train, booking.getRunDate(),
+                booking.getClassType(), booking.getSourceStationCode(), booking.getDestinationStationCode(),
+                booking.getPassengers());
+        booking.setSeatAllocations(allocations);
+
+        int waiting = (int) allocations.stream()
+                .filter(allocation -> allocation.getAllocationStatus() != BookingStatus.CONFIRMED)
+                .count();
+        if (waiting > 0 && !availabilityService.hasWaitlistRoom(train.getTrainNumber(), booking.getRunDate(),
+                booking.getClassType(), booking.getQuota(), waiting)) {
+            // The seats held for the rest of the group go back
+            seatInventoryService.release(booking);
+            throw new IllegalArgumentException("Waiting list for class " + booking.getClassType()
+                    + " on train " + train.getTrainNumber() + " is full");
+        }
+        availabilityService.recordBooking(booking);
+        return allocations;
+    }
+
+    /**
+     * The run leaving the boarding station on the travel date and when it leaves, or null if the train does not call
+     * there or no run of it leaves the station that day
+     */
+    private Departure departureFrom(String trainNumber, String boardingStationCode, LocalDate travelDate) {
+        CompiledTimetable timetable = trainSearchIndex.getTimetable();
+        int train = timetable.trainId(trainNumber);
+        int stop = train >= 0 ? timetable.findStop(train, timetable.stationId(boardingStationCode)) : -1;
+        if (stop < 0 || timetable.departure(stop) < 0) {
+            return null;
+        }
+        long sourceDay = timetable.sourceDay(stop, travelDate);
+        if (!timetable.calendar(train).runsOn(sourceDay)) {
+            return null;
+        }
+        LocalDate runDate = LocalDate.ofEpochDay(sourceDay);
+        return new Departure(runDate, runDate.atStartOfDay().plusMinutes(timetable.departure(stop)));
+    }
+
+    /**
+     * A run of a train, by the date it left its first station, and when it leaves the boarding station
+     */
+    private record Departure(LocalDate runDate, LocalDateTime at) {
+    }
+}
@@ -0,0 +1,234 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.nextgenrail.api.model.Booking;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group-commit writer for new bookings
+ *
+ * While a bulk insert for a (train, travel date) is in flight, further
+ * bookings for that run queue up and go out together in the next bulk
+ * insert once it returns. An idle run therefore writes a booking straight
+ * away, and under load one round trip carries many bookings. Every caller
+ * gets its own future, which fails only if that booking's insert failed.
+ */
+@Service
+public class BookingWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingWriter.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final int maxBatchSize;
+    private final ExecutorService flusher;
+    private final Map<RunKey, Lane> lanes = new ConcurrentHashMap<>();
+
+    private record RunKey(String trainNumber, LocalDate travelDate) {
+    }
+
+    private record Pending(Booking booking, CompletableFuture<Booking> result) {
+    }
+
+    public BookingWriter(
+            @Value("${app.booking.group-commit.max-batch-size:200}") int maxBatchSize,
+            @Value("${app.booking.group-commit.threads:4}") int threads) {
+        this.maxBatchSize = maxBatchSize;
+
+        AtomicInteger count = new AtomicInteger();
+        this.flusher = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "booking-writer-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Insert a new booking with the next batch for its train run
+     * The future completes with the saved booking, or with the error from its insert
+     */
+    public CompletableFuture<Booking> insert(Booking booking) {
+        // Ids and versions are normally filled in by save(); bulk inserts leave them to us
+        if (booking.getId() == null) {
+            booking.setId(new ObjectId().toHexString());
+        }
+        if (booking.getVersion() == null) {
+            booking.setVersion(0L);
+        }
+
+        CompletableFuture<Booking> result = new CompletableFuture<>();
+        RunKey key = new RunKey(booking.getTrain() != null ? booking.getTrain().getTrainNumber() : null,
+                booking.getTravelDate());
+        Lane lane = lanes.computeIfAbsent(key, k -> new Lane());
+
+        List<Pending> batch;
+        synchronized (lane) {
+            lane.queue.add(new Pending(booking, result));
+            if (lane.writing) {
+                return result;
+            }
+            lane.writing = true;
+            batch = lane.nextBatch(maxBatchSize);
+        }
+
+        // Nothing in flight for this run: write now on the caller's thread, then hand over any backlog
+        writeAndContinue(key, lane, batch);
+        return result;
+    }
+
+    /**
+     * Insert a new booking and wait for it to be written
+     * Errors are rethrown as they would be from a repository save
+     */
+    public Booking save(Booking booking) {
+        try {
+            return insert(booking).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drop the lanes of journeys that have already departed
+     */
+    @Scheduled(cron = "${app.booking.calendar-refresh-cron:0 0 0 * * *}")
+    public void evictDeparted() {
+        LocalDate today = LocalDate.now();
+        lanes.keySet().removeIf(key -> key.travelDate() != null && key.travelDate().isBefore(today));
+    }
+
+    /**
+     * Write the bookings queued during the last insert, or mark the run idle if there are none
+     */
+    private void continueWriting(RunKey key, Lane lane) {
+        List<Pending> batch;
+        synchronized (lane) {
+            if (lane.queue.isEmpty()) {
+                lane.writing = false;
+                return;
+            }
+            batch = lane.nextBatch(maxBatchSize);
+        }
+
+        try {
+            flusher.execute(() -> writeAndContinue(key, lane, batch));
+        } catch (RejectedExecutionException e) {
+            writeAndContinue(key, lane, batch);
+        }
+    }
+
+    /**
+     * Write a batch, then move the lane on whatever the write threw
+     * A lane left marked as writing would queue its run's bookings forever
+     */
+    private void writeAndContinue(RunKey key, Lane lane, List<Pending> batch) {
+        try {
+            write(batch);
+        } finally {
+            continueWriting(key, lane);
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Booking> bookings = batch.stream().map(Pending::booking).toList();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)
+                    .insert(bookings)
+                    .execute();
+            batch.forEach(pending -> pending.result().complete(pending.booking()));
+        } catch (Error e) {
+            // Callers waiting on the batch must not wait forever
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            throw e;
+        } catch (RuntimeException e) {
+            List<BulkWriteError> writeErrors = writeErrorsOf(e);
+            if (writeErrors == null) {
+                // Nothing is known to be written, so every booking in the batch failed
+                logger.warn("Bulk insert of {} bookings failed: {}", batch.size(), e.getMessage());
+                batch.forEach(pending -> pending.result().completeExceptionally(e));
+                return;
+            }
+
+            // Unordered inserts keep going after an error; only the reported bookings were not written
+            Map<Integer, BulkWriteError> errors = new HashMap<>();
+            for (BulkWriteError error : writeErrors) {
+                errors.put(error.getIndex(), error);
+            }
+            logger.warn("Bulk insert wrote {} of {} bookings", batch.size() - errors.size(), batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Pending pending = batch.get(i);
+                BulkWriteError error = errors.get(i);
+                if (error == null) {
+                    pending.result().complete(pending.booking());
+                } else if (error.getCode() == DUPLICATE_KEY) {
+                    pending.result().completeExceptionally(new DuplicateKeyException(error.getMessage()));
+                } else {
+                    pending.result().completeExceptionally(new DataIntegrityViolationException(error.getMessage()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-document errors of a failed bulk write, or null if the whole write failed
+     */
+    private static List<BulkWriteError> writeErrorsOf(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkOperationException bulkError) {
+                return bulkError.getErrors();
+            }
+            if (cause instanceof MongoBulkWriteException bulkError) {
+                return bulkError.getWriteErrors();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bookings of one train run waiting for the insert in flight; guarded by the lane's monitor
+     */
+    private static final class Lane {
+        final ArrayDeque<Pending> queue = new ArrayDeque<>();
+        boolean writing;
+
+        List<Pending> nextBatch(int maxSize) {
+            List<Pending> batch = new ArrayList<>(Math.min(queue.size(), maxSize));
+            while (!queue.isEmpty() && batch.size() < maxSize) {
+                batch.add(queue.poll());
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.client.MongoCursor;
+import com.nextgenrail.api.model.BookingStatus;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chart preparation for upcoming journeys
+ *
+ * Bookings on the runs leaving on the chart date are streamed from a cursor
+ * sorted by train, including passengers boarding after midnight, so
+ * only the bookings of the trains currently being charted are held in memory.
+ * Each train is charted as one task on a fork-join pool: confirmed and RAC
+ * bookings become CHART_PREPARED with their waitlisted passengers dropped and
+ * refunded less clerkage, and fully waitlisted bookings are cancelled and
+ * refunded less clerkage.
+ * Changes are written with bulk updates that only apply if the booking is
+ * unchanged since it was read, so the job can safely run again for the same
+ * date.
+ */
+@Service
+public class ChartPreparationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChartPreparationService.class);
+
+    private static final String COLLECTION = "bookings";
+    private static final String WAITLIST_CANCELLATION_REASON = "Waitlisted at chart preparation";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private WaitlistPromotionService waitlistPromotionService;
+
+    @Autowired
+    private RefundEngine refundEngine;
+
+    @Value("${app.booking.chart.days-ahead:1}")
+    private int daysAhead;
+
+    @Value("${app.booking.chart.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.booking.chart.bulk-size:1000}")
+    private int bulkSize;
+
+    @Value("${app.catalog.cursor-batch-size:500}")
+    private int cursorBatchSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public record ChartSummary(LocalDate runDate, int trains, int charted, int cancelled, int skipped,
+            long elapsedMillis) {
+    }
+
+    // The fields of a booking needed for charting
+    private record ChartEntry(Object id, long version, String status, double totalFare,
+            List<String> allocationStatuses) {
+    }
+
+    /**
+     * Prepare charts for the configured number of days ahead
+     */
+    @Scheduled(cron = "${app.booking.chart.cron:0 0 20 * * *}")
+    public void prepareUpcomingCharts() {
+        prepareCharts(LocalDate.now().plusDays(daysAhead));
+    }
+
+    /**
+     * Chart every booking on the runs that leave their first station on the given date
+     * Returns null if a chart preparation is already running
+     */
+    public ChartSummary prepareCharts(LocalDate runDate) {
+        if (!running.compareAndSet(false, true)) {
+            logger.warn("Chart preparation already running, skipping {}", runDate);
+            return null;
+        }
+
+        long start = System.nanoTime();
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            Counts counts = new Counts();
+            // At most two trains per worker are read ahead, which bounds the bookings held in memory
+            Semaphore readAhead = new Semaphore(threads * 2);
+            Phaser inFlight = new Phaser(1);
+
+            try (MongoCursor<Document> cursor = openCursor(runDate)) {
+                Object currentTrain = null;
+                String trainNumber = null;
+                List<ChartEntry> partition = new ArrayList<>();
+                while (cursor.hasNext()) {
+                    Document booking = cursor.next();
+                    Object train = booking.get("trainId");
+                    if (!partition.isEmpty() && !Objects.equals(train, currentTrain)) {
+                        submit(pool, readAhead, inFlight, trainNumber, runDate, partition, counts);
+                        partition = new ArrayList<>();
+                    }
+                    currentTrain = train;
+                    trainNumber = trainNumberOf(booking);
+                    partition.add(entryOf(booking));
+                }
+                if (!partition.isEmpty()) {
+                    submit(pool, readAhead, inFlight, trainNumber, runDate, partition, counts);
+                }
+            }
+            inFlight.arriveAndAwaitAdvance();
+
+            ChartSummary summary = new ChartSummary(runDate, counts.trains.get(), counts.charted.get(),
+                    counts.cancelled.get(), counts.skipped.get(), (System.nanoTime() - start) / 1_000_000);
+            logger.info("Charts prepared for {}: {} trains, {} bookings charted, {} cancelled, {} changed meanwhile, {} ms",
+                    runDate, summary.trains(), summary.charted(), summary.cancelled(), summary.skipped(),
+                    summary.elapsedMillis());
+            return summary;
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    private MongoCursor<Document> openCursor(LocalDate runDate) {
+        Date day = Date.from(runDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Document filter = new Document("runDate", day)
+                .append("status", new Document("$in", List.of(BookingStatus.CONFIRMED.name(),
+                        BookingStatus.RAC.name(), BookingStatus.WAITLISTED.name())));
+        Document projection = new Document("trainId", 1)
+                .append("train.trainNumber", 1)
+                .append("version", 1)
+                .append("status", 1)
+                .append("totalFare", 1)
+                .append("seatAllocations.allocationStatus", 1);
+
+        return mongoTemplate.getCollection(COLLECTION)
+                .find(filter)
+                .projection(projection)
+                .sort(new Document("trainId", 1))
+                .batchSize(cursorBatchSize)
+                .iterator();
+    }
+
+    private void submit(ForkJoinPool pool, Semaphore readAhead, Phaser inFlight, String trainNumber,
+            LocalDate runDate, List<ChartEntry> partition, Counts counts) {
+        readAhead.acquireUninterruptibly();
+        inFlight.register();
+        pool.execute(() -> {
+            try {
+                chartTrain(trainNumber, runDate, partition, counts);
+            } catch (RuntimeException e) {
+                logger.error("Chart preparation failed for train {} on {}: {}", trainNumber, runDate,
+                        e.getMessage(), e);
+            } finally {
+                readAhead.release();
+                inFlight.arriveAndDeregister();
+            }
+        });
+    }
+
+    /**
+     * Chart one train's bookings with bulk updates
+     */
+    private void chartTrain(String trainNumber, LocalDate runDate, List<ChartEntry> bookings, Counts counts) {
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = null;
+        int pending = 0;
+        int charted = 0;
+        int cancelled = 0;
+        int matched = 0;
+
+        for (ChartEntry booking : bookings) {
+            if (bulk == null) {
+                bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+            }
+
+            boolean travelling = false;
+            int dropped = 0;
+            // Written only if nobody changed the booking since it was read
+            Query unchanged = new Query(Criteria.where("_id").is(booking.id())
+                    .and("version").is(booking.version())
+                    .and("status").is(booking.status()));
+            Update update = new Update().inc("version", 1).set("updatedAt", now);
+            if (booking.allocationStatuses().isEmpty()) {
+                // Booked before seats were allocated per passenger; the booking's status stands for all of them
+                travelling = isTravelling(booking.status());
+            }
+            for (int i = 0; i < booking.allocationStatuses().size(); i++) {
+                String status = booking.allocationStatuses().get(i);
+                if (BookingStatus.WAITLISTED.name().equals(status)) {
+                    update.set("seatAllocations." + i + ".allocationStatus", BookingStatus.CANCELLED.name());
+                    dropped++;
+                } else if (isTravelling(status)) {
+                    travelling = true;
+                }
+            }
+
+            if (travelling) {
+                update.set("status", BookingStatus.CHART_PREPARED.name());
+                if (dropped > 0) {
+                    // The dropped passengers' share of the fare is refunded less clerkage
+                    double share = booking.totalFare() / booking.allocationStatuses().size();
+                    RefundEngine.Refund refund = refundEngine.chartCancellation(share * dropped, dropped);
+                    update.set("cancellationCharges", refund.cancellationCharges())
+                            .set("refundAmount", refund.refundAmount());
+                }
+                charted++;
+            } else {
+                RefundEngine.Refund refund = refundEngine.chartCancellation(booking.totalFare(),
+                        booking.allocationStatuses().size());
+                update.set("status", BookingStatus.CANCELLED.name())
+                        .set("cancelledAt", now)
+                        .set("cancellationReason", WAITLIST_CANCELLATION_REASON)
+                        .set("cancellationCharges", refund.cancellationCharges())
+                        .set("refundAmount", refund.refundAmount());
+                cancelled++;
+            }
+            bulk.updateOne(unchanged, update);
+
+            if (++pending == bulkSize) {
+                matched += bulk.execute().getMatchedCount();
+                bulk = null;
+                pending = 0;
+            }
+        }
+        if (bulk != null) {
+            matched += bulk.execute().getMatchedCount();
+        }
+
+        if (trainNumber != null) {
+            // Nobody is waiting on a charted train any more
+            availabilityService.recordChartPrepared(trainNumber, runDate);
+            waitlistPromotionService.evictRun(trainNumber, runDate);
+        }
+
+        counts.trains.incrementAndGet();
+        counts.charted.addAndGet(charted);
+        counts.cancelled.addAndGet(cancelled);
+        counts.skipped.addAndGet(bookings.size() - matched);
+    }
+
+    private static boolean isTravelling(String status) {
+        return BookingStatus.CONFIRMED.name().equals(status) || BookingStatus.RAC.name().equals(status);
+    }
+
+    private static String trainNumberOf(Document booking) {
+        Document train = booking.get("train", Document.class);
+        return train != null ? train.getString("trainNumber") : null;
+    }
+
+    private static ChartEntry entryOf(Document booking) {
+        List<String> allocationStatuses = new ArrayList<>();
+        List<Document> allocations = booking.getList("seatAllocations", Document.class);
+        if (allocations != null) {
+            for (Document allocation : allocations) {
+                allocationStatuses.add(allocation.getString("allocationStatus"));
+            }
+        }
+        Number version = booking.get("version", Number.class);
+        Number totalFare = booking.get("totalFare", Number.class);
+        return new ChartEntry(booking.get("_id"), version != null ? version.longValue() : 0L,
+                booking.getString("status"), totalFare != null ? totalFare.doubleValue() : 0,
+                allocationStatuses);
+    }
+
+    private static final class Counts {
+        final AtomicInteger trains = new AtomicInteger();
+        final AtomicInteger charted = new AtomicInteger();
+        final AtomicInteger cancelled = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+    }
+}
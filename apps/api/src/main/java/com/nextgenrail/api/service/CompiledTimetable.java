@@ -0,0 +1,445 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainRoute;
+import com.nextgenrail.api.model.TrainType;
+import com.nextgenrail.api.util.OperatingDays;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * Immutable, primitive-array form of the active timetable
+ *
+ * Stations and classes are interned to int ids. Stops of all trains live in
+ * flat arrays, train t owning the range [routeOffset[t], routeOffset[t + 1]).
+ * Times are minutes after midnight of the day the train leaves its source
+ * station, unrolled past midnight so they only ever increase along a route.
+ */
+public final class CompiledTimetable {
+
+    public static final int MINUTES_PER_DAY = 1440;
+
+    public static final CompiledTimetable EMPTY = compile(List.of(), LocalDate.now(), 0);
+
+    // Stations
+    private final Map<String, Integer> stationIds;
+    private final String[] stationCodes;
+    private final String[] stationNames;
+
+    // Trains
+    private final Map<String, Integer> trainIds;
+    private final String[] trainNumbers;
+    private final String[] trainNames;
+    private final TrainType[] trainTypes;
+    private final RunCalendar[] calendars;
+    private final List<List<String>> trainClasses;
+
+    // Stops, indexed by absolute stop number
+    private final int[] routeOffset;
+    private final int[] stopStation;
+    private final int[] arrival;
+    private final int[] departure;
+    private final int[] distance;
+
+    // Station -> stops calling there, ordered by train
+    private final int[] servingOffset;
+    private final int[] servingTrain;
+    private final int[] servingStop;
+
+    // Classes, indexed by train * classCodes.length + class id
+    private final Map<String, Integer> classIds;
+    private final String[] classCodes;
+    private final int[] coachCount;
+    private final double[] farePerKm;
+
+    private CompiledTimetable(Map<String, Integer> stationIds, String[] stationCodes, String[] stationNames,
+            Map<String, Integer> trainIds, String[] trainNumbers, String[] trainNames, TrainType[] trainTypes,
+            RunCalendar[] calendars, List<List<String>> trainClasses,
+            int[] routeOffset, int[] stopStation, int[] arrival, int[] departure, int[] distance,
+            int[] servingOffset, int[] servingTrain, int[] servingStop,
+            Map<String, Integer> classIds, String[] classCodes, int[] coachCount, double[] farePerKm) {
+        this.stationIds = stationIds;
+        this.stationCodes = stationCodes;
+        this.stationNames = stationNames;
+        this.trainIds = trainIds;
+        this.trainNumbers = trainNumbers;
+        this.trainNames = trainNames;
+        this.trainTypes = trainTypes;
+        this.calendars = calendars;
+        this.trainClasses = trainClasses;
+        this.routeOffset = routeOffset;
+        this.stopStation = stopStation;
+        this.arrival = arrival;
+        this.departure = departure;
+        this.distance = distance;
+        this.servingOffset = servingOffset;
+        this.servingTrain = servingTrain;
+        this.servingStop = servingStop;
+        this.classIds = classIds;
+        this.classCodes = classCodes;
+        this.coachCount = coachCount;
+        this.farePerKm = farePerKm;
+    }
+
+    /**
+     * Compile active trains, anchoring run calendars at the given date
+     */
+    public static CompiledTimetable compile(List<Train> source, LocalDate calendarAnchor, int horizonDays) {
+        Map<String, Integer> stationIds = new HashMap<>();
+        List<String> stationCodes = new ArrayList<>();
+        List<String> stationNames = new ArrayList<>();
+        Map<String, Integer> classIds = new HashMap<>();
+        List<String> classCodes = new ArrayList<>();
+
+        List<Train> trains = new ArrayList<>();
+        List<List<TrainRoute>> routes = new ArrayList<>();
+        Map<String, Integer> trainIds = new HashMap<>();
+        int stopCount = 0;
+
+        for (Train train : source) {
+            List<TrainRoute> ordered = orderedRoutes(train);
+            if (ordered.size() < 2 || train.getTrainNumber() == null
+                    || trainIds.putIfAbsent(train.getTrainNumber(), trains.size()) != null) {
+                continue;
+            }
+            trains.add(train);
+            routes.add(ordered);
+            stopCount += ordered.size();
+
+            if (train.getCoachConfiguration() != null) {
+                for (String classCode : train.getCoachConfiguration().keySet()) {
+                    classIds.computeIfAbsent(classCode, code -> {
+                        classCodes.add(code);
+                        return classCodes.size() - 1;
+                    });
+                }
+            }
+        }
+
+        int trainCount = trains.size();
+        int classCount = classCodes.size();
+        String[] trainNumbers = new String[trainCount];
+        String[] trainNames = new String[trainCount];
+        TrainType[] trainTypes = new TrainType[trainCount];
+        RunCalendar[] calendars = new RunCalendar[trainCount];
+        List<List<String>> trainClasses = new ArrayList<>(trainCount);
+        int[] coachCount = new int[trainCount * classCount];
+        double[] farePerKm = new double[trainCount * classCount];
+        int[] routeOffset = new int[trainCount + 1];
+        int[] stopStation = new int[stopCount];
+        int[] arrival = new int[stopCount];
+        int[] departure = new int[stopCount];
+        int[] distance = new int[stopCount];
+
+        int stop = 0;
+        for (int t = 0; t < trainCount; t++) {
+            Train train = trains.get(t);
+            trainNumbers[t] = train.getTrainNumber();
+            trainNames[t] = train.getTrainName();
+            trainTypes[t] = train.getTrainType();
+            calendars[t] = new RunCalendar(OperatingDays.toMask(train.getOperationalDays()),
+                    calendarAnchor, horizonDays);
+
+            List<String> offered = new ArrayList<>();
+            if (train.getCoachConfiguration() != null) {
+                int base = t * classCount;
+                train.getCoachConfiguration().forEach((classCode, coaches) -> {
+                    int slot = base + classIds.get(classCode);
+                    coachCount[slot] = coaches != null ? coaches : 0;
+                    Double fare = train.getBaseFarePerKm() != null ? train.getBaseFarePerKm().get(classCode) : null;
+                    farePerKm[slot] = fare != null ? fare : 0.0;
+                    if (coachCount[slot] > 0) {
+                        offered.add(classCode);
+                    }
+                });
+                // Premium classes first
+                offered.sort(Comparator.comparingDouble((String classCode) ->
+                        farePerKm[base + classIds.get(classCode)]).reversed());
+            }
+            trainClasses.add(List.copyOf(offered));
+
+            routeOffset[t] = stop;
+            List<TrainRoute> ordered = routes.get(t);
+            int dayBase = 0;
+            int previous = 0;
+
+            for (int i = 0; i < ordered.size(); i++) {
+                TrainRoute route = ordered.get(i);
+                int station = stationIds.computeIfAbsent(route.getStationCode(), code -> {
+                    stationCodes.add(code);
+                    stationNames.add(route.getStationName());
+                    return stationCodes.size() - 1;
+                });
+                stopStation[stop] = station;
+                distance[stop] = route.getDistanceFromSource();
+
+                // Clock times wrap at midnight; unroll them into a monotonic timeline
+                LocalTime arrivalClock = route.getArrivalTime() != null ? route.getArrivalTime()
+                        : route.getDepartureTime();
+                int arrivalTime = arrivalClock != null ? dayBase + minuteOfDay(arrivalClock) : previous;
+                while (arrivalTime < previous) {
+                    arrivalTime += MINUTES_PER_DAY;
+                    dayBase += MINUTES_PER_DAY;
+                }
+                arrival[stop] = arrivalTime;
+                previous = arrivalTime;
+
+                if (i < ordered.size() - 1 && route.getDepartureTime() != null) {
+                    int departureTime = dayBase + minuteOfDay(route.getDepartureTime());
+                    while (departureTime < previous) {
+                        departureTime += MINUTES_PER_DAY;
+                        dayBase += MINUTES_PER_DAY;
+                    }
+                    departure[stop] = departureTime;
+                    previous = departureTime;
+                } else {
+                    departure[stop] = -1;
+                }
+                stop++;
+            }
+        }
+        routeOffset[trainCount] = stop;
+
+        // Invert stops into station -> (train, stop) lists; filling in train order keeps each list sorted
+        int stationCount = stationCodes.size();
+        int[] servingOffset = new int[stationCount + 1];
+        for (int s = 0; s < stopCount; s++) {
+            servingOffset[stopStation[s] + 1]++;
+        }
+        for (int s = 0; s < stationCount; s++) {
+            servingOffset[s + 1] += servingOffset[s];
+        }
+        int[] fill = Arrays.copyOf(servingOffset, stationCount);
+        int[] servingTrain = new int[stopCount];
+        int[] servingStop = new int[stopCount];
+        for (int t = 0; t < trainCount; t++) {
+            for (int s = routeOffset[t]; s < routeOffset[t + 1]; s++) {
+                int slot = fill[stopStation[s]]++;
+                servingTrain[slot] = t;
+                servingStop[slot] = s;
+            }
+        }
+
+        return new CompiledTimetable(Map.copyOf(stationIds), stationCodes.toArray(new String[0]),
+                stationNames.toArray(new String[0]), Map.copyOf(trainIds), trainNumbers, trainNames, trainTypes,
+                calendars, List.copyOf(trainClasses), routeOffset, stopStation, arrival, departure, distance,
+                servingOffset, servingTrain, servingStop,
+                Map.copyOf(classIds), classCodes.toArray(new String[0]), coachCount, farePerKm);
+    }
+
+    /**
+     * A train calling at fromStop and later at toStop (absolute stop numbers)
+     */
+    public record Segment(int train, int fromStop, int toStop) {
+    }
+
+    /**
+     * Trains calling at the source station before the destination station,
+     * ordered by departure time of day at the source
+     */
+    public List<Segment> trainsBetween(String sourceStationCode, String destinationStationCode) {
+        int from = stationId(sourceStationCode);
+        int to = stationId(destinationStationCode);
+        if (from < 0 || to < 0 || from == to) {
+            return List.of();
+        }
+
+        List<Segment> segments = new ArrayList<>();
+        int i = servingOffset[from];
+        int j = servingOffset[to];
+        int fromEnd = servingOffset[from + 1];
+        int toEnd = servingOffset[to + 1];
+
+        // Both lists are ordered by train, then stop: merge them
+        while (i < fromEnd && j < toEnd) {
+            int train = servingTrain[i];
+            int other = servingTrain[j];
+            if (train < other) {
+                i++;
+            } else if (train > other) {
+                j++;
+            } else {
+                int boardStop = servingStop[i];
+                int alightStop = -1;
+                while (j < toEnd && servingTrain[j] == train) {
+                    if (servingStop[j] > boardStop) {
+                        alightStop = servingStop[j];
+                    }
+                    j++;
+                }
+                while (i < fromEnd && servingTrain[i] == train) {
+                    i++;
+                }
+                if (alightStop >= 0 && departure[boardStop] >= 0) {
+                    segments.add(new Segment(train, boardStop, alightStop));
+                }
+            }
+        }
+
+        segments.sort(Comparator.comparingInt(segment -> departure[segment.fromStop()] % MINUTES_PER_DAY));
+        return segments;
+    }
+
+    /**
+     * Whether the train reaches the segment's source station on the given date
+     */
+    public boolean runsOn(Segment segment, LocalDate boardingDate) {
+        return calendars[segment.train()].runsOn(sourceDay(segment, boardingDate));
+    }
+
+    /**
+     * Epoch day on which the train left its source station, given the date it leaves the segment's source
+     */
+    public long sourceDay(Segment segment, LocalDate boardingDate) {
+        return sourceDay(segment.fromStop(), boardingDate);
+    }
+
+    /**
+     * Epoch day on which the train left its source station, given the date it leaves the stop
+     */
+    public long sourceDay(int stop, LocalDate boardingDate) {
+        return boardingDate.toEpochDay() - departure[stop] / MINUTES_PER_DAY;
+    }
+
+    // Stations
+    public int stationCount() {
+        return stationCodes.length;
+    }
+
+    public int stationId(String stationCode) {
+        Integer id = stationCode != null ? stationIds.get(stationCode) : null;
+        return id != null ? id : -1;
+    }
+
+    public String stationCode(int station) {
+        return stationCodes[station];
+    }
+
+    public String stationName(int station) {
+        return stationNames[station];
+    }
+
+    public int servingStart(int station) {
+        return servingOffset[station];
+    }
+
+    public int servingEnd(int station) {
+        return servingOffset[station + 1];
+    }
+
+    public int servingTrain(int slot) {
+        return servingTrain[slot];
+    }
+
+    public int servingStop(int slot) {
+        return servingStop[slot];
+    }
+
+    // Trains
+    public int trainCount() {
+        return trainNumbers.length;
+    }
+
+    public int trainId(String trainNumber) {
+        Integer id = trainNumber != null ? trainIds.get(trainNumber) : null;
+        return id != null ? id : -1;
+    }
+
+    public String trainNumber(int train) {
+        return trainNumbers[train];
+    }
+
+    public String trainName(int train) {
+        return trainNames[train];
+    }
+
+    public TrainType trainType(int train) {
+        return trainTypes[train];
+    }
+
+    /**
+     * Classes with at least one coach, premium first
+     */
+    public List<String> classesOffered(int train) {
+        return trainClasses.get(train);
+    }
+
+    public RunCalendar calendar(int train) {
+        return calendars[train];
+    }
+
+    public int firstStop(int train) {
+        return routeOffset[train];
+    }
+
+    public int endStop(int train) {
+        return routeOffset[train + 1];
+    }
+
+    /**
+     * Stop number of a station within a train's route, or -1 if it does not call there
+     */
+    public int findStop(int train, int station) {
+        for (int stop = routeOffset[train]; stop < routeOffset[train + 1]; stop++) {
+            if (stopStation[stop] == station) {
+                return stop;
+            }
+        }
+        return -1;
+    }
+
+    // Stops
+    public int stopStation(int stop) {
+        return stopStation[stop];
+    }
+
+    public int arrival(int stop) {
+        return arrival[stop];
+    }
+
+    public int departure(int stop) {
+        return departure[stop];
+    }
+
+    public int distance(int stop) {
+        return distance[stop];
+    }
+
+    // Classes
+    public int classCount() {
+        return classCodes.length;
+    }
+
+    public int classId(String classCode) {
+        Integer id = classCode != null ? classIds.get(classCode) : null;
+        return id != null ? id : -1;
+    }
+
+    public String classCode(int classId) {
+        return classCodes[classId];
+    }
+
+    public int coachCount(int train, int classId) {
+        return coachCount[train * classCodes.length + classId];
+    }
+
+    public double farePerKm(int train, int classId) {
+        return farePerKm[train * classCodes.length + classId];
+    }
+
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static List<TrainRoute> orderedRoutes(Train train) {
+        if (train.getRoutes() == null) {
+            return List.of();
+        }
+        List<TrainRoute> routes = new ArrayList<>(train.getRoutes());
+        routes.removeIf(route -> route == null || route.getStationCode() == null);
+        routes.sort(Comparator.comparingInt(TrainRoute::getStopNumber));
+        return routes;
+    }
+}
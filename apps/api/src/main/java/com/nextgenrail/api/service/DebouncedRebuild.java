@@ -0,0 +1,58 @@
+package com.nextgenrail.api.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuilds an in-memory index on a background thread, coalescing bursts of changes
+ *
+ * The first change after a rebuild schedules the next one after a short
+ * delay; changes arriving before it starts are folded into it. Changes made
+ * while a rebuild runs schedule one more, so the index always ends up
+ * reflecting the last write. Rebuilds run one at a time on a single thread.
+ */
+public final class DebouncedRebuild {
+
+    private static final Logger logger = LoggerFactory.getLogger(DebouncedRebuild.class);
+
+    private final String name;
+    private final Runnable rebuild;
+    private final long delayMillis;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    public DebouncedRebuild(String name, long delayMillis, Runnable rebuild) {
+        this.name = name;
+        this.rebuild = rebuild;
+        this.delayMillis = delayMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, name + "-rebuild");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Ask for a rebuild; returns at once
+     */
+    public void request() {
+        if (pending.compareAndSet(false, true)) {
+            executor.schedule(this::run, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run() {
+        // Cleared first, so a change made during the rebuild asks for another one
+        pending.set(false);
+        try {
+            rebuild.run();
+        } catch (RuntimeException e) {
+            logger.error("Rebuild of {} failed: {}", name, e.getMessage(), e);
+        }
+    }
+}
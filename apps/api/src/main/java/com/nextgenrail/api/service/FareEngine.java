@@ -0,0 +1,191 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.dto.FareQuote;
+import com.nextgenrail.api.dto.FareQuoteRequest;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.QuotaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Fares by distance, class, quota and passenger
+ *
+ * Quotes are answered from fare tables compiled from the current timetable.
+ * The tables are recompiled the first time they are used after the timetable
+ * has been rebuilt, and swapped in whole, so a quote never mixes two versions.
+ */
+@Service
+public class FareEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(FareEngine.class);
+
+    private static final CompiledTimetable.Segment NOT_OFFERED = new CompiledTimetable.Segment(-1, -1, -1);
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Autowired
+    private FlexiFarePricing flexiFarePricing;
+
+    private final int[] concessionPercent;
+    private final int gstPercent;
+
+    // Replaced wholesale when the timetable changes
+    private volatile FareTable table;
+
+    public FareEngine(
+            @Value("${app.fares.child-concession-percent:50}") int childConcession,
+            @Value("${app.fares.senior-male-concession-percent:40}") int seniorMaleConcession,
+            @Value("${app.fares.senior-female-concession-percent:50}") int seniorFemaleConcession,
+            @Value("${app.fares.gst-percent:5}") int gstPercent) {
+        this.concessionPercent = new int[FareTable.CATEGORIES];
+        this.concessionPercent[FareTable.CHILD] = childConcession;
+        this.concessionPercent[FareTable.SENIOR_MALE] = seniorMaleConcession;
+        this.concessionPercent[FareTable.SENIOR_FEMALE] = seniorFemaleConcession;
+        this.concessionPercent[FareTable.INFANT] = 100;
+        this.gstPercent = gstPercent;
+    }
+
+    /**
+     * Fare tables of the current timetable; callers should read them once per operation
+     */
+    public FareTable getTable() {
+        CompiledTimetable timetable = trainSearchIndex.getTimetable();
+        FareTable current = table;
+        return current != null && current.timetable() == timetable ? current : compile(timetable);
+    }
+
+    /**
+     * Total fare of the passengers between two stations on a date, or empty if the train does not offer the journey
+     */
+    public OptionalInt quote(String trainNumber, String classCode, String sourceStationCode,
+            String destinationStationCode, LocalDate travelDate, QuotaType quota, List<Passenger> passengers) {
+        FareTable fares = getTable();
+        CompiledTimetable timetable = fares.timetable();
+        CompiledTimetable.Segment segment = locate(timetable, trainNumber, sourceStationCode, destinationStationCode);
+        int classId = timetable.classId(classCode);
+        if (segment == NOT_OFFERED || !fares.hasFares(segment.train(), classId)) {
+            return OptionalInt.empty();
+        }
+
+        int[] mix = new int[FareTable.CATEGORIES];
+        for (Passenger passenger : passengers) {
+            mix[categoryOf(passenger)]++;
+        }
+        int surcharge = flexiFarePricing.surchargePercent(timetable, segment.train(), classId,
+                runDateOf(timetable, segment, travelDate));
+        return OptionalInt.of(total(fares, segment, classId, quota == QuotaType.TATKAL, surcharge, mix));
+    }
+
+    /**
+     * Quote a batch of fares, in request order, against one version of the fare tables
+     * Each (train, from, to) is located on the route once, however many classes are quoted for it
+     */
+    public List<FareQuote> quoteAll(List<FareQuoteRequest> requests) {
+        FareTable fares = getTable();
+        CompiledTimetable timetable = fares.timetable();
+        Map<String, CompiledTimetable.Segment> segments = new HashMap<>();
+        List<FareQuote> quotes = new ArrayList<>(requests.size());
+
+        for (FareQuoteRequest request : requests) {
+            CompiledTimetable.Segment segment = segments.computeIfAbsent(
+                    request.getTrainNumber() + ':' + request.getFromStationCode() + ':' + request.getToStationCode(),
+                    key -> locate(timetable, request.getTrainNumber(), request.getFromStationCode(),
+                            request.getToStationCode()));
+            int classId = timetable.classId(request.getClassCode());
+            if (segment == NOT_OFFERED || !fares.hasFares(segment.train(), classId)) {
+                quotes.add(new FareQuote(request, null, null, null, "Class not offered on this journey"));
+                continue;
+            }
+
+            int[] mix = {request.getAdults(), request.getChildren(), request.getSeniorMen(),
+                    request.getSeniorWomen(), request.getInfants()};
+            if (request.getAdults() + request.getChildren() + request.getSeniorMen() + request.getSeniorWomen()
+                    + request.getInfants() == 0) {
+                mix[FareTable.ADULT] = 1;
+            }
+            boolean tatkal = request.getQuota() == QuotaType.TATKAL;
+            int surcharge = flexiFarePricing.surchargePercent(timetable, segment.train(), classId,
+                    runDateOf(timetable, segment, request.getTravelDate()));
+            quotes.add(new FareQuote(request, total(fares, segment, classId, tatkal, surcharge, mix),
+                    fares.fare(segment.train(), classId, segment.fromStop(), segment.toStop(), FareTable.ADULT, tatkal,
+                            surcharge),
+                    surcharge, null));
+        }
+        return quotes;
+    }
+
+    /**
+     * Fare category of a passenger, from the age and gender
+     */
+    public static int categoryOf(Passenger passenger) {
+        if (passenger.isInfant()) {
+            return FareTable.INFANT;
+        }
+        if (passenger.isChild()) {
+            return FareTable.CHILD;
+        }
+        if (passenger.isSeniorCitizen()) {
+            return Passenger.isFemale(passenger.getGender()) ? FareTable.SENIOR_FEMALE : FareTable.SENIOR_MALE;
+        }
+        return FareTable.ADULT;
+    }
+
+    private static int total(FareTable fares, CompiledTimetable.Segment segment, int classId, boolean tatkal,
+            int surchargePercent, int[] mix) {
+        int total = 0;
+        for (int category = 0; category < FareTable.CATEGORIES; category++) {
+            if (mix[category] > 0) {
+                total += mix[category] * fares.fare(segment.train(), classId, segment.fromStop(), segment.toStop(),
+                        category, tatkal, surchargePercent);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Stops of a journey on the train, or NOT_OFFERED if the train does not run from one station to the other
+     */
+    private static CompiledTimetable.Segment locate(CompiledTimetable timetable, String trainNumber,
+            String sourceStationCode, String destinationStationCode) {
+        int train = timetable.trainId(trainNumber);
+        if (train < 0) {
+            return NOT_OFFERED;
+        }
+        int fromStop = timetable.findStop(train, timetable.stationId(sourceStationCode));
+        int toStop = timetable.findStop(train, timetable.stationId(destinationStationCode));
+        return fromStop >= 0 && toStop > fromStop ? new CompiledTimetable.Segment(train, fromStop, toStop) : NOT_OFFERED;
+    }
+
+    /**
+     * Date the journey's run left its first station, which flexi fares are counted on; null without a travel date
+     */
+    private static LocalDate runDateOf(CompiledTimetable timetable, CompiledTimetable.Segment segment,
+            LocalDate travelDate) {
+        return travelDate != null ? LocalDate.ofEpochDay(timetable.sourceDay(segment, travelDate)) : null;
+    }
+
+    private synchronized FareTable compile(CompiledTimetable timetable) {
+        FareTable current = table;
+        if (current != null && current.timetable() == timetable) {
+            return current;
+        }
+
+        long start = System.nanoTime();
+        FareTable compiled = FareTable.compile(timetable, concessionPercent, gstPercent);
+        table = compiled;
+        logger.info("Fare tables compiled for {} trains in {} ms", timetable.trainCount(),
+                (System.nanoTime() - start) / 1_000_000);
+        return compiled;
+    }
+}
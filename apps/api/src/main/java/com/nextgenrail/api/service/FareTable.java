@@ -0,0 +1,214 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.TrainType;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable fare tables compiled from a timetable
+ *
+ * Every class a train offers gets a table of base fares for each pair of its
+ * stops, stored in one flat array: the pair (i, j) of a route with n stops
+ * sits at offset + i * (2n - i - 1) / 2 + (j - i - 1). Fixed charges are kept
+ * per (train, class), so a passenger's fare is a base fare lookup, a charge
+ * lookup and a few integer operations. Fares are in whole rupees.
+ */
+public final class FareTable {
+
+    // Fare categories of a passenger
+    public static final int ADULT = 0;
+    public static final int CHILD = 1;
+    public static final int SENIOR_MALE = 2;
+    public static final int SENIOR_FEMALE = 3;
+    public static final int INFANT = 4;
+    public static final int CATEGORIES = 5;
+
+    // Trains that add the superfast charge
+    private static final Set<TrainType> SUPERFAST = EnumSet.of(TrainType.SUPERFAST, TrainType.RAJDHANI,
+            TrainType.SHATABDI, TrainType.VANDE_BHARAT, TrainType.DURONTO, TrainType.GARIB_RATH);
+
+    // Telescopic fares: each distance slab is charged at a lower share of the per-km rate
+    private static final int[] SLAB_END_KM = {500, 1000, 2500, Integer.MAX_VALUE};
+    private static final int[] SLAB_PERCENT = {100, 80, 65, 50};
+
+    /**
+     * Charges of a travel class: minimum chargeable distance, reservation and superfast charges,
+     * Tatkal charge as a share of the base fare within a floor and cap, and whether GST applies
+     */
+    private record ClassCharges(int minKm, int reservation, int superfast, int tatkalPercent, int tatkalMin,
+            int tatkalMax, boolean ac) {
+    }
+
+    private static final ClassCharges NO_CHARGES = new ClassCharges(0, 0, 0, 30, 0, 0, false);
+
+    private static final Map<String, ClassCharges> CLASS_CHARGES = Map.of(
+            "AC1A", new ClassCharges(300, 60, 75, 30, 400, 500, true),
+            "AC2A", new ClassCharges(300, 50, 45, 30, 400, 500, true),
+            "AC3A", new ClassCharges(300, 40, 45, 30, 300, 400, true),
+            "SL", new ClassCharges(200, 20, 30, 30, 100, 200, false),
+            "CC", new ClassCharges(150, 40, 45, 30, 125, 225, true),
+            "EC", new ClassCharges(150, 60, 75, 30, 400, 500, true),
+            "2S", new ClassCharges(50, 15, 15, 10, 10, 15, false));
+
+    private final CompiledTimetable timetable;
+
+    // Indexed by train * classCount + class id; -1 where the train does not offer the class
+    private final int[] tableOffset;
+    private final int[] fixedCharge;
+
+    // Indexed by class id
+    private final int[] tatkalPercent;
+    private final int[] tatkalMin;
+    private final int[] tatkalMax;
+    private final boolean[] ac;
+
+    private final int[] baseFare;
+    private final int[] concessionPercent; // Share of the base fare paid, by category
+    private final int gstPercent;
+
+    private FareTable(CompiledTimetable timetable, int[] tableOffset, int[] fixedCharge, int[] tatkalPercent,
+            int[] tatkalMin, int[] tatkalMax, boolean[] ac, int[] baseFare, int[] concessionPercent, int gstPercent) {
+        this.timetable = timetable;
+        this.tableOffset = tableOffset;
+        this.fixedCharge = fixedCharge;
+        this.tatkalPercent = tatkalPercent;
+        this.tatkalMin = tatkalMin;
+        this.tatkalMax = tatkalMax;
+        this.ac = ac;
+        this.baseFare = baseFare;
+        this.concessionPercent = concessionPercent;
+        this.gstPercent = gstPercent;
+    }
+
+    /**
+     * Compile fare tables for every class offered by the timetable's trains
+     * concessionPercent is the share of the base fare taken off for each category
+     */
+    public static FareTable compile(CompiledTimetable timetable, int[] concessionPercent, int gstPercent) {
+        int trainCount = timetable.trainCount();
+        int classCount = timetable.classCount();
+
+        int[] tatkalPercent = new int[classCount];
+        int[] tatkalMin = new int[classCount];
+        int[] tatkalMax = new int[classCount];
+        boolean[] ac = new boolean[classCount];
+        int[] minKm = new int[classCount];
+        int[] reservation = new int[classCount];
+        int[] superfast = new int[classCount];
+        for (int c = 0; c < classCount; c++) {
+            ClassCharges charges = CLASS_CHARGES.getOrDefault(timetable.classCode(c), NO_CHARGES);
+            tatkalPercent[c] = charges.tatkalPercent();
+            tatkalMin[c] = charges.tatkalMin();
+            tatkalMax[c] = charges.tatkalMax();
+            ac[c] = charges.ac();
+            minKm[c] = charges.minKm();
+            reservation[c] = charges.reservation();
+            superfast[c] = charges.superfast();
+        }
+
+        // Lay out one table per offered class
+        int[] tableOffset = new int[trainCount * classCount];
+        int[] fixedCharge = new int[trainCount * classCount];
+        Arrays.fill(tableOffset, -1);
+        int size = 0;
+        for (int t = 0; t < trainCount; t++) {
+            int stops = timetable.endStop(t) - timetable.firstStop(t);
+            for (String classCode : timetable.classesOffered(t)) {
+                int c = timetable.classId(classCode);
+                tableOffset[t * classCount + c] = size;
+                fixedCharge[t * classCount + c] = reservation[c]
+                        + (SUPERFAST.contains(timetable.trainType(t)) ? superfast[c] : 0);
+                size += stops * (stops - 1) / 2;
+            }
+        }
+
+        int[] baseFare = new int[size];
+        for (int t = 0; t < trainCount; t++) {
+            int first = timetable.firstStop(t);
+            int end = timetable.endStop(t);
+            for (String classCode : timetable.classesOffered(t)) {
+                int c = timetable.classId(classCode);
+                double rate = timetable.farePerKm(t, c);
+                int slot = tableOffset[t * classCount + c];
+                for (int i = first; i < end; i++) {
+                    for (int j = i + 1; j < end; j++) {
+                        int km = Math.max(timetable.distance(j) - timetable.distance(i), minKm[c]);
+                        baseFare[slot++] = (int) Math.ceil(telescopicKm(km) * rate);
+                    }
+                }
+            }
+        }
+
+        int[] paidPercent = new int[CATEGORIES];
+        for (int category = 0; category < CATEGORIES; category++) {
+            paidPercent[category] = 100 - concessionPercent[category];
+        }
+        return new FareTable(timetable, tableOffset, fixedCharge, tatkalPercent, tatkalMin, tatkalMax, ac, baseFare,
+                paidPercent, gstPercent);
+    }
+
+    /**
+     * Timetable the tables were compiled from; stop and class ids refer to it
+     */
+    public CompiledTimetable timetable() {
+        return timetable;
+    }
+
+    /**
+     * Whether the train offers the class, so it has fares
+     */
+    public boolean hasFares(int train, int classId) {
+        return classId >= 0 && tableOffset[train * timetable.classCount() + classId] >= 0;
+    }
+
+    /**
+     * Fare of one passenger between two stops of the train (absolute stop numbers, fromStop first)
+     * surchargePercent raises the base fare, as flexi fares do. Tatkal fares carry the Tatkal charge and no
+     * concession. Call only for classes with fares
+     */
+    public int fare(int train, int classId, int fromStop, int toStop, int category, boolean tatkal,
+            int surchargePercent) {
+        if (category == INFANT) {
+            return 0;
+        }
+
+        int slot = train * timetable.classCount() + classId;
+        int first = timetable.firstStop(train);
+        int stops = timetable.endStop(train) - first;
+        int i = fromStop - first;
+        int base = baseFare[tableOffset[slot] + i * (2 * stops - i - 1) / 2 + (toStop - fromStop - 1)];
+        if (surchargePercent > 0) {
+            base += (base * surchargePercent + 99) / 100;
+        }
+
+        int fare;
+        if (tatkal) {
+            int charge = Math.min(Math.max(base * tatkalPercent[classId] / 100, tatkalMin[classId]),
+                    tatkalMax[classId]);
+            fare = base + fixedCharge[slot] + charge;
+        } else {
+            fare = (base * concessionPercent[category] + 99) / 100 + fixedCharge[slot];
+        }
+        if (ac[classId]) {
+            fare += (fare * gstPercent + 99) / 100;
+        }
+        // Fares are rounded up to the next multiple of five rupees
+        return (fare + 4) / 5 * 5;
+    }
+
+    /**
+     * Distance charged at the full rate for a journey of the given length
+     */
+    private static double telescopicKm(int km) {
+        double charged = 0;
+        int slabStart = 0;
+        for (int slab = 0; slab < SLAB_END_KM.length && km > slabStart; slab++) {
+            charged += (Math.min(km, SLAB_END_KM[slab]) - slabStart) * SLAB_PERCENT[slab] / 100.0;
+            slabStart = SLAB_END_KM[slab];
+        }
+        return charged;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.CoachLayout;
+import com.nextgenrail.api.model.TrainType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Flexi fares for premium trains
+ *
+ * The base fare of a class on a premium train run rises by a fixed step each
+ * time another share of its seats is sold, up to a cap. Occupancy is read from
+ * the striped availability counters, so pricing never takes a lock or goes to
+ * the database. As the counters only grow while seats are being sold, quotes
+ * for a run never go down until seats are given back.
+ */
+@Service
+public class FlexiFarePricing {
+
+    private static final Set<TrainType> FLEXI_TRAINS = EnumSet.of(TrainType.RAJDHANI, TrainType.SHATABDI,
+            TrainType.VANDE_BHARAT);
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    private final int occupancyStepPercent;
+    private final int surchargeStepPercent;
+    private final int maxSurchargePercent;
+
+    public FlexiFarePricing(
+            @Value("${app.fares.flexi.occupancy-step-percent:10}") int occupancyStepPercent,
+            @Value("${app.fares.flexi.surcharge-step-percent:10}") int surchargeStepPercent,
+            @Value("${app.fares.flexi.max-surcharge-percent:50}") int maxSurchargePercent) {
+        this.occupancyStepPercent = occupancyStepPercent;
+        this.surchargeStepPercent = surchargeStepPercent;
+        this.maxSurchargePercent = maxSurchargePercent;
+    }
+
+    /**
+     * Surcharge on the base fare of a class on the train's run leaving its first station on the run date, in percent;
+     * 0 for trains without flexi fares
+     */
+    public int surchargePercent(CompiledTimetable timetable, int train, int classId, LocalDate runDate) {
+        if (runDate == null || !FLEXI_TRAINS.contains(timetable.trainType(train))) {
+            return 0;
+        }
+        CoachLayout layout = CoachLayout.forClass(timetable.classCode(classId));
+        if (layout == null) {
+            return 0;
+        }
+        int seats = timetable.coachCount(train, classId) * layout.getSeatsPerCoach();
+        if (seats <= 0) {
+            return 0;
+        }
+
+        int sold = availabilityService.soldSeats(timetable.trainNumber(train), runDate, layout.getClassCode());
+        return surchargeFor(sold, seats);
+    }
+
+    /**
+     * Surcharge once sold of seats are taken: one step for every full occupancy step, capped
+     */
+    public int surchargeFor(int sold, int seats) {
+        int steps = (int) ((long) Math.max(sold, 0) * 100 / seats) / occupancyStepPercent;
+        return Math.min(steps * surchargeStepPercent, maxSurchargePercent);
+    }
+}
@@ -0,0 +1,172 @@
+package com.nextgenrail.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nextgenrail.api.model.IdempotencyRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Idempotency keys for retried requests
+ *
+ * The first request with a key claims it in Mongo with a single insert, runs,
+ * and stores its response under the key. Retries get that response back
+ * without running again: from a bounded in-memory cache when they reach the
+ * same instance, otherwise from Mongo. A retry that arrives while the first
+ * request is still running is told so instead of waiting. Claims left behind
+ * by a crashed instance can be taken over once their lease has run out.
+ *
+ * Keys belong to the user who sent them: two users picking the same key get
+ * separate records and never see each other's responses.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Duration lease;
+    private final Cache<String, IdempotencyRecord> completed;
+
+    public enum Status {
+        STARTED, // The caller owns the key and must complete or abandon it
+        COMPLETED, // The response is in the record
+        IN_PROGRESS, // Another request with the key is still running
+        MISMATCH // The key was used with a different request body
+    }
+
+    public record Claim(Status status, IdempotencyRecord record) {
+    }
+
+    public IdempotencyService(
+            @Value("${app.idempotency.cache-size:100000}") long cacheSize,
+            @Value("${app.idempotency.cache-ttl-minutes:60}") long cacheTtlMinutes,
+            @Value("${app.idempotency.lease-seconds:30}") long leaseSeconds) {
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofMinutes(cacheTtlMinutes))
+                .build();
+    }
+
+    /**
+     * Claim a user's key for a request, or find out what happened to the user's earlier request with it
+     */
+    public Claim begin(String userId, String idempotencyKey, Object request) {
+        String key = userId + ":" + idempotencyKey;
+        String fingerprint = fingerprint(request);
+
+        IdempotencyRecord cached = completed.getIfPresent(key);
+        if (cached != null) {
+            return new Claim(fingerprint.equals(cached.getFingerprint()) ? Status.COMPLETED : Status.MISMATCH, cached);
+        }
+
+        while (true) {
+            try {
+                return new Claim(Status.STARTED, mongoTemplate.insert(new IdempotencyRecord(key, fingerprint)));
+            } catch (DuplicateKeyException e) {
+                // An earlier request has the key
+            }
+
+            IdempotencyRecord existing = mongoTemplate.findById(key, IdempotencyRecord.class);
+            if (existing == null) {
+                continue; // Abandoned or expired meanwhile; try to claim it again
+            }
+            if (!fingerprint.equals(existing.getFingerprint())) {
+                return new Claim(Status.MISMATCH, existing);
+            }
+            if (existing.isCompleted()) {
+                completed.put(key, existing);
+                return new Claim(Status.COMPLETED, existing);
+            }
+            return new Claim(takeOver(existing) ? Status.STARTED : Status.IN_PROGRESS, existing);
+        }
+    }
+
+    /**
+     * Store the response of a request that claimed its key, for later retries
+     */
+    public void complete(IdempotencyRecord claimed, int httpStatus, Object body) {
+        String key = claimed.getKey();
+        try {
+            claimed.setBody(objectMapper.writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            logger.error("Cannot store response for idempotency key {}: {}", key, e.getMessage());
+            abandon(key);
+            return;
+        }
+        claimed.setHttpStatus(httpStatus);
+        claimed.setState(IdempotencyRecord.COMPLETED);
+        completed.put(key, claimed);
+
+        try {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(key)),
+                    new Update().set("state", IdempotencyRecord.COMPLETED)
+                            .set("httpStatus", httpStatus)
+                            .set("body", claimed.getBody()),
+                    IdempotencyRecord.class);
+        } catch (DataAccessException e) {
+            // Retries on this instance still get the response; others only once the claim's lease runs out
+            logger.warn("Cannot store response for idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Release a claimed key whose request failed, so it can be retried
+     */
+    public void abandon(String key) {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(key)
+                    .and("state").is(IdempotencyRecord.IN_PROGRESS)), IdempotencyRecord.class);
+        } catch (DataAccessException e) {
+            logger.warn("Cannot release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Take over a claim whose lease has run out; only one of several retries succeeds
+     */
+    private boolean takeOver(IdempotencyRecord existing) {
+        LocalDateTime now = LocalDateTime.now();
+        if (existing.getClaimedAt() != null && existing.getClaimedAt().isAfter(now.minus(lease))) {
+            return false;
+        }
+        return mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(existing.getKey())
+                        .and("state").is(IdempotencyRecord.IN_PROGRESS)
+                        .and("claimedAt").is(existing.getClaimedAt())),
+                new Update().set("claimedAt", now),
+                IdempotencyRecord.class).getModifiedCount() == 1;
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(objectMapper.writeValueAsBytes(request)));
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Cannot fingerprint request", e);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.dto.JourneyItinerary;
+import com.nextgenrail.api.dto.JourneyLeg;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Round-based (RAPTOR) journey planner over the active train timetable
+ * Round k finds the earliest arrival at every station using at most k trains,
+ * so the result is the best itinerary for each number of changes
+ */
+@Service
+public class JourneyPlanner {
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int NO_TRIP = Integer.MIN_VALUE;
+    private static final int MINUTES_PER_DAY = CompiledTimetable.MINUTES_PER_DAY;
+
+    // Latest day after the journey date on which a connecting train may leave its source station
+    private static final int MAX_DAYS_AHEAD = 3;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Value("${app.journey.min-connection-minutes:30}")
+    private int minConnectionMinutes;
+
+    @Value("${app.journey.max-changes:2}")
+    private int maxChangesLimit;
+
+    /**
+     * Plan journeys leaving the source station on the journey date at or after the given time
+     * Returns the fastest itinerary for each number of changes that improves on fewer changes
+     */
+    public List<JourneyItinerary> plan(String sourceStationCode, String destinationStationCode,
+            LocalDate journeyDate, LocalTime departAfter, int maxChanges) {
+        CompiledTimetable current = trainSearchIndex.getTimetable();
+
+        int origin = current.stationId(sourceStationCode);
+        int target = current.stationId(destinationStationCode);
+        if (origin < 0 || target < 0 || origin == target) {
+            return List.of();
+        }
+
+        int rounds = Math.max(0, Math.min(maxChanges, maxChangesLimit)) + 1;
+        Labels labels = search(current, origin, target, journeyDate.toEpochDay(),
+                departAfter != null ? departAfter.toSecondOfDay() / 60 : 0, rounds);
+
+        List<JourneyItinerary> itineraries = new ArrayList<>();
+        for (int k = 1; k <= rounds; k++) {
+            if (labels.train[k][target] >= 0) {
+                itineraries.add(reconstruct(current, labels, origin, target, k, journeyDate));
+            }
+        }
+        return itineraries;
+    }
+
+    private Labels search(CompiledTimetable tt, int origin, int target, long epochDay, int departAfter,
+            int rounds) {
+        int stationCount = tt.stationCount();
+        Labels labels = new Labels(rounds, stationCount);
+
+        int[] best = new int[stationCount];
+        Arrays.fill(best, INFINITY);
+        labels.arrival[0][origin] = departAfter;
+        best[origin] = departAfter;
+
+        boolean[] marked = new boolean[stationCount];
+        int[] markedStations = new int[stationCount];
+        int markedCount = 1;
+        markedStations[0] = origin;
+        marked[origin] = true;
+
+        int[] queuedFrom = new int[tt.trainCount()];
+        Arrays.fill(queuedFrom, -1);
+        int[] queue = new int[tt.trainCount()];
+
+        for (int k = 1; k <= rounds && markedCount > 0; k++) {
+            int[] previous = labels.arrival[k - 1];
+            int[] arrival = labels.arrival[k];
+            System.arraycopy(previous, 0, arrival, 0, stationCount);
+
+            // Collect trains serving stations improved in the previous round, from their earliest marked stop
+            int queueSize = 0;
+            for (int m = 0; m < markedCount; m++) {
+                int station = markedStations[m];
+                marked[station] = false;
+                for (int s = tt.servingStart(station); s < tt.servingEnd(station); s++) {
+                    int train = tt.servingTrain(s);
+                    int stop = tt.servingStop(s);
+                    if (queuedFrom[train] < 0) {
+                        queue[queueSize++] = train;
+                        queuedFrom[train] = stop;
+                    } else if (stop < queuedFrom[train]) {
+                        queuedFrom[train] = stop;
+                    }
+                }
+            }
+            markedCount = 0;
+
+            int transferMinutes = k > 1 ? minConnectionMinutes : 0;
+
+            for (int q = 0; q < queueSize; q++) {
+                int train = queue[q];
+                int end = tt.endStop(train);
+                int tripDay = NO_TRIP;
+                int boardedAt = -1;
+
+                for (int i = queuedFrom[train]; i < end; i++) {
+                    int station = tt.stopStation(i);
+
+                    if (tripDay != NO_TRIP && i != boardedAt) {
+                        int arrivalTime = tripDay * MINUTES_PER_DAY + tt.arrival(i);
+                        if (arrivalTime < best[station] && arrivalTime < best[target]) {
+                            arrival[station] = arrivalTime;
+                            best[station] = arrivalTime;
+                            labels.train[k][station] = train;
+                            labels.boardStop[k][station] = boardedAt;
+                            labels.alightStop[k][station] = i;
+                            labels.tripDay[k][station] = tripDay;
+                            if (!marked[station]) {
+                                marked[station] = true;
+                                markedStations[markedCount++] = station;
+                            }
+                        }
+                    }
+
+                    // Switch to an earlier run of this train if we can catch it here
+                    int departure = tt.departure(i);
+                    if (departure >= 0 && previous[station] != INFINITY) {
+                        int ready = previous[station] + transferMinutes;
+                        if (tripDay == NO_TRIP || ready <= tripDay * MINUTES_PER_DAY + departure) {
+                            int day = earliestRun(tt, train, departure, ready, epochDay);
+                            if (day != NO_TRIP && (tripDay == NO_TRIP || day < tripDay)) {
+                                tripDay = day;
+                                boardedAt = i;
+                            }
+                        }
+                    }
+                }
+                queuedFrom[train] = -1;
+            }
+        }
+
+        return labels;
+    }
+
+    /**
+     * Earliest source-departure day offset of a run that leaves this stop no earlier than ready
+     */
+    private static int earliestRun(CompiledTimetable tt, int train, int departure, int ready, long epochDay) {
+        int day = Math.floorDiv(ready - departure + MINUTES_PER_DAY - 1, MINUTES_PER_DAY);
+        RunCalendar calendar = tt.calendar(train);
+        for (; day <= MAX_DAYS_AHEAD; day++) {
+            if (calendar.runsOn(epochDay + day)) {
+                return day;
+            }
+        }
+        return NO_TRIP;
+    }
+
+    private static JourneyItinerary reconstruct(CompiledTimetable tt, Labels labels, int origin, int target, int k,
+            LocalDate journeyDate) {
+        LinkedList<JourneyLeg> legs = new LinkedList<>();
+        LocalDateTime midnight = journeyDate.atStartOfDay();
+        int station = target;
+        int round = k;
+
+        while (station != origin && round > 0) {
+            // Labels carried over from an earlier round point back to the round that set them
+            while (round > 0 && labels.train[round][station] < 0) {
+                round--;
+            }
+            if (round == 0) {
+                break;
+            }
+
+            int train = labels.train[round][station];
+            int boardStop = labels.boardStop[round][station];
+            int alightStop = labels.alightStop[round][station];
+            int dayOffset = labels.tripDay[round][station] * MINUTES_PER_DAY;
+
+            legs.addFirst(new JourneyLeg(tt.trainNumber(train), tt.trainName(train),
+                    tt.stationCode(tt.stopStation(boardStop)), tt.stationCode(station),
+                    midnight.plusMinutes(dayOffset + tt.departure(boardStop)),
+                    midnight.plusMinutes(dayOffset + tt.arrival(alightStop))));
+
+            station = tt.stopStation(boardStop);
+            round--;
+        }
+
+        return new JourneyItinerary(new ArrayList<>(legs));
+    }
+
+    /**
+     * Per-round arrival times and back-pointers to the leg that produced them
+     */
+    private static final class Labels {
+        final int[][] arrival;
+        final int[][] train;
+        final int[][] boardStop;
+        final int[][] alightStop;
+        final int[][] tripDay;
+
+        Labels(int rounds, int stationCount) {
+            arrival = new int[rounds + 1][stationCount];
+            train = new int[rounds + 1][stationCount];
+            boardStop = new int[rounds + 1][];
+            alightStop = new int[rounds + 1][];
+            tripDay = new int[rounds + 1][];
+            Arrays.fill(arrival[0], INFINITY);
+            for (int k = 0; k <= rounds; k++) {
+                Arrays.fill(train[k], -1);
+                boardStop[k] = new int[stationCount];
+                alightStop[k] = new int[stationCount];
+                tripDay[k] = new int[stationCount];
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.nextgenrail.api.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Streams query results as newline-delimited JSON straight from a Mongo cursor
+ * Only one cursor batch is held in memory at a time, however large the collection
+ */
+@Service
+public class NdjsonStreamer {
+
+    public static final String MEDIA_TYPE = "application/x-ndjson";
+
+    // Flush periodically so clients start receiving rows before the cursor is exhausted
+    private static final int FLUSH_EVERY = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.catalog.cursor-batch-size:500}")
+    private int cursorBatchSize;
+
+    /**
+     * Response body writing one JSON document per line for every match of the query
+     * The cursor is opened when the body is written and closed when it finishes or fails
+     */
+    public <T> StreamingResponseBody stream(Query query, Class<T> entityType) {
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        return outputStream -> {
+            query.cursorBatchSize(cursorBatchSize);
+            try (Stream<T> documents = mongoTemplate.stream(query, entityType);
+                    JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+
+                int written = 0;
+                for (Iterator<T> it = documents.iterator(); it.hasNext();) {
+                    writer.writeValue(generator, it.next());
+                    generator.writeRaw('\n');
+                    if (++written % FLUSH_EVERY == 0) {
+                        generator.flush();
+                    }
+                }
+                generator.flush();
+            }
+        };
+    }
+}
@@ -0,0 +1,175 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.dto.NearbyStation;
+import com.nextgenrail.api.model.Coordinates;
+import com.nextgenrail.api.model.Station;
+import com.nextgenrail.api.repository.StationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory grid index over station coordinates
+ *
+ * Stations are bucketed into fixed latitude/longitude cells and stored sorted
+ * by cell. A nearby query visits rings of cells outward from the query point
+ * and stops once no unvisited cell can hold a closer station, so Haversine is
+ * only evaluated for stations in the few cells around the point.
+ */
+@Service
+public class NearbyStationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearbyStationIndex.class);
+
+    // Roughly 28 km north-south; a typical radius search touches a handful of cells
+    private static final double CELL_DEGREES = 0.25;
+    private static final int LATITUDE_CELLS = (int) (180 / CELL_DEGREES);
+    private static final int LONGITUDE_CELLS = (int) (360 / CELL_DEGREES);
+    private static final double KM_PER_DEGREE = 111.19;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    // Replaced wholesale on rebuild so readers always see a consistent grid
+    private volatile Grid grid = new Grid(new Station[0], new int[0], new int[] { 0 });
+
+    /**
+     * Build the index once the application (and any seeding) has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the grid from active stations with coordinates and swap it in atomically
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+
+        List<Station> located = new ArrayList<>();
+        for (Station station : stationRepository.findByIsActiveTrue()) {
+            if (station.getCoordinates() != null) {
+                located.add(station);
+            }
+        }
+        located.sort(Comparator.comparingInt(station -> cellOf(station.getCoordinates())));
+
+        Station[] stations = located.toArray(new Station[0]);
+        int cellCount = 0;
+        int[] cells = new int[stations.length];
+        int[] offsets = new int[stations.length + 1];
+        for (int i = 0; i < stations.length; i++) {
+            int cell = cellOf(stations[i].getCoordinates());
+            if (cellCount == 0 || cells[cellCount - 1] != cell) {
+                cells[cellCount] = cell;
+                offsets[cellCount++] = i;
+            }
+        }
+        offsets[cellCount] = stations.length;
+
+        grid = new Grid(stations, Arrays.copyOf(cells, cellCount), Arrays.copyOf(offsets, cellCount + 1));
+
+        logger.info("Nearby station index rebuilt: {} stations in {} cells in {} ms",
+                stations.length, cellCount, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Nearest active stations within the radius, closest first
+     */
+    public List<NearbyStation> findNearby(double latitude, double longitude, double radiusKm, int limit) {
+        Grid current = grid;
+        if (limit <= 0 || radiusKm <= 0 || current.stations().length == 0) {
+            return List.of();
+        }
+
+        Coordinates origin = new Coordinates(latitude, longitude);
+        int originRow = row(latitude);
+        int originColumn = column(longitude);
+
+        // Narrowest cell side within reach of the radius, so ring distance bounds stay conservative
+        double reachLatitude = Math.min(89.0, Math.abs(latitude) + radiusKm / KM_PER_DEGREE);
+        double cellKm = CELL_DEGREES * KM_PER_DEGREE * Math.cos(Math.toRadians(reachLatitude));
+        int maxRing = (int) Math.min(Math.ceil(radiusKm / Math.max(cellKm, 0.001)) + 1, LONGITUDE_CELLS / 2);
+
+        // Closest matches so far, kept sorted by distance
+        Station[] best = new Station[limit];
+        double[] bestKm = new double[limit];
+        int found = 0;
+
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Every station in this ring is at least (ring - 1) cells away
+            double ringKm = (ring - 1) * cellKm;
+            if (ringKm > radiusKm || (found == limit && ringKm > bestKm[found - 1])) {
+                break;
+            }
+
+            for (int r = originRow - ring; r <= originRow + ring; r++) {
+                if (r < 0 || r >= LATITUDE_CELLS) {
+                    continue;
+                }
+                boolean edgeRow = r == originRow - ring || r == originRow + ring;
+                int step = edgeRow ? 1 : 2 * ring;
+                for (int c = originColumn - ring; c <= originColumn + ring; c += Math.max(step, 1)) {
+                    if (c < 0 || c >= LONGITUDE_CELLS) {
+                        continue;
+                    }
+                    int cell = Arrays.binarySearch(current.cells(), r * LONGITUDE_CELLS + c);
+                    if (cell < 0) {
+                        continue;
+                    }
+
+                    for (int i = current.offsets()[cell]; i < current.offsets()[cell + 1]; i++) {
+                        Station station = current.stations()[i];
+                        double km = origin.distanceFromKm(station.getCoordinates());
+                        if (km > radiusKm || (found == limit && km >= bestKm[found - 1])) {
+                            continue;
+                        }
+
+                        // Insertion into the short sorted list of best matches
+                        int at = found < limit ? found++ : found - 1;
+                        while (at > 0 && bestKm[at - 1] > km) {
+                            best[at] = best[at - 1];
+                            bestKm[at] = bestKm[at - 1];
+                            at--;
+                        }
+                        best[at] = station;
+                        bestKm[at] = km;
+                    }
+                }
+            }
+        }
+
+        List<NearbyStation> nearby = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            nearby.add(new NearbyStation(best[i], bestKm[i]));
+        }
+        return nearby;
+    }
+
+    private static int cellOf(Coordinates coordinates) {
+        return row(coordinates.getLatitude()) * LONGITUDE_CELLS + column(coordinates.getLongitude());
+    }
+
+    private static int row(double latitude) {
+        return Math.min(LATITUDE_CELLS - 1, Math.max(0, (int) Math.floor((latitude + 90) / CELL_DEGREES)));
+    }
+
+    private static int column(double longitude) {
+        return Math.min(LONGITUDE_CELLS - 1, Math.max(0, (int) Math.floor((longitude + 180) / CELL_DEGREES)));
+    }
+
+    /**
+     * Stations sorted by cell, with the occupied cell ids and their offsets into the station array
+     */
+    private record Grid(Station[] stations, int[] cells, int[] offsets) {
+    }
+}
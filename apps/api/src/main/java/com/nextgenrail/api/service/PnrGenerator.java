@@ -0,0 +1,140 @@
+package com.nextgenrail.api.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unique 10-digit PNR numbers
+ *
+ * Each instance leases blocks of sequence numbers from a shared counter
+ * document and hands them out with an atomic increment, so PNRs never
+ * collide and booking inserts never retry. Sequence numbers are shuffled
+ * over all 10-digit values with a keyed Feistel permutation, which keeps
+ * them unique while making neighbouring PNRs unrelated to each other.
+ *
+ * The permutation is keyed by its own secret, PNR_SECRET. It must stay the
+ * same for the life of the data: a new key maps old sequence numbers to new
+ * PNRs and can hand out one already issued. Startup fails without it.
+ */
+@Service
+public class PnrGenerator {
+
+    private static final String COLLECTION = "pnr_blocks";
+    private static final String COUNTER_ID = "pnr";
+    private static final long HALF = 100_000L; // Each Feistel half holds five digits
+    private static final int ROUNDS = 8;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final long blockSize;
+    private final long[] roundKeys;
+
+    private volatile Block block = new Block(0, 0);
+
+    private record Block(AtomicLong next, long end) {
+        Block(long start, long end) {
+            this(new AtomicLong(start), end);
+        }
+    }
+
+    public PnrGenerator(
+            @Value("${app.booking.pnr.block-size:10000}") long blockSize,
+            @Value("${app.booking.pnr.secret:}") String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.booking.pnr.secret is not set; configure a stable PNR_SECRET");
+        }
+        this.blockSize = blockSize;
+        this.roundKeys = roundKeys(secret);
+    }
+
+    /**
+     * Next PNR number
+     */
+    public String next() {
+        while (true) {
+            Block current = block;
+            long sequence = current.next().getAndIncrement();
+            if (sequence < current.end()) {
+                return format(permute(sequence));
+            }
+            refill(current);
+        }
+    }
+
+    /**
+     * Lease a new block once the current one is used up; only one caller leases it
+     */
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            return;
+        }
+        Document counter = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(COUNTER_ID)),
+                new Update().inc("next", blockSize),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, COLLECTION);
+        long end = counter.get("next", Number.class).longValue();
+        if (end > HALF * HALF) {
+            throw new IllegalStateException("PNR numbers exhausted");
+        }
+        block = new Block(end - blockSize, end);
+    }
+
+    /**
+     * Keyed permutation of [0, 10^10)
+     */
+    private long permute(long sequence) {
+        long left = sequence / HALF;
+        long right = sequence % HALF;
+        for (long key : roundKeys) {
+            long mixed = (left + round(key, right)) % HALF;
+            left = right;
+            right = mixed;
+        }
+        return left * HALF + right;
+    }
+
+    private static long round(long key, long value) {
+        long z = (value + key) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return ((z ^ (z >>> 31)) >>> 1) % HALF;
+    }
+
+    private static String format(long pnr) {
+        char[] digits = new char[10];
+        for (int i = digits.length - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + pnr % 10);
+            pnr /= 10;
+        }
+        return new String(digits);
+    }
+
+    private static long[] roundKeys(String secret) {
+        try {
+            long[] keys = new long[ROUNDS];
+            for (int i = 0; i < ROUNDS; i++) {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                digest.update((byte) i);
+                keys[i] = ByteBuffer.wrap(digest.digest(secret.getBytes(StandardCharsets.UTF_8))).getLong();
+            }
+            return keys;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.QuotaType;
+import com.nextgenrail.api.model.SeatAllocation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cancellation charges and refunds
+ *
+ * The fare of a booking is split evenly over its passengers and each share is
+ * charged by the passenger's allocation and the time left to departure from
+ * the boarding station. Confirmed berths pay a flat charge by class when
+ * cancelled well ahead, then a growing share of the fare, and nothing is
+ * refunded inside the cancellation window or on Tatkal tickets. Waitlisted
+ * and RAC passengers only pay the clerkage charge until shortly before
+ * departure.
+ */
+@Service
+public class RefundEngine {
+
+    // Flat charge per confirmed passenger, by class
+    private static final Map<String, Double> FLAT_CHARGES = Map.of(
+            "AC1A", 240.0,
+            "EC", 240.0,
+            "AC2A", 200.0,
+            "AC3A", 180.0,
+            "CC", 180.0,
+            "SL", 120.0,
+            "2S", 60.0);
+    private static final double DEFAULT_FLAT_CHARGE = 120.0;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Value("${app.booking.cancellation-hours:2}")
+    private int cancellationHours;
+
+    @Value("${app.booking.refund.clerkage-charge:60}")
+    private double clerkageCharge;
+
+    @Value("${app.booking.refund.waitlist-cutoff-minutes:30}")
+    private int waitlistCutoffMinutes;
+
+    public record Refund(double cancellationCharges, double refundAmount) {
+    }
+
+    /**
+     * Charges and refund for cancelling the booking at the given time
+     * Passengers already dropped at chart preparation are left out
+     */
+    public Refund calculate(Booking booking, LocalDateTime cancelledAt) {
+        long minutesLeft = Duration.between(cancelledAt, departureOf(booking)).toMinutes();
+        boolean tatkal = booking.getQuota() == QuotaType.TATKAL;
+        double flatCharge = FLAT_CHARGES.getOrDefault(booking.getClassType(), DEFAULT_FLAT_CHARGE);
+
+        List<SeatAllocation> allocations = booking.getSeatAllocations();
+        int passengers = allocations != null && !allocations.isEmpty() ? allocations.size() : 1;
+        double share = booking.getTotalFare() / passengers;
+        double charges = 0;
+        int travelling = 0;
+        for (int i = 0; i < passengers; i++) {
+            BookingStatus status = allocations != null && !allocations.isEmpty()
+                    ? allocations.get(i).getAllocationStatus()
+                    : booking.getStatus();
+            if (status == BookingStatus.CANCELLED) {
+                continue; // Dropped at chart preparation and refunded then
+            }
+            travelling++;
+            charges += status == BookingStatus.CONFIRMED || status == BookingStatus.CHART_PREPARED
+                    ? confirmedCharge(share, flatCharge, minutesLeft, tatkal)
+                    : waitingCharge(share, minutesLeft);
+        }
+        return refundOf(share * travelling, charges);
+    }
+
+    /**
+     * Refund for a booking cancelled because it was still waitlisted when the chart was prepared
+     */
+    public Refund chartCancellation(double totalFare, int passengers) {
+        return refundOf(totalFare, Math.min(clerkageCharge * Math.max(passengers, 1), totalFare));
+    }
+
+    private double confirmedCharge(double share, double flatCharge, long minutesLeft, boolean tatkal) {
+        if (tatkal || minutesLeft < cancellationHours * 60L) {
+            return share;
+        }
+        double charge;
+        if (minutesLeft >= 48 * 60) {
+            charge = flatCharge;
+        } else if (minutesLeft >= 12 * 60) {
+            charge = Math.max(share * 0.25, flatCharge);
+        } else {
+            charge = Math.max(share * 0.5, flatCharge);
+        }
+        return Math.min(charge, share);
+    }
+
+    private double waitingCharge(double share, long minutesLeft) {
+        return minutesLeft >= waitlistCutoffMinutes ? Math.min(clerkageCharge, share) : share;
+    }
+
+    private static Refund refundOf(double totalFare, double charges) {
+        double rounded = Math.round(charges * 100) / 100.0;
+        return new Refund(rounded, Math.max(totalFare - rounded, 0));
+    }
+
+    /**
+     * Departure from the boarding station; start of the travel date if the train is not in the timetable
+     */
+    private LocalDateTime departureOf(Booking booking) {
+        LocalDate travelDate = booking.getTravelDate();
+        CompiledTimetable timetable = trainSearchIndex.getTimetable();
+        int train = booking.getTrain() != null ? timetable.trainId(booking.getTrain().getTrainNumber()) : -1;
+        if (train >= 0) {
+            int stop = timetable.findStop(train, timetable.stationId(booking.getSourceStationCode()));
+            if (stop >= 0 && timetable.departure(stop) >= 0) {
+                return travelDate.atStartOfDay()
+                        .plusMinutes(timetable.departure(stop) % CompiledTimetable.MINUTES_PER_DAY);
+            }
+        }
+        return travelDate.atStartOfDay();
+    }
+}
@@ -0,0 +1,249 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.ReplaceOptions;
+import com.nextgenrail.api.model.BookingStatus;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk settlement of pending refunds
+ *
+ * Cancelled bookings, and charted bookings that dropped waitlisted
+ * passengers, with an unpaid refund are streamed from a cursor in id order
+ * and settled in fixed-size bulk updates, so a run holds one batch in memory
+ * however many refunds are pending. After each batch the last id
+ * settled is saved as a checkpoint, and a run that was interrupted carries on
+ * after it. Each update only applies while the refund is still unpaid, so a
+ * booking replayed after a crash is never refunded twice, and only the
+ * refunds an update actually settled are added to the run's amount.
+ *
+ * One run at a time across all instances: a run first takes a lease in Mongo
+ * and renews it after every batch. A lease left behind by a crashed instance
+ * can be taken over once it has run out.
+ */
+@Service
+public class RefundProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefundProcessor.class);
+
+    private static final String COLLECTION = "bookings";
+    private static final String CHECKPOINTS = "job_checkpoints";
+    private static final String CHECKPOINT_ID = "refunds";
+    private static final String LEASES = "job_leases";
+    private static final String LEASE_ID = "refunds";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.booking.refund.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.booking.refund.lease-seconds:300}")
+    private long leaseSeconds;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    public record RefundSummary(long refunded, double amount, boolean resumed, long elapsedMillis) {
+    }
+
+    /**
+     * Settle pending refunds on the configured schedule
+     */
+    @Scheduled(cron = "${app.booking.refund.cron:0 */15 * * * *}")
+    public void processScheduledRefunds() {
+        processRefunds();
+    }
+
+    /**
+     * Settle every pending refund, carrying on from the checkpoint of an interrupted run
+     * Returns null if a refund run is already in progress on any instance, or this run lost its lease
+     */
+    public RefundSummary processRefunds() {
+        if (!acquireLease()) {
+            logger.warn("Refund run already in progress, skipping");
+            return null;
+        }
+
+        long start = System.nanoTime();
+        try {
+            Document checkpoint = mongoTemplate.getCollection(CHECKPOINTS)
+                    .find(new Document("_id", CHECKPOINT_ID)).first();
+            Object lastId = checkpoint != null ? checkpoint.get("lastId") : null;
+            Number processed = checkpoint != null ? checkpoint.get("processed", Number.class) : null;
+            Number settled = checkpoint != null ? checkpoint.get("amount", Number.class) : null;
+            long refunded = processed != null ? processed.longValue() : 0;
+            double amount = settled != null ? settled.doubleValue() : 0;
+            if (lastId != null) {
+                logger.info("Resuming refund run after booking {} ({} refunds settled)", lastId, refunded);
+            }
+
+            try (MongoCursor<Document> cursor = openCursor(lastId)) {
+                Batch batch = null;
+                while (cursor.hasNext()) {
+                    Document booking = cursor.next();
+                    if (batch == null) {
+                        batch = new Batch();
+                    }
+                    batch.add(booking.get("_id"), booking.get("refundAmount", Number.class).doubleValue());
+                    lastId = booking.get("_id");
+
+                    if (batch.size() == batchSize) {
+                        int settledNow = batch.execute();
+                        refunded += settledNow;
+                        amount += batch.settledAmount(settledNow);
+                        saveCheckpoint(lastId, refunded, amount);
+                        batch = null;
+                        if (!renewLease()) {
+                            logger.warn("Refund run lost its lease after booking {}, stopping", lastId);
+                            return null;
+                        }
+                    }
+                }
+                if (batch != null) {
+                    int settledNow = batch.execute();
+                    refunded += settledNow;
+                    amount += batch.settledAmount(settledNow);
+                }
+            }
+            // Later cancellations may have lower ids, so the next run starts from the beginning
+            mongoTemplate.getCollection(CHECKPOINTS).deleteOne(new Document("_id", CHECKPOINT_ID));
+
+            RefundSummary summary = new RefundSummary(refunded, Math.round(amount * 100) / 100.0,
+                    checkpoint != null, (System.nanoTime() - start) / 1_000_000);
+            logger.info("Refund run settled {} refunds worth {} in {} ms", summary.refunded(), summary.amount(),
+                    summary.elapsedMillis());
+            return summary;
+        } finally {
+            releaseLease();
+        }
+    }
+
+    /**
+     * One bulk update of refunds, tagged so the refunds it settled can be told apart from ones settled elsewhere
+     */
+    private final class Batch {
+
+        private final ObjectId tag = new ObjectId();
+        private final BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+        private final List<Object> ids = new ArrayList<>(batchSize);
+        private double amount;
+
+        void add(Object id, double refundAmount) {
+            bulk.updateOne(settleQuery(id), settleUpdate(tag));
+            ids.add(id);
+            amount += refundAmount;
+        }
+
+        int size() {
+            return ids.size();
+        }
+
+        int execute() {
+            return bulk.execute().getModifiedCount();
+        }
+
+        /**
+         * Amount of the refunds this batch settled; only looked up when some were already paid
+         */
+        double settledAmount(int settled) {
+            if (settled == ids.size()) {
+                return amount;
+            }
+            Document sum = mongoTemplate.getCollection(COLLECTION).aggregate(List.of(
+                    new Document("$match", new Document("_id", new Document("$in", ids)).append("refundBatch", tag)),
+                    new Document("$group", new Document("_id", null)
+                            .append("amount", new Document("$sum", "$refundAmount"))))).first();
+            return sum != null ? sum.get("amount", Number.class).doubleValue() : 0;
+        }
+    }
+
+    /**
+     * Take the refund lease if nobody holds it or its holder let it run out
+     */
+    private boolean acquireLease() {
+        Date now = new Date();
+        try {
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(LEASE_ID).and("lockedUntil").lt(now)),
+                    new Update().set("owner", instanceId).set("lockedUntil", leaseEnd(now)), LEASES);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false; // Held by a run that is still within its lease
+        }
+    }
+
+    private boolean renewLease() {
+        return mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(LEASE_ID).and("owner").is(instanceId)),
+                new Update().set("lockedUntil", leaseEnd(new Date())), LEASES).getMatchedCount() == 1;
+    }
+
+    private void releaseLease() {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(LEASE_ID).and("owner").is(instanceId)), LEASES);
+        } catch (DataAccessException e) {
+            // The lease runs out on its own
+            logger.warn("Cannot release the refund lease: {}", e.getMessage());
+        }
+    }
+
+    private Date leaseEnd(Date now) {
+        return new Date(now.getTime() + TimeUnit.SECONDS.toMillis(leaseSeconds));
+    }
+
+    private MongoCursor<Document> openCursor(Object afterId) {
+        // Charted bookings carry the refund of the waitlisted passengers dropped from them
+        Document filter = new Document("status", new Document("$in", List.of(BookingStatus.CANCELLED.name(),
+                BookingStatus.CHART_PREPARED.name())))
+                .append("refundAmount", new Document("$gt", 0))
+                .append("refundedAt", null);
+        if (afterId != null) {
+            filter.append("_id", new Document("$gt", afterId));
+        }
+
+        return mongoTemplate.getCollection(COLLECTION)
+                .find(filter)
+                .projection(new Document("refundAmount", 1))
+                .sort(new Document("_id", 1))
+                .batchSize(batchSize)
+                .iterator();
+    }
+
+    private static Query settleQuery(Object id) {
+        return new Query(Criteria.where("_id").is(id).and("refundedAt").is(null));
+    }
+
+    private static Update settleUpdate(ObjectId batch) {
+        LocalDateTime now = LocalDateTime.now();
+        return new Update().set("refundedAt", now).set("updatedAt", now).set("refundBatch", batch).inc("version", 1);
+    }
+
+    private void saveCheckpoint(Object lastId, long processed, double amount) {
+        mongoTemplate.getCollection(CHECKPOINTS).replaceOne(new Document("_id", CHECKPOINT_ID),
+                new Document("_id", CHECKPOINT_ID)
+                        .append("lastId", lastId)
+                        .append("processed", processed)
+                        .append("amount", amount)
+                        .append("updatedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+    }
+}
@@ -0,0 +1,73 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.util.OperatingDays;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Precomputed run dates of a train over the booking horizon
+ * One bit per day starting at the anchor date; dates outside the horizon
+ * fall back to the weekly operating-day mask
+ */
+public final class RunCalendar {
+
+    private final long anchorEpochDay;
+    private final int horizonDays;
+    private final int dayMask;
+    private final long[] bits;
+
+    public RunCalendar(int dayMask, LocalDate anchor, int horizonDays) {
+        this.anchorEpochDay = anchor.toEpochDay();
+        this.horizonDays = horizonDays;
+        this.dayMask = dayMask;
+        this.bits = new long[(horizonDays + 63) >>> 6];
+
+        for (int day = 0; day < horizonDays; day++) {
+            if (OperatingDays.includes(dayMask, anchor.plusDays(day).getDayOfWeek())) {
+                bits[day >>> 6] |= 1L << day;
+            }
+        }
+    }
+
+    /**
+     * Check whether the train leaves its source station on the given date
+     */
+    public boolean runsOn(LocalDate date) {
+        return runsOn(date.toEpochDay());
+    }
+
+    /**
+     * Same as {@link #runsOn(LocalDate)} for an epoch day, without allocating a date
+     */
+    public boolean runsOn(long epochDay) {
+        long day = epochDay - anchorEpochDay;
+        if (day < 0 || day >= horizonDays) {
+            // 1970-01-01 was a Thursday
+            int dayOfWeek = (int) Math.floorMod(epochDay + 3, 7L);
+            return (dayMask & (1 << dayOfWeek)) != 0;
+        }
+        return (bits[(int) (day >>> 6)] & (1L << day)) != 0;
+    }
+
+    /**
+     * All dates within the horizon on which the train runs
+     */
+    public List<LocalDate> runDates() {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int word = 0; word < bits.length; word++) {
+            long remaining = bits[word];
+            while (remaining != 0) {
+                int day = (word << 6) + Long.numberOfTrailingZeros(remaining);
+                dates.add(LocalDate.ofEpochDay(anchorEpochDay + day));
+                remaining &= remaining - 1;
+            }
+        }
+        return dates;
+    }
+
+    public int getDayMask() {
+        return dayMask;
+    }
+}
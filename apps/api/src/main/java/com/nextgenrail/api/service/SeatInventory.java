@@ -0,0 +1,242 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.CoachLayout;
+
+import java.util.Arrays;
+
+/**
+ * Seat occupancy of one class on one train run
+ *
+ * Each seat has a bitmask over the legs of the route (leg i runs from stop i
+ * to stop i + 1), so a seat held from A to B is free again from B onwards.
+ * Seats are numbered 0..seatCount-1 across coaches in order. All mutation is
+ * synchronized on the inventory, which makes each allocation atomic.
+ */
+public final class SeatInventory {
+
+    private final CoachLayout layout;
+    private final int seatCount;
+    private final int legCount;
+    private final int words;
+    private final long[] occupancy;
+
+    // Seat maps handed to the allocator, reused by every allocation
+    private final BerthAllocator allocator;
+    private final boolean[] free;
+    private final boolean[] partlyHeld;
+
+    // Set once existing bookings have been replayed into the inventory
+    private boolean hydrated;
+
+    public SeatInventory(CoachLayout layout, int coaches, int legCount) {
+        this.layout = layout;
+        this.seatCount = coaches * layout.getSeatsPerCoach();
+        this.legCount = legCount;
+        this.words = wordsFor(legCount);
+        this.occupancy = new long[seatCount * words];
+        this.allocator = new BerthAllocator(layout, coaches);
+        this.free = new boolean[seatCount];
+        this.partlyHeld = new boolean[seatCount];
+    }
+
+    /**
+     * Hold seats free on every leg in [fromLeg, toLeg) for a group of passengers
+     * wanted holds each passenger's berth code or BerthAllocator.NO_PREFERENCE, senior marks senior citizens
+     * Returns the seat of each passenger in order; it is shorter than the group when seats run out
+     */
+    public synchronized int[] allocate(int fromLeg, int toLeg, int[] wanted, boolean[] senior) {
+        checkLegs(fromLeg, toLeg);
+        for (int seat = 0; seat < seatCount; seat++) {
+            free[seat] = isFree(seat, fromLeg, toLeg);
+            partlyHeld[seat] = !isUnused(seat);
+        }
+
+        int[] held = new int[wanted.length];
+        int found = allocator.allocate(free, partlyHeld, wanted, senior, wanted.length, held);
+        for (int i = 0; i < found; i++) {
+            mark(held[i], fromLeg, toLeg, true);
+        }
+        return found == held.length ? held : Arrays.copyOf(held, found);
+    }
+
+    /**
+     * Hold a specific seat, as when replaying an existing booking; returns false if it is taken
+     */
+    public synchronized boolean occupy(int seat, int fromLeg, int toLeg) {
+        checkLegs(fromLeg, toLeg);
+        if (seat < 0 || seat >= seatCount || !isFree(seat, fromLeg, toLeg)) {
+            return false;
+        }
+        mark(seat, fromLeg, toLeg, true);
+        return true;
+    }
+
+    /**
+     * Free a seat on the legs in [fromLeg, toLeg)
+     */
+    public synchronized void release(int seat, int fromLeg, int toLeg) {
+        checkLegs(fromLeg, toLeg);
+        if (seat >= 0 && seat < seatCount) {
+            mark(seat, fromLeg, toLeg, false);
+        }
+    }
+
+    /**
+     * Number of seats free on every leg in [fromLeg, toLeg)
+     */
+    public synchronized int available(int fromLeg, int toLeg) {
+        checkLegs(fromLeg, toLeg);
+        int free = 0;
+        for (int seat = 0; seat < seatCount; seat++) {
+            if (isFree(seat, fromLeg, toLeg)) {
+                free++;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Number of free seats on each leg
+     */
+    public synchronized int[] freePerLeg() {
+        int[] free = new int[legCount];
+        for (int leg = 0; leg < legCount; leg++) {
+            for (int seat = 0; seat < seatCount; seat++) {
+                if (isFree(seat, leg, leg + 1)) {
+                    free[leg]++;
+                }
+            }
+        }
+        return free;
+    }
+
+    public synchronized boolean isHydrated() {
+        return hydrated;
+    }
+
+    public synchronized void markHydrated() {
+        hydrated = true;
+    }
+
+    /**
+     * Copy of every seat's leg bitmask, words per seat in seat order
+     */
+    public synchronized long[] occupancy() {
+        return occupancy.clone();
+    }
+
+    /**
+     * Replace every seat's leg bitmask, as when catching up with the shared seat ledger
+     */
+    public synchronized void loadOccupancy(long[] shared) {
+        if (shared.length != occupancy.length) {
+            throw new IllegalArgumentException("Occupancy of " + shared.length + " words does not fit "
+                    + seatCount + " seats of " + words + " words");
+        }
+        System.arraycopy(shared, 0, occupancy, 0, occupancy.length);
+    }
+
+    // Seat numbering
+    public String coachNumber(int seat) {
+        return layout.getCoachPrefix() + (seat / layout.getSeatsPerCoach() + 1);
+    }
+
+    public int seatNumber(int seat) {
+        return seat % layout.getSeatsPerCoach() + 1;
+    }
+
+    public String berthType(int seat) {
+        return layout.berthType(seatNumber(seat));
+    }
+
+    /**
+     * Seat index for a coach and seat number, or -1 if they are not part of this inventory
+     */
+    public int seatIndex(String coachNumber, int seatNumber) {
+        int seat = seatIndexOf(layout, coachNumber, seatNumber);
+        return seat < seatCount ? seat : -1;
+    }
+
+    /**
+     * Seat index for a coach and seat number in a run of any length, or -1 if they do not fit the layout
+     */
+    public static int seatIndexOf(CoachLayout layout, String coachNumber, int seatNumber) {
+        if (coachNumber == null || !coachNumber.startsWith(layout.getCoachPrefix())
+                || seatNumber < 1 || seatNumber > layout.getSeatsPerCoach()) {
+            return -1;
+        }
+        try {
+            int coach = Integer.parseInt(coachNumber.substring(layout.getCoachPrefix().length()));
+            return coach >= 1 ? (coach - 1) * layout.getSeatsPerCoach() + seatNumber - 1 : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Number of bitmask words per seat for a route with the given number of legs
+     */
+    public static int wordsFor(int legCount) {
+        return Math.max(1, (legCount + 63) >>> 6);
+    }
+
+    public CoachLayout getLayout() {
+        return layout;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    public int getLegCount() {
+        return legCount;
+    }
+
+    public int getWords() {
+        return words;
+    }
+
+    private boolean isUnused(int seat) {
+        int base = seat * words;
+        for (int w = 0; w < words; w++) {
+            if (occupancy[base + w] != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isFree(int seat, int fromLeg, int toLeg) {
+        int base = seat * words;
+        for (int w = fromLeg >>> 6; w <= (toLeg - 1) >>> 6; w++) {
+            if ((occupancy[base + w] & legMask(w, fromLeg, toLeg)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void mark(int seat, int fromLeg, int toLeg, boolean held) {
+        int base = seat * words;
+        for (int w = fromLeg >>> 6; w <= (toLeg - 1) >>> 6; w++) {
+            long mask = legMask(w, fromLeg, toLeg);
+            occupancy[base + w] = held ? occupancy[base + w] | mask : occupancy[base + w] & ~mask;
+        }
+    }
+
+    /**
+     * Bits of word w covering legs in [fromLeg, toLeg)
+     */
+    static long legMask(int w, int fromLeg, int toLeg) {
+        int low = Math.max(fromLeg - (w << 6), 0);
+        int high = Math.min(toLeg - (w << 6), 64);
+        long upTo = high == 64 ? -1L : (1L << high) - 1;
+        return upTo & (-1L << low);
+    }
+
+    private void checkLegs(int fromLeg, int toLeg) {
+        if (fromLeg < 0 || toLeg > legCount || fromLeg >= toLeg) {
+            throw new IllegalArgumentException("Invalid leg range " + fromLeg + "-" + toLeg);
+        }
+    }
+}
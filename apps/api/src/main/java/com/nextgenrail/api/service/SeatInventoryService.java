@@ -0,0 +1,293 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.CoachLayout;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.BookingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Seat inventories per (train, run date, class)
+ *
+ * A run is keyed by the date the train left its first station, so passengers
+ * boarding after midnight share the berths of the run they travel on.
+ * Inventories are created on first use, sized from the train's coach
+ * configuration and route, and hydrated from bookings already in the
+ * database before any seat is handed out. Berths picked in memory are then
+ * reserved in the shared seat ledger while the inventory lock is held, which
+ * stops several instances from selling the same berth. When another instance
+ * got there first, the inventory catches up with the ledger and picks again.
+ */
+@Service
+public class SeatInventoryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatInventoryService.class);
+
+    // Picks per allocation before giving up on a run that other instances keep selling from under us
+    private static final int MAX_RESERVE_ATTEMPTS = 3;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SeatLedgerService seatLedgerService;
+
+    private final Map<InventoryKey, SeatInventory> inventories = new ConcurrentHashMap<>();
+
+    public record InventoryKey(String trainNumber, LocalDate runDate, String classType) {
+    }
+
+    /**
+     * Hold seats for the passengers on the journey from source to destination
+     * Berth preferences are honoured where possible and seniors get lower berths; passengers without a free
+     * seat get a WAITLISTED allocation
+     */
+    public List<SeatAllocation> allocate(Train train, LocalDate runDate, String classType,
+            String sourceStationCode, String destinationStationCode, List<Passenger> passengers) {
+        Legs legs = legsOf(train.getTrainNumber(), sourceStationCode, destinationStationCode);
+        SeatInventory inventory = inventory(train, runDate, classType);
+
+        int[] wanted = new int[passengers.size()];
+        boolean[] senior = new boolean[passengers.size()];
+        for (int i = 0; i < passengers.size(); i++) {
+            wanted[i] = CoachLayout.berthCodeOf(passengers.get(i).getBerthPreference());
+            senior[i] = passengers.get(i).isSeniorCitizen();
+        }
+        int[] seats = reserve(inventory, new InventoryKey(train.getTrainNumber(), runDate, classType), legs,
+                wanted, senior);
+
+        List<SeatAllocation> allocations = new ArrayList<>(passengers.size());
+        for (int i = 0; i < passengers.size(); i++) {
+            String name = passengers.get(i).getName();
+            if (i < seats.length) {
+                allocations.add(new SeatAllocation(name, inventory.coachNumber(seats[i]),
+                        inventory.seatNumber(seats[i]), inventory.berthType(seats[i]), BookingStatus.CONFIRMED));
+            } else {
+                allocations.add(new SeatAllocation(name, null, 0, null, BookingStatus.WAITLISTED));
+            }
+        }
+        return allocations;
+    }
+
+    /**
+     * Free the confirmed seats held by a booking
+     */
+    public void release(Booking booking) {
+        if (booking.getSeatAllocations() == null || booking.getTrain() == null) {
+            return;
+        }
+
+        CoachLayout layout = CoachLayout.forClass(booking.getClassType());
+        if (layout == null) {
+            return;
+        }
+        Legs legs;
+        try {
+            legs = legsOf(booking.getTrain().getTrainNumber(),
+                    booking.getSourceStationCode(), booking.getDestinationStationCode());
+        } catch (IllegalArgumentException e) {
+            // The train left the timetable; nothing can be sold on the run any more and its ledger will expire
+            logger.warn("Not releasing seats of booking {}: {}", booking.getPnrNumber(), e.getMessage());
+            return;
+        }
+        InventoryKey key = keyOf(booking);
+
+        int[] seats = booking.getSeatAllocations().stream()
+                .filter(allocation -> allocation.getAllocationStatus() == BookingStatus.CONFIRMED)
+                .mapToInt(allocation -> SeatInventory.seatIndexOf(layout, allocation.getCoachNumber(),
+                        allocation.getSeatNumber()))
+                .toArray();
+        if (seats.length == 0) {
+            return;
+        }
+
+        // An inventory not loaded yet will be hydrated from the ledger without this booking's seats
+        SeatInventory inventory = inventories.get(key);
+        if (inventory == null) {
+            seatLedgerService.release(key.trainNumber(), key.runDate(), key.classType(),
+                    SeatInventory.wordsFor(legs.count()), seats, legs.from(), legs.to());
+            return;
+        }
+        synchronized (inventory) {
+            // Ledger first: if it fails the seats stay held here too, which can only undersell
+            seatLedgerService.release(key.trainNumber(), key.runDate(), key.classType(), inventory.getWords(),
+                    seats, legs.from(), legs.to());
+            for (int seat : seats) {
+                if (seat < inventory.getSeatCount()) {
+                    inventory.release(seat, legs.from(), legs.to());
+                }
+            }
+        }
+    }
+
+    /**
+     * Run an action while holding the lock of a run's inventory
+     * Allocations made by other callers on the same run wait until the action is done
+     */
+    public <T> T withInventoryLock(Train train, LocalDate runDate, String classType, Supplier<T> action) {
+        SeatInventory inventory = inventory(train, runDate, classType);
+        synchronized (inventory) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Seats free for the whole journey from source to destination
+     */
+    public int available(Train train, LocalDate runDate, String classType,
+            String sourceStationCode, String destinationStationCode) {
+        Legs legs = legsOf(train.getTrainNumber(), sourceStationCode, destinationStationCode);
+        return inventory(train, runDate, classType).available(legs.from(), legs.to());
+    }
+
+    /**
+     * Drop inventories for journeys that have already departed
+     */
+    @Scheduled(cron = "${app.booking.calendar-refresh-cron:0 0 0 * * *}")
+    public void evictDeparted() {
+        // Runs may arrive the day after they leave, so keep yesterday's inventories
+        LocalDate cutoff = LocalDate.now().minusDays(1);
+        inventories.keySet().removeIf(key -> key.runDate().isBefore(cutoff));
+    }
+
+    /**
+     * Pick berths in memory and reserve them in the shared ledger, under the inventory lock
+     * When the ledger refuses, other instances have sold some of the berths: catch up with it and pick again, so
+     * passengers are only waitlisted for the seats that are really gone
+     */
+    private int[] reserve(SeatInventory inventory, InventoryKey key, Legs legs, int[] wanted, boolean[] senior) {
+        synchronized (inventory) {
+            for (int attempt = 1; ; attempt++) {
+                int[] seats = inventory.allocate(legs.from(), legs.to(), wanted, senior);
+                if (seats.length == 0 || seatLedgerService.reserve(key.trainNumber(), key.runDate(),
+                        key.classType(), inventory.getWords(), seats, legs.from(), legs.to())) {
+                    return seats;
+                }
+                for (int seat : seats) {
+                    inventory.release(seat, legs.from(), legs.to());
+                }
+                if (attempt == MAX_RESERVE_ATTEMPTS) {
+                    logger.warn("Could not reserve {} seats on {} after {} attempts", seats.length, key, attempt);
+                    return new int[0];
+                }
+                catchUp(inventory, key);
+            }
+        }
+    }
+
+    private void catchUp(SeatInventory inventory, InventoryKey key) {
+        long[] shared = seatLedgerService.occupancy(key.trainNumber(), key.runDate(), key.classType(),
+                inventory.getSeatCount(), inventory.getWords());
+        if (shared != null) {
+            inventory.loadOccupancy(shared);
+        } else {
+            // Expired or rebuilt for another shape; put this instance's view back into it
+            seatLedgerService.initialize(key.trainNumber(), key.runDate(), key.classType(), inventory);
+        }
+    }
+
+    private SeatInventory inventory(Train train, LocalDate runDate, String classType) {
+        InventoryKey key = new InventoryKey(train.getTrainNumber(), runDate, classType);
+        SeatInventory inventory = inventories.computeIfAbsent(key, k -> create(train, k));
+
+        // Replay existing bookings before the first allocation; concurrent callers wait here
+        synchronized (inventory) {
+            if (!inventory.isHydrated()) {
+                hydrate(inventory, train, key);
+                seatLedgerService.initialize(key.trainNumber(), key.runDate(), key.classType(), inventory);
+                inventory.markHydrated();
+            }
+        }
+        return inventory;
+    }
+
+    private SeatInventory create(Train train, InventoryKey key) {
+        CoachLayout layout = CoachLayout.forClass(key.classType());
+        Integer coaches = train.getCoachConfiguration() != null
+                ? train.getCoachConfiguration().get(key.classType())
+                : null;
+        if (layout == null || coaches == null || coaches <= 0) {
+            throw new IllegalArgumentException(
+                    "Class " + key.classType() + " is not available on train " + key.trainNumber());
+        }
+
+        CompiledTimetable timetable = trainSearchIndex.getTimetable();
+        int trainId = timetable.trainId(key.trainNumber());
+        if (trainId < 0) {
+            throw new IllegalArgumentException("Train " + key.trainNumber() + " is not active");
+        }
+        int legCount = timetable.endStop(trainId) - timetable.firstStop(trainId) - 1;
+        return new SeatInventory(layout, coaches, legCount);
+    }
+
+    private void hydrate(SeatInventory inventory, Train train, InventoryKey key) {
+        int seats = 0;
+        for (Booking booking : bookingRepository.findActiveBookingsForTrainRun(train.getId(), key.runDate())) {
+            // Bookings saved without allocations got them from BookingSeatAllocationMigration at startup
+            if (!key.classType().equals(booking.getClassType()) || booking.getSeatAllocations() == null) {
+                continue;
+            }
+
+            Legs legs;
+            try {
+                legs = legsOf(key.trainNumber(), booking.getSourceStationCode(), booking.getDestinationStationCode());
+            } catch (IllegalArgumentException e) {
+                // The route changed under the booking; one bad booking must not stop the run from being sold
+                logger.warn("Not replaying seats of booking {}: {}", booking.getPnrNumber(), e.getMessage());
+                continue;
+            }
+            for (SeatAllocation allocation : booking.getSeatAllocations()) {
+                if (allocation.getAllocationStatus() == BookingStatus.CONFIRMED) {
+                    int seat = inventory.seatIndex(allocation.getCoachNumber(), allocation.getSeatNumber());
+                    if (inventory.occupy(seat, legs.from(), legs.to())) {
+                        seats++;
+                    } else {
+                        logger.warn("Booking {} holds seat {}/{} that is unknown or double-booked",
+                                booking.getPnrNumber(), allocation.getCoachNumber(), allocation.getSeatNumber());
+                    }
+                }
+            }
+        }
+        logger.debug("Hydrated seat inventory {} with {} held seats", key, seats);
+    }
+
+    private Legs legsOf(String trainNumber, String sourceStationCode, String destinationStationCode) {
+        CompiledTimetable timetable = trainSearchIndex.getTimetable();
+        int train = timetable.trainId(trainNumber);
+        int from = train >= 0 ? timetable.findStop(train, timetable.stationId(sourceStationCode)) : -1;
+        int to = train >= 0 ? timetable.findStop(train, timetable.stationId(destinationStationCode)) : -1;
+        if (from < 0 || to < 0 || from >= to) {
+            throw new IllegalArgumentException("Train " + trainNumber + " does not run from "
+                    + sourceStationCode + " to " + destinationStationCode);
+        }
+        int first = timetable.firstStop(train);
+        return new Legs(from - first, to - first, timetable.endStop(train) - first - 1);
+    }
+
+    private static InventoryKey keyOf(Booking booking) {
+        return new InventoryKey(booking.getTrain().getTrainNumber(), booking.getRunDate(), booking.getClassType());
+    }
+
+    /**
+     * Journey legs [from, to) on a route of count legs
+     */
+    private record Legs(int from, int to, int count) {
+    }
+}
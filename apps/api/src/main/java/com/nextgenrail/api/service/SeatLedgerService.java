@@ -0,0 +1,160 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.SeatLedger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Database-side record of the berths held on each run, shared by every API instance
+ *
+ * The ledger of a run keeps every seat's leg bitmask in the same layout as
+ * SeatInventory. A reservation is a single findAndModify that sets the bits of
+ * the journey's legs on each seat of the booking, matching only if all of
+ * those bits are still clear. The check and the update are one atomic
+ * document update, so two instances can never sell the same berth on the same
+ * leg. Ledgers are removed by Mongo a couple of days after the run.
+ */
+@Service
+public class SeatLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatLedgerService.class);
+
+    // Runs may arrive the day after they leave
+    private static final int RETENTION_DAYS = 2;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Bring the run's ledger and a freshly hydrated inventory into agreement
+     * A new ledger starts from the inventory; an existing one gains the inventory's seats and is loaded back into it
+     */
+    public void initialize(String trainNumber, LocalDate travelDate, String classType, SeatInventory inventory) {
+        long[] local = inventory.occupancy();
+        try {
+            mongoTemplate.insert(ledgerOf(trainNumber, travelDate, classType, inventory, local));
+            return;
+        } catch (DuplicateKeyException e) {
+            // Another instance (or an earlier run of this one) already owns the ledger
+        }
+
+        Query query = new Query(Criteria.where("_id").is(SeatLedger.idOf(trainNumber, travelDate, classType))
+                .and("seatCount").is(inventory.getSeatCount())
+                .and("words").is(inventory.getWords()));
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        for (int i = 0; i < local.length; i++) {
+            if (local[i] != 0) {
+                update.bitwise("occupancy." + i).or(local[i]);
+            }
+        }
+        SeatLedger ledger = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), SeatLedger.class);
+        if (ledger == null) {
+            // Coaches or route changed since the ledger was written; the bookings are all that still holds
+            logger.warn("Seat ledger {} does not match the run, rebuilding it from bookings",
+                    SeatLedger.idOf(trainNumber, travelDate, classType));
+            mongoTemplate.save(ledgerOf(trainNumber, travelDate, classType, inventory, local));
+            return;
+        }
+        inventory.loadOccupancy(toArray(ledger.getOccupancy()));
+    }
+
+    /**
+     * Current leg bitmasks of every seat of a run, or null if its ledger is missing or has another shape
+     */
+    public long[] occupancy(String trainNumber, LocalDate travelDate, String classType, int seatCount,
+            int words) {
+        SeatLedger ledger = mongoTemplate.findById(SeatLedger.idOf(trainNumber, travelDate, classType),
+                SeatLedger.class);
+        if (ledger == null || ledger.getSeatCount() != seatCount || ledger.getWords() != words
+                || ledger.getOccupancy() == null || ledger.getOccupancy().size() != seatCount * words) {
+            return null;
+        }
+        return toArray(ledger.getOccupancy());
+    }
+
+    /**
+     * Hold the seats on every leg in [fromLeg, toLeg); returns false, changing nothing, if any of them is taken
+     */
+    public boolean reserve(String trainNumber, LocalDate travelDate, String classType, int words, int[] seats,
+            int fromLeg, int toLeg) {
+        Query query = new Query(Criteria.where("_id").is(SeatLedger.idOf(trainNumber, travelDate, classType))
+                .and("words").is(words));
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        for (int seat : seats) {
+            for (int w = fromLeg >>> 6; w <= (toLeg - 1) >>> 6; w++) {
+                String field = "occupancy." + (seat * words + w);
+                query.addCriteria(Criteria.where(field).bits().allClear(legBits(w, fromLeg, toLeg)));
+                update.bitwise(field).or(SeatInventory.legMask(w, fromLeg, toLeg));
+            }
+        }
+        return mongoTemplate.findAndModify(query, update, SeatLedger.class) != null;
+    }
+
+    /**
+     * Free the seats on every leg in [fromLeg, toLeg); seats outside the run are ignored
+     */
+    public void release(String trainNumber, LocalDate travelDate, String classType, int words, int[] seats,
+            int fromLeg, int toLeg) {
+        int highest = -1;
+        Update update = new Update().set("updatedAt", LocalDateTime.now());
+        for (int seat : seats) {
+            if (seat < 0) {
+                continue;
+            }
+            highest = Math.max(highest, seat);
+            for (int w = fromLeg >>> 6; w <= (toLeg - 1) >>> 6; w++) {
+                update.bitwise("occupancy." + (seat * words + w)).and(~SeatInventory.legMask(w, fromLeg, toLeg));
+            }
+        }
+        if (highest < 0) {
+            return;
+        }
+
+        // $bit on an index past the end would grow the array
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(SeatLedger.idOf(trainNumber, travelDate,
+                classType)).and("words").is(words).and("seatCount").gt(highest)), update, SeatLedger.class);
+    }
+
+    private static SeatLedger ledgerOf(String trainNumber, LocalDate travelDate, String classType,
+            SeatInventory inventory, long[] occupancy) {
+        List<Long> words = new ArrayList<>(occupancy.length);
+        for (long word : occupancy) {
+            words.add(word);
+        }
+        return new SeatLedger(trainNumber, travelDate, classType, inventory.getSeatCount(), inventory.getWords(),
+                words, travelDate.plusDays(RETENTION_DAYS).atStartOfDay());
+    }
+
+    private static long[] toArray(List<Long> words) {
+        long[] array = new long[words.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = words.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Positions of the bits of word w covering legs in [fromLeg, toLeg)
+     */
+    private static List<Integer> legBits(int w, int fromLeg, int toLeg) {
+        List<Integer> bits = new ArrayList<>();
+        for (int leg = Math.max(fromLeg, w << 6); leg < Math.min(toLeg, (w + 1) << 6); leg++) {
+            bits.add(leg - (w << 6));
+        }
+        return bits;
+    }
+}
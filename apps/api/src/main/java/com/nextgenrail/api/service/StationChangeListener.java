@@ -0,0 +1,61 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.config.CacheConfig;
+import com.nextgenrail.api.model.Station;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps in-memory station structures in sync with the stations collection
+ * Cached lookups are dropped at once; the search indexes are rebuilt in the background, once per burst of writes
+ */
+@Component
+public class StationChangeListener extends AbstractMongoEventListener<Station> {
+
+    @Autowired
+    private StationSearchIndex stationSearchIndex;
+
+    @Autowired
+    private NearbyStationIndex nearbyStationIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final DebouncedRebuild indexRebuild;
+
+    public StationChangeListener(@Value("${app.catalog.rebuild-delay-ms:500}") long rebuildDelayMillis) {
+        this.indexRebuild = new DebouncedRebuild("station-index", rebuildDelayMillis, () -> {
+            stationSearchIndex.rebuild();
+            nearbyStationIndex.rebuild();
+        });
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Station> event) {
+        stationsChanged();
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Station> event) {
+        stationsChanged();
+    }
+
+    private void stationsChanged() {
+        indexRebuild.request();
+        clear(CacheConfig.STATION_BY_CODE);
+        clear(CacheConfig.MAJOR_STATIONS);
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,472 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Station;
+import com.nextgenrail.api.repository.StationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * In-memory index for station autocomplete
+ *
+ * Station code, name, city and every word of the name and city are inserted
+ * into a character trie. Stations are inserted in rank order (principal
+ * stations first, then by name), so each node only has to keep the first
+ * few stations that reach it to know its top suggestions.
+ *
+ * When the prefix match comes up short, a trigram index finds candidates for
+ * misspelt queries, which are re-ranked by bounded edit distance.
+ */
+@Service
+public class StationSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(StationSearchIndex.class);
+
+    // Shorter queries match too many stations by trigram to be useful
+    private static final int MIN_FUZZY_LENGTH = 5;
+    private static final int MAX_FUZZY_LENGTH = 64;
+    private static final int MAX_FUZZY_DISTANCE = 2;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Value("${app.stations.max-suggestions:10}")
+    private int maxSuggestions;
+
+    // Replaced wholesale on rebuild so readers always see a consistent index
+    private volatile Snapshot snapshot = new Snapshot(new Station[0], new Node(), new String[0][],
+            new long[0], new int[] { 0 }, new int[0]);
+
+    /**
+     * Build the index once the application (and any seeding) has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index from active stations and swap it in atomically
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+
+        List<Station> active = new ArrayList<>(stationRepository.findByIsActiveTrue());
+        active.sort(Comparator.comparing(Station::isPrincipalStation).reversed()
+                .thenComparing(station -> station.getName() != null ? station.getName() : ""));
+
+        Station[] stations = active.toArray(new Station[0]);
+        String[][] terms = new String[stations.length][];
+        Node root = new Node();
+        TreeMap<Long, List<Integer>> postings = new TreeMap<>();
+
+        for (int rank = 0; rank < stations.length; rank++) {
+            Set<String> keys = keysOf(stations[rank]);
+            terms[rank] = keys.toArray(new String[0]);
+            for (String key : keys) {
+                insert(root, key, rank);
+                for (int i = 0; i < key.length(); i++) {
+                    List<Integer> posting = postings.computeIfAbsent(trigram(key, i), gram -> new ArrayList<>());
+                    // Ranks arrive in order, so a repeat can only be the last entry
+                    if (posting.isEmpty() || posting.get(posting.size() - 1) != rank) {
+                        posting.add(rank);
+                    }
+                }
+            }
+        }
+
+        long[] gramKeys = new long[postings.size()];
+        int[] gramOffsets = new int[postings.size() + 1];
+        int[] gramStations = new int[postings.values().stream().mapToInt(List::size).sum()];
+        int gram = 0;
+        int offset = 0;
+        for (Map.Entry<Long, List<Integer>> entry : postings.entrySet()) {
+            gramKeys[gram] = entry.getKey();
+            gramOffsets[gram++] = offset;
+            for (int rank : entry.getValue()) {
+                gramStations[offset++] = rank;
+            }
+        }
+        gramOffsets[gram] = offset;
+
+        snapshot = new Snapshot(stations, root, terms, gramKeys, gramOffsets, gramStations);
+
+        logger.info("Station search index rebuilt: {} stations, {} trigrams in {} ms",
+                stations.length, gramKeys.length, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Top stations whose code, name, city or any word of them starts with the query,
+     * followed by close misspellings when there are fewer prefix matches than the limit
+     */
+    public List<Station> suggest(String query, int limit) {
+        Snapshot current = snapshot;
+        int wanted = Math.min(limit, maxSuggestions);
+        if (wanted <= 0) {
+            return List.of();
+        }
+
+        Node node = prefixNode(current.root(), query);
+        int prefixCount = node != null ? Math.min(wanted, node.top.length) : 0;
+        if (prefixCount == wanted) {
+            List<Station> suggestions = new ArrayList<>(prefixCount);
+            for (int i = 0; i < prefixCount; i++) {
+                suggestions.add(current.stations()[node.top[i]]);
+            }
+            return suggestions;
+        }
+
+        List<Station> suggestions = new ArrayList<>(wanted);
+        for (int i = 0; i < prefixCount; i++) {
+            suggestions.add(current.stations()[node.top[i]]);
+        }
+        fuzzyMatches(current, normalize(query), node, prefixCount, wanted, suggestions);
+        return suggestions;
+    }
+
+    private static Node prefixNode(Node root, String query) {
+        Node node = root;
+        boolean pendingSpace = false;
+        boolean started = false;
+
+        // Normalise on the fly exactly as keys were normalised, without building a new string
+        for (int i = 0; i < query.length() && node != null; i++) {
+            char c = Character.toLowerCase(query.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                node = node.child(' ');
+                pendingSpace = false;
+                if (node == null) {
+                    break;
+                }
+            }
+            node = node.child(c);
+            started = true;
+        }
+        return started ? node : null;
+    }
+
+    /**
+     * Append stations within a small edit distance of the query, skipping prefix matches already returned
+     * Candidates must share enough trigrams with the query to possibly be within that distance
+     */
+    private static void fuzzyMatches(Snapshot current, String query, Node prefixNode, int prefixCount, int wanted,
+            List<Station> suggestions) {
+        if (query.length() < MIN_FUZZY_LENGTH || query.length() > MAX_FUZZY_LENGTH) {
+            return;
+        }
+
+        int maxDistance = query.length() < 8 ? 1 : MAX_FUZZY_DISTANCE;
+        Scratch scratch = SCRATCH.get();
+        scratch.ensureCapacity(current.stations().length);
+
+        // Distinct trigrams of the query
+        long[] grams = scratch.grams;
+        for (int i = 0; i < query.length(); i++) {
+            grams[i] = trigram(query, i);
+        }
+        Arrays.sort(grams, 0, query.length());
+        int gramCount = 0;
+        for (int i = 0; i < query.length(); i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) {
+                grams[gramCount++] = grams[i];
+            }
+        }
+
+        // Count shared trigrams per station
+        int[] counts = scratch.counts;
+        int[] touched = scratch.touched;
+        int touchedCount = 0;
+        for (int g = 0; g < gramCount; g++) {
+            int gram = Arrays.binarySearch(current.gramKeys(), grams[g]);
+            if (gram < 0) {
+                continue;
+            }
+            for (int p = current.gramOffsets()[gram]; p < current.gramOffsets()[gram + 1]; p++) {
+                int rank = current.gramStations()[p];
+                if (counts[rank]++ == 0) {
+                    touched[touchedCount++] = rank;
+                }
+            }
+        }
+
+        // Each edit changes at most three trigrams, so order candidates by shared count (most first)
+        int minShared = Math.max(1, gramCount - 3 * maxDistance);
+        int[] bucketEnd = scratch.bucketEnd;
+        Arrays.fill(bucketEnd, 0, gramCount + 2, 0);
+        for (int t = 0; t < touchedCount; t++) {
+            bucketEnd[gramCount - counts[touched[t]] + 1]++;
+        }
+        for (int b = 1; b <= gramCount + 1; b++) {
+            bucketEnd[b] += bucketEnd[b - 1];
+        }
+        int[] ordered = scratch.ordered;
+        for (int t = 0; t < touchedCount; t++) {
+            int rank = touched[t];
+            ordered[bucketEnd[gramCount - counts[rank]]++] = rank;
+            counts[rank] = 0;
+        }
+
+        long[] matches = scratch.matches;
+        int matchCount = 0;
+        int[] withinDistance = scratch.withinDistance;
+        Arrays.fill(withinDistance, 0);
+        int needed = wanted - prefixCount;
+        int position = 0;
+        for (int shared = gramCount; shared >= minShared; shared--) {
+            // Nothing with this few shared trigrams can beat the matches already found
+            int lowerBound = (gramCount - shared + 2) / 3;
+            if (lowerBound > 0 && withinDistance[lowerBound - 1] >= needed) {
+                break;
+            }
+
+            int end = bucketEnd[gramCount - shared];
+            for (; position < end; position++) {
+                int rank = ordered[position];
+                if (isPrefixMatch(prefixNode, prefixCount, rank)) {
+                    continue;
+                }
+
+                int distance = maxDistance + 1;
+                for (String term : current.terms()[rank]) {
+                    distance = Math.min(distance, prefixDistance(query, term, distance - 1, scratch));
+                    if (distance == 0) {
+                        break;
+                    }
+                }
+                if (distance <= maxDistance) {
+                    // Closest first, then station rank
+                    matches[matchCount++] = ((long) distance << 32) | rank;
+                    for (int d = distance; d <= maxDistance; d++) {
+                        withinDistance[d]++;
+                    }
+                }
+            }
+        }
+
+        Arrays.sort(matches, 0, matchCount);
+        for (int m = 0; m < matchCount && suggestions.size() < wanted; m++) {
+            suggestions.add(current.stations()[(int) matches[m]]);
+        }
+    }
+
+    private static boolean isPrefixMatch(Node prefixNode, int prefixCount, int rank) {
+        for (int i = 0; i < prefixCount; i++) {
+            if (prefixNode.top[i] == rank) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Edit distance between the query and the closest prefix of the term, or bound + 1 if greater than bound
+     * Only the diagonal band within the bound is evaluated; cells outside it cannot be within the bound
+     */
+    private static int prefixDistance(String query, String term, int bound, Scratch scratch) {
+        if (bound < 0) {
+            return 0;
+        }
+
+        int over = bound + 1;
+        int columns = term.length();
+        int[] previous = scratch.previousRow(columns + 2);
+        int[] row = scratch.row(columns + 2);
+        int previousHigh = Math.min(columns, bound);
+        for (int j = 0; j <= previousHigh; j++) {
+            previous[j] = j;
+        }
+        previous[previousHigh + 1] = over;
+
+        for (int i = 1; i <= query.length(); i++) {
+            int low = Math.max(1, i - bound);
+            int high = Math.min(columns, i + bound);
+            if (low > high + 1) {
+                // The query has run more than the bound past the end of the term
+                return over;
+            }
+
+            row[low - 1] = low == 1 ? Math.min(i, over) : over;
+            int rowMin = row[low - 1];
+            char c = query.charAt(i - 1);
+            for (int j = low; j <= high; j++) {
+                int cost = c == term.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(row[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                row[j] = Math.min(value, over);
+                rowMin = Math.min(rowMin, row[j]);
+            }
+            if (rowMin > bound) {
+                return over;
+            }
+            row[high + 1] = over;
+
+            int[] swap = previous;
+            previous = row;
+            row = swap;
+            previousHigh = high;
+        }
+
+        // Any prefix of the term may end the match
+        int best = over;
+        for (int j = Math.max(0, query.length() - bound); j <= previousHigh; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Trigram ending at position i of a key padded with two leading spaces
+     */
+    private static long trigram(String key, int i) {
+        char first = i >= 2 ? key.charAt(i - 2) : ' ';
+        char second = i >= 1 ? key.charAt(i - 1) : ' ';
+        return ((long) first << 32) | ((long) second << 16) | key.charAt(i);
+    }
+
+    private void insert(Node root, String key, int rank) {
+        Node node = root;
+        for (int i = 0; i < key.length(); i++) {
+            node = node.childOrCreate(key.charAt(i));
+            // Stations arrive in rank order and insert all their keys before the next one
+            int size = node.top.length;
+            if (size < maxSuggestions && (size == 0 || node.top[size - 1] != rank)) {
+                node.top = Arrays.copyOf(node.top, size + 1);
+                node.top[size] = rank;
+            }
+        }
+    }
+
+    private static Set<String> keysOf(Station station) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String field : new String[] { station.getCode(), station.getName(), station.getCity() }) {
+            String normalized = normalize(field);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            keys.add(normalized);
+
+            // Also match from the start of every later word ("delhi" -> "Old Delhi Junction")
+            for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+                keys.add(normalized.substring(i + 1));
+            }
+        }
+        return keys;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+
+        StringBuilder normalized = new StringBuilder(value.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = Character.toLowerCase(value.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Trie, per-station search terms and trigram postings (sorted gram keys with offsets into station ranks)
+     */
+    private record Snapshot(Station[] stations, Node root, String[][] terms,
+            long[] gramKeys, int[] gramOffsets, int[] gramStations) {
+    }
+
+    /**
+     * Per-thread working arrays for fuzzy matching, grown to the largest index seen
+     */
+    private static final class Scratch {
+        final long[] grams = new long[MAX_FUZZY_LENGTH];
+        int[] counts = new int[0];
+        int[] touched = new int[0];
+        int[] ordered = new int[0];
+        final int[] bucketEnd = new int[MAX_FUZZY_LENGTH + 2];
+        final int[] withinDistance = new int[MAX_FUZZY_DISTANCE + 1];
+        long[] matches = new long[0];
+        private int[] rowA = new int[32];
+        private int[] rowB = new int[32];
+
+        void ensureCapacity(int stationCount) {
+            if (counts.length < stationCount) {
+                counts = new int[stationCount];
+                touched = new int[stationCount];
+                ordered = new int[stationCount];
+                matches = new long[stationCount];
+            }
+        }
+
+        int[] previousRow(int length) {
+            if (rowA.length < length) {
+                rowA = new int[length];
+            }
+            return rowA;
+        }
+
+        int[] row(int length) {
+            if (rowB.length < length) {
+                rowB = new int[length];
+            }
+            return rowB;
+        }
+    }
+
+    /**
+     * Trie node with sorted child labels and the ranks of its top stations
+     */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final int[] NO_STATIONS = new int[0];
+
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+        int[] top = NO_STATIONS;
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            if (index >= 0) {
+                return children[index];
+            }
+
+            int insertAt = -index - 1;
+            Node created = new Node();
+            char[] grownKeys = new char[keys.length + 1];
+            Node[] grownChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, grownKeys, 0, insertAt);
+            System.arraycopy(children, 0, grownChildren, 0, insertAt);
+            grownKeys[insertAt] = c;
+            grownChildren[insertAt] = created;
+            System.arraycopy(keys, insertAt, grownKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, grownChildren, insertAt + 1, children.length - insertAt);
+            keys = grownKeys;
+            children = grownChildren;
+            return created;
+        }
+    }
+}
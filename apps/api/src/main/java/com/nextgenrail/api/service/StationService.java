@@ -0,0 +1,49 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.config.CacheConfig;
+import com.nextgenrail.api.dto.CursorPage;
+import com.nextgenrail.api.model.Station;
+import com.nextgenrail.api.repository.StationRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Station service
+ * Handles cached station lookups and catalog paging
+ */
+@Service
+public class StationService {
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    /**
+     * Find station by code
+     */
+    @Cacheable(cacheNames = CacheConfig.STATION_BY_CODE, key = "#code.toUpperCase()")
+    public Optional<Station> findByCode(String code) {
+        return stationRepository.findByCodeIgnoreCase(code.toUpperCase());
+    }
+
+    /**
+     * Find active principal stations
+     */
+    @Cacheable(CacheConfig.MAJOR_STATIONS)
+    public List<Station> findMajorStations() {
+        return stationRepository.findByIsPrincipalStationTrueAndIsActiveTrue();
+    }
+
+    /**
+     * Page of active stations in code order, starting after the given cursor
+     */
+    public CursorPage<Station> findStationsPage(String after, int size) {
+        List<Station> rows = stationRepository.findByIsActiveTrueAndCodeGreaterThanOrderByCodeAsc(
+                after != null ? after.toUpperCase() : "", PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, Station::getCode);
+    }
+}
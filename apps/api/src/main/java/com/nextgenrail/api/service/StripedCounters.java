@@ -0,0 +1,87 @@
+package com.nextgenrail.api.service;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Fixed-size set of int counters that spreads contended updates over stripes
+ *
+ * Counters start out as one atomic array. The first time an update loses a
+ * race, stripes are added and each thread then updates the stripe picked by
+ * its thread id, so a train run booked from many threads at once stops
+ * contending on a single cache line, while quiet runs keep a single array.
+ *
+ * Reads sum the base and every stripe without locking, so a read racing with
+ * updates sees some of them and not others. While a counter only receives
+ * increments, a later read never returns less than an earlier one. Counters
+ * are also decremented (cancellations, waitlist promotions) and reset (chart
+ * preparation); with those in flight a read can be briefly off in either
+ * direction, even below zero. Once updates to a slot stop, reads are exact.
+ */
+public final class StripedCounters {
+
+    // A power of two at least as large as the number of CPUs
+    private static final int STRIPES = Math.max(2,
+            Integer.highestOneBit(Runtime.getRuntime().availableProcessors() - 1) << 1);
+
+    private final int length;
+    private final AtomicIntegerArray base;
+    private volatile AtomicIntegerArray[] stripes;
+
+    public StripedCounters(int length) {
+        this.length = length;
+        this.base = new AtomicIntegerArray(length);
+    }
+
+    public void add(int slot, int delta) {
+        AtomicIntegerArray[] current = stripes;
+        if (current == null) {
+            int value = base.get(slot);
+            if (base.compareAndSet(slot, value, value + delta)) {
+                return;
+            }
+            current = inflate();
+        }
+        current[stripeOf(current.length)].addAndGet(slot, delta);
+    }
+
+    public int get(int slot) {
+        int sum = base.get(slot);
+        AtomicIntegerArray[] current = stripes;
+        if (current != null) {
+            for (AtomicIntegerArray stripe : current) {
+                sum += stripe.get(slot);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Set a counter to zero; updates made while it is being cleared may be lost
+     */
+    public void reset(int slot) {
+        base.set(slot, 0);
+        AtomicIntegerArray[] current = stripes;
+        if (current != null) {
+            for (AtomicIntegerArray stripe : current) {
+                stripe.set(slot, 0);
+            }
+        }
+    }
+
+    private synchronized AtomicIntegerArray[] inflate() {
+        AtomicIntegerArray[] current = stripes;
+        if (current == null) {
+            current = new AtomicIntegerArray[STRIPES];
+            for (int i = 0; i < current.length; i++) {
+                current[i] = new AtomicIntegerArray(length);
+            }
+            stripes = current;
+        }
+        return current;
+    }
+
+    @SuppressWarnings("deprecation") // Thread.threadId() needs Java 19
+    private static int stripeOf(int stripes) {
+        return (int) ((Thread.currentThread().getId() * 0x9E3779B97F4A7C15L) >>> 32) & (stripes - 1);
+    }
+}
@@ -0,0 +1,262 @@
+package com.nextgenrail.api.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nextgenrail.api.dto.AdmissionTicket;
+import com.nextgenrail.api.model.AdmissionStatus;
+import com.nextgenrail.api.model.Booking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admission queue for Tatkal bookings
+ *
+ * When the Tatkal window opens most requests target a few train runs at once.
+ * Each (train, travel date) gets its own FIFO lane, and at most a fixed number
+ * of its bookings run at the same time, so one popular train cannot take every
+ * worker or flood the database. Requests that would wait longer than the
+ * configured limit are rejected up front rather than timing out later.
+ * Waiting times are estimated from a moving average of booking durations.
+ */
+@Service
+public class TatkalAdmissionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(TatkalAdmissionQueue.class);
+
+    // Weight of the latest booking duration in the moving average
+    private static final double SMOOTHING = 0.2;
+
+    @Autowired
+    private BookingService bookingService;
+
+    private final int workersPerRun;
+    private final int maxQueueDepth;
+    private final long maxWaitMillis;
+    private final double initialServiceMillis;
+
+    private final ExecutorService workers;
+    private final Cache<String, Ticket> tickets;
+    private final Map<RunKey, Lane> lanes = new ConcurrentHashMap<>();
+
+    private record RunKey(String trainNumber, LocalDate travelDate) {
+    }
+
+    public TatkalAdmissionQueue(
+            @Value("${app.booking.tatkal.workers:32}") int workers,
+            @Value("${app.booking.tatkal.workers-per-run:4}") int workersPerRun,
+            @Value("${app.booking.tatkal.max-queue-depth:5000}") int maxQueueDepth,
+            @Value("${app.booking.tatkal.max-wait-seconds:120}") long maxWaitSeconds,
+            @Value("${app.booking.tatkal.initial-service-millis:50}") double initialServiceMillis,
+            @Value("${app.booking.tatkal.ticket-ttl-minutes:15}") long ticketTtlMinutes) {
+        this.workersPerRun = workersPerRun;
+        this.maxQueueDepth = maxQueueDepth;
+        this.maxWaitMillis = maxWaitSeconds * 1000;
+        this.initialServiceMillis = initialServiceMillis;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, task -> {
+            Thread thread = new Thread(task, "tatkal-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ticketTtlMinutes))
+                .build();
+    }
+
+    /**
+     * Queue a Tatkal booking request
+     * Returns a QUEUED ticket, or a REJECTED one when the run's queue is full
+     */
+    public AdmissionTicket submit(Booking bookingRequest) {
+        if (bookingRequest.getTrain() == null || bookingRequest.getTrain().getTrainNumber() == null
+                || bookingRequest.getTravelDate() == null) {
+            throw new IllegalArgumentException("Train and travel date are required");
+        }
+
+        RunKey key = new RunKey(bookingRequest.getTrain().getTrainNumber().toUpperCase(),
+                bookingRequest.getTravelDate());
+        Lane lane = lanes.computeIfAbsent(key, k -> new Lane(workersPerRun, initialServiceMillis));
+
+        Ticket ticket;
+        synchronized (lane) {
+            long waiting = lane.issued - lane.started;
+            long waitMillis = lane.waitMillis(waiting + 1);
+            if (waiting >= maxQueueDepth || waitMillis > maxWaitMillis) {
+                logger.info("Rejected Tatkal request for {}: {} waiting, about {} ms", key, waiting, waitMillis);
+                return new AdmissionTicket(null, bookingRequest.getUserId(), AdmissionStatus.REJECTED, 0,
+                        toSeconds(Math.min(waitMillis, maxWaitMillis)), null,
+                        "Tatkal queue for this train is full, please retry later");
+            }
+            ticket = new Ticket(UUID.randomUUID().toString(), ++lane.issued, lane, bookingRequest);
+            lane.waiting.add(ticket);
+        }
+
+        tickets.put(ticket.id, ticket);
+        drain(lane);
+        return view(ticket);
+    }
+
+    /**
+     * Current state of a ticket, with its position and expected wait while queued
+     * Callers must check the ticket's user id before showing it to anyone
+     */
+    public Optional<AdmissionTicket> getTicket(String ticketId) {
+        return Optional.ofNullable(tickets.getIfPresent(ticketId)).map(this::view);
+    }
+
+    /**
+     * Drop the lanes of journeys that have already departed
+     */
+    @Scheduled(cron = "${app.booking.calendar-refresh-cron:0 0 0 * * *}")
+    public void evictDeparted() {
+        LocalDate today = LocalDate.now();
+        lanes.keySet().removeIf(key -> key.travelDate().isBefore(today));
+    }
+
+    /**
+     * Start queued bookings while the lane has free workers
+     */
+    private void drain(Lane lane) {
+        while (lane.permits.tryAcquire()) {
+            Ticket next;
+            synchronized (lane) {
+                next = lane.waiting.poll();
+                if (next != null) {
+                    lane.started = next.sequence;
+                }
+            }
+            if (next == null) {
+                lane.permits.release();
+                // A request queued while this thread held the permit would otherwise be left waiting
+                synchronized (lane) {
+                    if (lane.waiting.isEmpty()) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            next.status = AdmissionStatus.PROCESSING;
+            try {
+                workers.execute(() -> process(next));
+            } catch (RejectedExecutionException e) {
+                lane.permits.release();
+                fail(next, "Booking service is shutting down");
+                return;
+            }
+        }
+    }
+
+    private void process(Ticket ticket) {
+        Lane lane = ticket.lane;
+        long start = System.nanoTime();
+        try {
+            Booking booking = bookingService.createBooking(ticket.request);
+            ticket.pnrNumber = booking.getPnrNumber();
+            ticket.message = booking.getStatus() != null ? booking.getStatus().name() : null;
+            ticket.status = AdmissionStatus.COMPLETED;
+        } catch (RuntimeException e) {
+            logger.warn("Tatkal booking {} failed: {}", ticket.id, e.getMessage());
+            ticket.message = e.getMessage();
+            ticket.status = AdmissionStatus.FAILED;
+        } finally {
+            ticket.request = null;
+            // Keep finished tickets around for the full TTL so clients can poll the outcome
+            tickets.put(ticket.id, ticket);
+            lane.recordDuration((System.nanoTime() - start) / 1_000_000.0);
+            lane.permits.release();
+            drain(lane);
+        }
+    }
+
+    private void fail(Ticket ticket, String message) {
+        ticket.request = null;
+        ticket.message = message;
+        ticket.status = AdmissionStatus.FAILED;
+    }
+
+    private AdmissionTicket view(Ticket ticket) {
+        AdmissionStatus status = ticket.status;
+        long position = 0;
+        long etaMillis = 0;
+        if (status == AdmissionStatus.QUEUED) {
+            synchronized (ticket.lane) {
+                position = Math.max(1, ticket.sequence - ticket.lane.started);
+                etaMillis = ticket.lane.waitMillis(position);
+            }
+        }
+        return new AdmissionTicket(ticket.id, ticket.userId, status, position, toSeconds(etaMillis),
+                ticket.pnrNumber, ticket.message);
+    }
+
+    private static long toSeconds(long millis) {
+        return (millis + 999) / 1000;
+    }
+
+    /**
+     * Queue and worker permits of one train run
+     * Queue fields and the duration average are guarded by the lane's monitor
+     */
+    private static final class Lane {
+        final Semaphore permits;
+        final int workers;
+        final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+        long issued; // Sequence number of the last ticket handed out
+        long started; // Sequence number of the last ticket taken off the queue
+        double averageMillis;
+
+        Lane(int workers, double initialServiceMillis) {
+            this.permits = new Semaphore(workers);
+            this.workers = workers;
+            this.averageMillis = initialServiceMillis;
+        }
+
+        /**
+         * Expected time until the request at the given position has been booked
+         */
+        long waitMillis(long position) {
+            return (long) Math.ceil(position * averageMillis / workers);
+        }
+
+        synchronized void recordDuration(double millis) {
+            averageMillis += SMOOTHING * (millis - averageMillis);
+        }
+    }
+
+    private static final class Ticket {
+        final String id;
+        final String userId; // Owner of the request, kept after the request itself is dropped
+        final long sequence;
+        final Lane lane;
+        volatile Booking request;
+        volatile AdmissionStatus status = AdmissionStatus.QUEUED;
+        volatile String pnrNumber;
+        volatile String message;
+
+        Ticket(String id, long sequence, Lane lane, Booking request) {
+            this.id = id;
+            this.userId = request.getUserId();
+            this.sequence = sequence;
+            this.lane = lane;
+            this.request = request;
+        }
+    }
+}
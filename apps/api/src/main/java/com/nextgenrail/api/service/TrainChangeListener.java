@@ -0,0 +1,52 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.config.CacheConfig;
+import com.nextgenrail.api.model.Train;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps in-memory train structures in sync with the trains collection
+ * Cached train details are dropped at once; the search index is rebuilt in the background, once per burst of writes
+ */
+@Component
+public class TrainChangeListener extends AbstractMongoEventListener<Train> {
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final DebouncedRebuild indexRebuild;
+
+    public TrainChangeListener(@Value("${app.catalog.rebuild-delay-ms:500}") long rebuildDelayMillis) {
+        // Rebuilding the index also clears cached search results
+        this.indexRebuild = new DebouncedRebuild("train-index", rebuildDelayMillis, () -> trainSearchIndex.rebuild());
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Train> event) {
+        trainsChanged();
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Train> event) {
+        trainsChanged();
+    }
+
+    private void trainsChanged() {
+        indexRebuild.request();
+
+        Cache cache = cacheManager.getCache(CacheConfig.TRAIN_DETAILS);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.config.CacheConfig;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.TrainRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory index of active trains keyed by ordered station pair
+ * Answers train search without a database round trip
+ */
+@Service
+public class TrainSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrainSearchIndex.class);
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${app.booking.advance-reservation-days:120}")
+    private int advanceReservationDays;
+
+    // Replaced wholesale on rebuild so readers always see a consistent timetable
+    private volatile CompiledTimetable timetable = CompiledTimetable.EMPTY;
+
+    // Bumped after each rebuild; part of every search cache key
+    private volatile long generation;
+
+    /**
+     * Build the index once the application (and any seeding) has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Roll the run calendars forward as the booking horizon moves
+     */
+    @Scheduled(cron = "${app.booking.calendar-refresh-cron:0 0 0 * * *}")
+    public void refreshCalendars() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index from active trains and swap it in atomically
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+
+        List<Train> trains = trainRepository.findByIsActiveTrue();
+        CompiledTimetable compiled = CompiledTimetable.compile(trains, LocalDate.now(), advanceReservationDays + 1);
+        timetable = compiled;
+        generation++;
+
+        // Cached search results refer to the previous timetable; new lookups use new keys, this frees the memory
+        Cache searchCache = cacheManager.getCache(CacheConfig.TRAIN_SEARCH);
+        if (searchCache != null) {
+            searchCache.clear();
+        }
+
+        logger.info("Train search index rebuilt: {} trains, {} stations in {} ms",
+                compiled.trainCount(), compiled.stationCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Current compiled timetable; callers should read it once per operation
+     */
+    public CompiledTimetable getTimetable() {
+        return timetable;
+    }
+
+    /**
+     * Number of rebuilds so far
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Segments between two stations whose trains leave the source station on the given day of week
+     * Cached per (timetable generation, from, to, day of week); the result pins the timetable it was computed from.
+     * The key is taken before the timetable is read, so an entry is never older than its generation, and a lookup
+     * racing a rebuild can only leave an entry under the old generation, which is never read again
+     */
+    @Cacheable(cacheNames = CacheConfig.TRAIN_SEARCH,
+            key = "#root.target.generation() + ':' + #sourceStationCode + ':' + #destinationStationCode + ':' + #dayOfWeek")
+    public RunningSegments findRunningSegments(String sourceStationCode, String destinationStationCode,
+            DayOfWeek dayOfWeek) {
+        CompiledTimetable current = timetable;
+        LocalDate sampleDate = LocalDate.now().with(TemporalAdjusters.nextOrSame(dayOfWeek));
+
+        List<CompiledTimetable.Segment> running = new ArrayList<>();
+        for (CompiledTimetable.Segment segment : current.trainsBetween(sourceStationCode, destinationStationCode)) {
+            if (current.runsOn(segment, sampleDate)) {
+                running.add(segment);
+            }
+        }
+        return new RunningSegments(current, List.copyOf(running));
+    }
+
+    public record RunningSegments(CompiledTimetable timetable, List<CompiledTimetable.Segment> segments) {
+    }
+
+    /**
+     * Run calendar of an active train, if indexed
+     */
+    public Optional<RunCalendar> getRunCalendar(String trainNumber) {
+        CompiledTimetable current = timetable;
+        int train = current.trainId(trainNumber);
+        return train >= 0 ? Optional.of(current.calendar(train)) : Optional.empty();
+    }
+}
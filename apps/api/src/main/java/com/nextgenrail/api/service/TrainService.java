@@ -0,0 +1,96 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.config.CacheConfig;
+import com.nextgenrail.api.dto.CursorPage;
+import com.nextgenrail.api.dto.TrainSearchResult;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.TrainRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Train service
+ * Handles train search and cached train lookups
+ */
+@Service
+public class TrainService {
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private TrainSearchIndex trainSearchIndex;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Search active trains leaving the source station on the given date for the destination
+     * Each result describes only the searched segment
+     */
+    public List<TrainSearchResult> searchTrains(String sourceStationCode, String destinationStationCode,
+            LocalDate journeyDate) {
+        TrainSearchIndex.RunningSegments running = trainSearchIndex.findRunningSegments(
+                sourceStationCode, destinationStationCode, journeyDate.getDayOfWeek());
+        CompiledTimetable timetable = running.timetable();
+        List<TrainSearchResult> results = new ArrayList<>(running.segments().size());
+
+        for (CompiledTimetable.Segment segment : running.segments()) {
+            int train = segment.train();
+            int departure = timetable.departure(segment.fromStop());
+            int arrival = timetable.arrival(segment.toStop());
+            LocalDateTime sourceMidnight = LocalDate.ofEpochDay(timetable.sourceDay(segment, journeyDate))
+                    .atStartOfDay();
+
+            TrainSearchResult result = new TrainSearchResult();
+            result.setTrainNumber(timetable.trainNumber(train));
+            result.setTrainName(timetable.trainName(train));
+            result.setTrainType(timetable.trainType(train));
+            result.setFromStationCode(timetable.stationCode(timetable.stopStation(segment.fromStop())));
+            result.setFromStationName(timetable.stationName(timetable.stopStation(segment.fromStop())));
+            result.setToStationCode(timetable.stationCode(timetable.stopStation(segment.toStop())));
+            result.setToStationName(timetable.stationName(timetable.stopStation(segment.toStop())));
+            result.setDepartureTime(sourceMidnight.plusMinutes(departure));
+            result.setArrivalTime(sourceMidnight.plusMinutes(arrival));
+            result.setDurationMinutes(arrival - departure);
+            result.setDistanceKm(timetable.distance(segment.toStop()) - timetable.distance(segment.fromStop()));
+            result.setClasses(timetable.classesOffered(train));
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Find train by number
+     * Served from the train details cache; every caller gets its own copy, so changes never leak into the cache
+     */
+    public Optional<Train> findByTrainNumber(String trainNumber) {
+        Cache cache = cacheManager.getCache(CacheConfig.TRAIN_DETAILS);
+        Train train = cache != null
+                ? cache.get(trainNumber.toUpperCase(), () -> load(trainNumber))
+                : load(trainNumber);
+        return Optional.ofNullable(train).map(Train::copy);
+    }
+
+    /**
+     * Page of trains in train number order, starting after the given cursor
+     */
+    public CursorPage<Train> findTrainsPage(String after, int size) {
+        List<Train> rows = trainRepository.findByTrainNumberGreaterThanOrderByTrainNumberAsc(
+                after != null ? after : "", PageRequest.of(0, size + 1));
+        return CursorPage.of(rows, size, Train::getTrainNumber);
+    }
+
+    private Train load(String trainNumber) {
+        return trainRepository.findByTrainNumberIgnoreCase(trainNumber).orElse(null);
+    }
+}
@@ -0,0 +1,331 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.BookingRepository;
+import com.nextgenrail.api.service.SeatInventoryService.InventoryKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Promotes waiting bookings when confirmed seats are cancelled
+ *
+ * Each (train, run date, class) keeps a priority queue of its RAC and
+ * WAITLISTED bookings, RAC first and then in booking order. The queue is
+ * loaded from the database the first time the run is touched and then kept
+ * up to date by new bookings and cancellations. Seats freed by a cancellation
+ * are offered to the queue while the run's inventory is still locked, so a
+ * new booking cannot take them ahead of passengers already waiting.
+ * Bookings are read and saved outside the queue's monitor, so new waiting
+ * bookings can join the queue while a promotion runs.
+ */
+@Service
+public class WaitlistPromotionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WaitlistPromotionService.class);
+
+    private static final Comparator<Waiting> PROMOTION_ORDER = Comparator
+            .comparingInt(Waiting::priority)
+            .thenComparing(Waiting::bookedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Waiting::bookingId);
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private SeatInventoryService seatInventoryService;
+
+    @Autowired
+    private AvailabilityService availabilityService;
+
+    @Autowired
+    private TrainService trainService;
+
+    // Waiting bookings looked at per cancellation, so bookings whose journey never fits cannot stall it
+    @Value("${app.booking.promotion-scan-limit:200}")
+    private int scanLimit;
+
+    private final Timer promotionTimer;
+    private final Counter promotedPassengers;
+    private final Map<InventoryKey, RunQueue> queues = new ConcurrentHashMap<>();
+
+    private record Waiting(String bookingId, int priority, LocalDateTime bookedAt,
+            String sourceStationCode, String destinationStationCode) {
+    }
+
+    public WaitlistPromotionService(MeterRegistry meterRegistry) {
+        this.promotionTimer = Timer.builder("booking.waitlist.promotion")
+                .description("Time to release a cancelled booking's seats and promote waiting bookings")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.promotedPassengers = Counter.builder("booking.waitlist.promoted")
+                .description("Waiting passengers given a confirmed seat")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Add a newly saved booking to its run's queue if some of its passengers are waiting
+     */
+    public void enqueue(Booking booking) {
+        if (booking.getStatus() != BookingStatus.WAITLISTED && booking.getStatus() != BookingStatus.RAC) {
+            return;
+        }
+        RunQueue queue = queue(booking);
+        synchronized (queue) {
+            queue.add(waitingOf(booking));
+        }
+    }
+
+    /**
+     * Free the seats of a cancelled booking and hand them to waiting bookings in order
+     * Returns the bookings that had passengers promoted. The seats are released even when promotion fails or the
+     * run's inventory cannot be loaded (train or class withdrawn); errors escape only if the release itself fails
+     */
+    public List<Booking> releaseAndPromote(Booking cancelled) {
+        Train train = cancelled.getTrain() != null
+                ? trainService.findByTrainNumber(cancelled.getTrain().getTrainNumber()).orElse(null)
+                : null;
+        if (train == null) {
+            seatInventoryService.release(cancelled);
+            return List.of();
+        }
+
+        try {
+            return promotionTimer.record(() -> seatInventoryService.withInventoryLock(train,
+                    cancelled.getRunDate(), cancelled.getClassType(), () -> {
+                        RunQueue queue = queue(cancelled);
+                        synchronized (queue) {
+                            queue.remove(cancelled.getId());
+                        }
+
+                        seatInventoryService.release(cancelled);
+                        int freed = countAllocations(cancelled, BookingStatus.CONFIRMED);
+                        if (freed == 0) {
+                            return List.<Booking>of();
+                        }
+                        try {
+                            return promote(train, cancelled.getRunDate(), cancelled.getClassType(), queue,
+                                    freed);
+                        } catch (RuntimeException e) {
+                            // The seats are free; whoever books or cancels next on the run gets them
+                            logger.error("Promotion after cancelling booking {} failed: {}",
+                                    cancelled.getPnrNumber(), e.getMessage(), e);
+                            return List.<Booking>of();
+                        }
+                    }));
+        } catch (RuntimeException e) {
+            // Nothing was promoted, so releasing again cannot take seats back from anyone
+            logger.warn("Releasing seats of booking {} without promotion: {}", cancelled.getPnrNumber(),
+                    e.getMessage());
+            seatInventoryService.release(cancelled);
+            return List.of();
+        }
+    }
+
+    /**
+     * Forget the queues of a train run, once nobody can be promoted on it any more
+     */
+    public void evictRun(String trainNumber, LocalDate runDate) {
+        queues.keySet().removeIf(key -> key.trainNumber().equals(trainNumber) && key.runDate().equals(runDate));
+    }
+
+    /**
+     * Drop queues for journeys that have already departed
+     */
+    @Scheduled(cron = "${app.booking.calendar-refresh-cron:0 0 0 * * *}")
+    public void evictDeparted() {
+        LocalDate cutoff = LocalDate.now().minusDays(1);
+        queues.keySet().removeIf(key -> key.runDate().isBefore(cutoff));
+    }
+
+    /**
+     * Offer up to freed seats to the queue; called with the run's inventory locked
+     * The queue's monitor is only held to take and put back entries, never while the database is read or written
+     */
+    private List<Booking> promote(Train train, LocalDate runDate, String classType, RunQueue queue, int freed) {
+        List<Booking> promoted = new ArrayList<>();
+        List<Waiting> stillWaiting = new ArrayList<>();
+
+        try {
+            int remaining = freed;
+            for (int scanned = 0; scanned < scanLimit && remaining > 0; scanned++) {
+                Waiting next;
+                synchronized (queue) {
+                    next = queue.poll();
+                }
+                if (next == null) {
+                    break;
+                }
+
+                // Only load bookings whose journey has a free seat
+                if (seatInventoryService.available(train, runDate, classType,
+                        next.sourceStationCode(), next.destinationStationCode()) == 0) {
+                    stillWaiting.add(next);
+                    continue;
+                }
+
+                Booking booking = bookingRepository.findById(next.bookingId()).orElse(null);
+                if (booking == null
+                        || (booking.getStatus() != BookingStatus.WAITLISTED && booking.getStatus() != BookingStatus.RAC)) {
+                    continue;
+                }
+
+                int confirmed = confirmWaitingPassengers(train, booking);
+                if (confirmed > 0) {
+                    promoted.add(booking);
+                    remaining -= confirmed;
+                }
+                if (booking.getStatus() != BookingStatus.CONFIRMED) {
+                    stillWaiting.add(next);
+                }
+            }
+        } finally {
+            // Bookings cancelled meanwhile come back too and are dropped when next read
+            synchronized (queue) {
+                stillWaiting.forEach(queue::add);
+            }
+        }
+
+        if (!promoted.isEmpty()) {
+            logger.info("Promoted {} waiting bookings after {} seats were freed", promoted.size(), freed);
+        }
+        return promoted;
+    }
+
+    /**
+     * Try to seat the booking's waiting passengers and save it; returns the number of passengers confirmed
+     */
+    private int confirmWaitingPassengers(Train train, Booking booking) {
+        List<SeatAllocation> allocations = booking.getSeatAllocations();
+        List<Integer> waitingIndexes = new ArrayList<>();
+        List<Passenger> waitingPassengers = new ArrayList<>();
+        for (int i = 0; i < allocations.size() && i < booking.getPassengers().size(); i++) {
+            BookingStatus status = allocations.get(i).getAllocationStatus();
+            if (status == BookingStatus.WAITLISTED || status == BookingStatus.RAC) {
+                waitingIndexes.add(i);
+                waitingPassengers.add(booking.getPassengers().get(i));
+            }
+        }
+        if (waitingPassengers.isEmpty()) {
+            return 0;
+        }
+
+        List<SeatAllocation> offered = seatInventoryService.allocate(train, booking.getRunDate(),
+                booking.getClassType(), booking.getSourceStationCode(), booking.getDestinationStationCode(),
+                waitingPassengers);
+        List<SeatAllocation> seated = new ArrayList<>();
+        List<SeatAllocation> updated = new ArrayList<>(allocations);
+        for (int i = 0; i < offered.size(); i++) {
+            if (offered.get(i).getAllocationStatus() == BookingStatus.CONFIRMED) {
+                updated.set(waitingIndexes.get(i), offered.get(i));
+                seated.add(offered.get(i));
+            }
+        }
+        if (seated.isEmpty()) {
+            return 0;
+        }
+
+        BookingStatus previousStatus = booking.getStatus();
+        booking.setSeatAllocations(updated);
+        booking.setStatus(seated.size() == waitingPassengers.size() ? BookingStatus.CONFIRMED : previousStatus);
+        booking.setUpdatedAt(LocalDateTime.now());
+        try {
+            bookingRepository.save(booking);
+        } catch (OptimisticLockingFailureException e) {
+            // The booking changed meanwhile (most likely cancelled); give the seats back to the run
+            logger.warn("Booking {} changed during promotion: {}", booking.getPnrNumber(), e.getMessage());
+            booking.setSeatAllocations(seated);
+            seatInventoryService.release(booking);
+            booking.setStatus(previousStatus);
+            return 0;
+        }
+
+        availabilityService.recordPromotion(booking, seated.size());
+        promotedPassengers.increment(seated.size());
+        return seated.size();
+    }
+
+    private RunQueue queue(Booking booking) {
+        InventoryKey key = new InventoryKey(booking.getTrain().getTrainNumber(), booking.getRunDate(),
+                booking.getClassType());
+        RunQueue queue = queues.computeIfAbsent(key, k -> new RunQueue());
+
+        // Load the run's waiting bookings once, on first use
+        synchronized (queue) {
+            if (!queue.loaded) {
+                for (Booking waiting : bookingRepository.findWaitingBookingsForTrainRun(booking.getTrainId(),
+                        key.runDate(), key.classType())) {
+                    queue.add(waitingOf(waiting));
+                }
+                queue.loaded = true;
+            }
+        }
+        return queue;
+    }
+
+    private static Waiting waitingOf(Booking booking) {
+        return new Waiting(booking.getId(), booking.getStatus() == BookingStatus.RAC ? 0 : 1, booking.getBookedAt(),
+                booking.getSourceStationCode(), booking.getDestinationStationCode());
+    }
+
+    private static int countAllocations(Booking booking, BookingStatus status) {
+        if (booking.getSeatAllocations() == null) {
+            return 0;
+        }
+        return (int) booking.getSeatAllocations().stream()
+                .filter(allocation -> allocation.getAllocationStatus() == status)
+                .count();
+    }
+
+    /**
+     * Waiting bookings of one run; guarded by its own monitor
+     * Removed bookings are only forgotten in the id set and skipped when they reach the head
+     */
+    private static final class RunQueue {
+        final PriorityQueue<Waiting> waiting = new PriorityQueue<>(PROMOTION_ORDER);
+        final Set<String> ids = new HashSet<>();
+        boolean loaded;
+
+        void add(Waiting entry) {
+            if (ids.add(entry.bookingId())) {
+                waiting.add(entry);
+            }
+        }
+
+        void remove(String bookingId) {
+            ids.remove(bookingId);
+        }
+
+        Waiting poll() {
+            Waiting next;
+            while ((next = waiting.poll()) != null) {
+                if (ids.remove(next.bookingId())) {
+                    return next;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.nextgenrail.api.util;
+
+import com.mongodb.DBRef;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCursor;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainSnapshot;
+import com.nextgenrail.api.repository.TrainRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rewrites bookings that reference their user and train with DBRefs
+ * Each one gets the user and train ids and a snapshot of the train; bookings already migrated are left alone,
+ * so the migration can stop and run again at any point
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+public class BookingReferenceMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingReferenceMigration.class);
+
+    private static final String COLLECTION = "bookings";
+    private static final String LEGACY_INDEX = "travel_date_train";
+    private static final int BULK_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Value("${app.catalog.cursor-batch-size:500}")
+    private int cursorBatchSize;
+
+    @Override
+    public void run(String... args) {
+        Document legacy = new Document("trainId", new Document("$exists", false))
+                .append("train", new Document("$type", "object"));
+        if (mongoTemplate.getCollection(COLLECTION).find(legacy).first() == null) {
+            return;
+        }
+
+        Map<String, Train> trains = new HashMap<>();
+        for (Train train : trainRepository.findAll()) {
+            trains.put(train.getId(), train);
+        }
+
+        long migrated = 0;
+        long missingTrains = 0;
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(COLLECTION)
+                .find(legacy)
+                .projection(new Document("user", 1)
+                        .append("train", 1)
+                        .append("sourceStationCode", 1)
+                        .append("destinationStationCode", 1))
+                .batchSize(cursorBatchSize)
+                .iterator()) {
+            BulkOperations bulk = null;
+            int pending = 0;
+            while (cursor.hasNext()) {
+                Document booking = cursor.next();
+                String trainId = idOf(booking.get("train"));
+                Train train = trainId != null ? trains.get(trainId) : null;
+
+                Update update = new Update().set("trainId", trainId).set("userId", idOf(booking.get("user")));
+                if (train != null) {
+                    update.set("train", mongoTemplate.getConverter().convertToMongoType(TrainSnapshot.of(train,
+                            booking.getString("sourceStationCode"), booking.getString("destinationStationCode"))));
+                } else {
+                    update.unset("train");
+                    missingTrains++;
+                }
+
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+                }
+                bulk.updateOne(new Query(Criteria.where("_id").is(booking.get("_id"))
+                        .and("trainId").exists(false)), update);
+                if (++pending == BULK_SIZE) {
+                    migrated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+            if (bulk != null) {
+                migrated += bulk.execute().getModifiedCount();
+            }
+        }
+
+        try {
+            mongoTemplate.getCollection(COLLECTION).dropIndex(LEGACY_INDEX);
+        } catch (MongoCommandException e) {
+            // Already dropped
+        }
+        logger.info("Replaced user and train references on {} existing bookings ({} with a missing train)",
+                migrated, missingTrains);
+    }
+
+    private static String idOf(Object reference) {
+        if (reference instanceof DBRef ref) {
+            return String.valueOf(ref.getId());
+        }
+        if (reference instanceof Document document && document.get("$id") != null) {
+            return String.valueOf(document.get("$id"));
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+package com.nextgenrail.api.util;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCursor;
+import com.nextgenrail.api.repository.TrainRepository;
+import com.nextgenrail.api.service.CompiledTimetable;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Gives bookings saved before seats were sold per run the date their run left its first station
+ * Passengers boarding after midnight get the day before their travel date; bookings whose train or station is no
+ * longer in the timetable keep their travel date. Bookings already migrated are left alone, so the migration can stop
+ * and run again at any point
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+public class BookingRunDateMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingRunDateMigration.class);
+
+    private static final String COLLECTION = "bookings";
+    // Replaced by the run date indexes
+    private static final List<String> LEGACY_INDEXES = List.of("travel_date_train_id", "updated_at_travel_date");
+    private static final int BULK_SIZE = 1000;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Value("${app.catalog.cursor-batch-size:500}")
+    private int cursorBatchSize;
+
+    @Override
+    public void run(String... args) {
+        Document legacy = new Document("runDate", new Document("$exists", false))
+                .append("travelDate", new Document("$type", "date"));
+        if (mongoTemplate.getCollection(COLLECTION).find(legacy).first() == null) {
+            return;
+        }
+
+        // The search index is built once the application is ready; only the stop times are needed here
+        CompiledTimetable timetable = CompiledTimetable.compile(trainRepository.findAll(), LocalDate.now(), 0);
+
+        long migrated = 0;
+        long overnight = 0;
+        try (MongoCursor<Document> cursor = mongoTemplate.getCollection(COLLECTION)
+                .find(legacy)
+                .projection(new Document("train.trainNumber", 1)
+                        .append("sourceStationCode", 1)
+                        .append("travelDate", 1))
+                .batchSize(cursorBatchSize)
+                .iterator()) {
+            BulkOperations bulk = null;
+            int pending = 0;
+            while (cursor.hasNext()) {
+                Document booking = cursor.next();
+                Date travelDate = booking.getDate("travelDate");
+                Date runDate = runDateOf(timetable, booking, travelDate);
+                if (!runDate.equals(travelDate)) {
+                    overnight++;
+                }
+
+                if (bulk == null) {
+                    bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, COLLECTION);
+                }
+                bulk.updateOne(new Query(Criteria.where("_id").is(booking.get("_id"))
+                        .and("runDate").exists(false)), new Update().set("runDate", runDate));
+                if (++pending == BULK_SIZE) {
+                    migrated += bulk.execute().getModifiedCount();
+                    bulk = null;
+                    pending = 0;
+                }
+            }
+            if (bulk != null) {
+                migrated += bulk.execute().getModifiedCount();
+            }
+        }
+
+        for (String index : LEGACY_INDEXES) {
+            try {
+                mongoTemplate.getCollection(COLLECTION).dropIndex(index);
+            } catch (MongoCommandException e) {
+                // Already dropped
+            }
+        }
+        logger.info("Set the run date on {} existing bookings ({} boarding after midnight)", migrated, overnight);
+    }
+
+    private static Date runDateOf(CompiledTimetable timetable, Document booking, Date travelDate) {
+        Document train = booking.get("train", Document.class);
+        int trainId = train != null ? timetable.trainId(train.getString("trainNumber")) : -1;
+        int stop = trainId >= 0
+                ? timetable.findStop(trainId, timetable.stationId(booking.getString("sourceStationCode")))
+                : -1;
+        if (stop < 0 || timetable.departure(stop) < 0) {
+            return travelDate;
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate boardingDate = travelDate.toInstant().atZone(zone).toLocalDate();
+        LocalDate runDate = LocalDate.ofEpochDay(timetable.sourceDay(stop, boardingDate));
+        return Date.from(runDate.atStartOfDay(zone).toInstant());
+    }
+}
@@ -0,0 +1,234 @@
+package com.nextgenrail.api.util;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.CoachLayout;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.TrainRepository;
+import com.nextgenrail.api.service.CompiledTimetable;
+import com.nextgenrail.api.service.SeatInventory;
+import com.nextgenrail.api.service.SeatLedgerService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives bookings on upcoming runs that were saved before seats were allocated per passenger their allocations
+ * Confirmed passengers get berths around those held by the run's other bookings and its seat ledger, in booking
+ * order, and the berths are added to the ledger; waiting passengers get an allocation in the booking's status.
+ * A confirmed booking that no longer fits on the run is waitlisted. Bookings already migrated are left alone, so the
+ * migration can stop and run again at any point
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+public class BookingSeatAllocationMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingSeatAllocationMigration.class);
+
+    private static final String COLLECTION = "bookings";
+    private static final List<String> ACTIVE = List.of(BookingStatus.CONFIRMED.name(), BookingStatus.RAC.name(),
+            BookingStatus.WAITLISTED.name(), BookingStatus.CHART_PREPARED.name());
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private TrainRepository trainRepository;
+
+    @Autowired
+    private SeatLedgerService seatLedgerService;
+
+    @Override
+    public void run(String... args) {
+        // Runs that left before yesterday are no longer sold or charted
+        Date yesterday = Date.from(LocalDate.now().minusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Document legacy = new Document("seatAllocations", null)
+                .append("runDate", new Document("$gte", yesterday))
+                .append("status", new Document("$in", ACTIVE));
+        List<Document> runs = new ArrayList<>();
+        for (Document run : mongoTemplate.getCollection(COLLECTION).aggregate(List.of(
+                new Document("$match", legacy),
+                new Document("$group", new Document("_id", new Document()
+                        .append("trainId", "$trainId")
+                        .append("runDate", "$runDate")
+                        .append("classType", "$classType")))))) {
+            runs.add(run.get("_id", Document.class));
+        }
+        if (runs.isEmpty()) {
+            return;
+        }
+
+        // The search index is built once the application is ready; only the routes are needed here
+        List<Train> trains = trainRepository.findAll();
+        CompiledTimetable timetable = CompiledTimetable.compile(trains, LocalDate.now(), 0);
+        Map<String, Train> trainsById = new HashMap<>();
+        for (Train train : trains) {
+            trainsById.put(train.getId(), train);
+        }
+
+        long migrated = 0;
+        long waitlisted = 0;
+        for (Document run : runs) {
+            Train train = trainsById.get(run.getString("trainId"));
+            Date runDate = run.getDate("runDate");
+            String classType = run.getString("classType");
+            SeatInventory inventory = train != null && runDate != null
+                    ? inventoryOf(timetable, train, classType)
+                    : null;
+            if (inventory == null) {
+                logger.warn("Cannot allocate seats on run {}: its train, route or class is gone", run.toJson());
+                continue;
+            }
+
+            MigratedRun migratedRun = migrate(timetable, train, localDate(runDate), classType, inventory);
+            migrated += migratedRun.bookings();
+            waitlisted += migratedRun.waitlisted();
+        }
+        logger.info("Allocated seats to {} existing bookings on {} runs ({} waitlisted for lack of seats)",
+                migrated, runs.size(), waitlisted);
+    }
+
+    private MigratedRun migrate(CompiledTimetable timetable, Train train, LocalDate runDate, String classType,
+            SeatInventory inventory) {
+        List<Booking> bookings = mongoTemplate.find(new Query(Criteria.where("trainId").is(train.getId())
+                .and("runDate").is(runDate)
+                .and("classType").is(classType)
+                .and("status").in(ACTIVE))
+                .with(Sort.by("bookedAt", "_id")), Booking.class);
+
+        // Berths held by the run's other bookings, then by other instances
+        List<Booking> legacy = new ArrayList<>();
+        for (Booking booking : bookings) {
+            int[] legs = legsOf(timetable, train, booking);
+            if (booking.getSeatAllocations() == null) {
+                legacy.add(booking);
+            } else if (legs != null) {
+                for (SeatAllocation allocation : booking.getSeatAllocations()) {
+                    if (allocation.getAllocationStatus() == BookingStatus.CONFIRMED) {
+                        inventory.occupy(inventory.seatIndex(allocation.getCoachNumber(), allocation.getSeatNumber()),
+                                legs[0], legs[1]);
+                    }
+                }
+            }
+        }
+        seatLedgerService.initialize(train.getTrainNumber(), runDate, classType, inventory);
+
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+        int pending = 0;
+        int waitlisted = 0;
+        for (Booking booking : legacy) {
+            int[] legs = legsOf(timetable, train, booking);
+            List<Passenger> passengers = booking.getPassengers();
+            if (legs == null || passengers == null || passengers.isEmpty()) {
+                logger.warn("Cannot allocate seats to booking {}: no passengers or no journey on train {}",
+                        booking.getPnrNumber(), train.getTrainNumber());
+                continue;
+            }
+
+            boolean seated = booking.getStatus() == BookingStatus.CONFIRMED
+                    || booking.getStatus() == BookingStatus.CHART_PREPARED;
+            int[] seats = seated ? inventory.allocate(legs[0], legs[1], berthsWanted(passengers), seniors(passengers))
+                    : new int[0];
+            List<SeatAllocation> allocations = new ArrayList<>(passengers.size());
+            for (int i = 0; i < passengers.size(); i++) {
+                String name = passengers.get(i).getName();
+                if (i < seats.length) {
+                    allocations.add(new SeatAllocation(name, inventory.coachNumber(seats[i]),
+                            inventory.seatNumber(seats[i]), inventory.berthType(seats[i]), BookingStatus.CONFIRMED));
+                } else {
+                    allocations.add(new SeatAllocation(name, null, 0, null,
+                            seated ? BookingStatus.WAITLISTED : booking.getStatus()));
+                }
+            }
+
+            Update update = new Update()
+                    .set("seatAllocations", mongoTemplate.getConverter().convertToMongoType(allocations))
+                    .inc("version", 1);
+            if (booking.getStatus() == BookingStatus.CONFIRMED && seats.length < passengers.size()) {
+                update.set("status", BookingStatus.WAITLISTED.name());
+                waitlisted++;
+            }
+            bulk.updateOne(new Query(Criteria.where("_id").is(booking.getId())
+                    .and("version").is(booking.getVersion())
+                    .and("seatAllocations").is(null)), update);
+            pending++;
+        }
+        if (pending == 0) {
+            return new MigratedRun(0, 0);
+        }
+
+        // The ledger holds the berths before any booking claims them; a booking changed meanwhile leaves them unsold
+        seatLedgerService.initialize(train.getTrainNumber(), runDate, classType, inventory);
+        return new MigratedRun(bulk.execute().getModifiedCount(), waitlisted);
+    }
+
+    /**
+     * Empty inventory of the class on the train's route, or null if the train does not offer the class any more
+     */
+    private static SeatInventory inventoryOf(CompiledTimetable timetable, Train train, String classType) {
+        CoachLayout layout = CoachLayout.forClass(classType);
+        Integer coaches = train.getCoachConfiguration() != null
+                ? train.getCoachConfiguration().get(classType)
+                : null;
+        int trainId = timetable.trainId(train.getTrainNumber());
+        if (layout == null || coaches == null || coaches <= 0 || trainId < 0) {
+            return null;
+        }
+        return new SeatInventory(layout, coaches, timetable.endStop(trainId) - timetable.firstStop(trainId) - 1);
+    }
+
+    /**
+     * Legs [from, to) of the booking's journey on the train's route, or null if the train no longer runs it
+     */
+    private static int[] legsOf(CompiledTimetable timetable, Train train, Booking booking) {
+        int trainId = timetable.trainId(train.getTrainNumber());
+        int from = timetable.findStop(trainId, timetable.stationId(booking.getSourceStationCode()));
+        int to = timetable.findStop(trainId, timetable.stationId(booking.getDestinationStationCode()));
+        if (from < 0 || to < 0 || from >= to) {
+            return null;
+        }
+        int first = timetable.firstStop(trainId);
+        return new int[] {from - first, to - first};
+    }
+
+    private static int[] berthsWanted(List<Passenger> passengers) {
+        return passengers.stream().mapToInt(passenger -> CoachLayout.berthCodeOf(passenger.getBerthPreference()))
+                .toArray();
+    }
+
+    private static boolean[] seniors(List<Passenger> passengers) {
+        boolean[] senior = new boolean[passengers.size()];
+        for (int i = 0; i < senior.length; i++) {
+            senior[i] = passengers.get(i).isSeniorCitizen();
+        }
+        return senior;
+    }
+
+    private static LocalDate localDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private record MigratedRun(long bookings, int waitlisted) {
+    }
+}
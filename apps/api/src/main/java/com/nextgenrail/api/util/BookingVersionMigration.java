@@ -0,0 +1,41 @@
+package com.nextgenrail.api.util;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nextgenrail.api.model.Booking;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gives bookings saved before optimistic locking an initial version
+ * Without one, saving such a booking would be treated as an insert and fail on its existing id
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BookingVersionMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookingVersionMigration.class);
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) {
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(Criteria.where("version").exists(false)),
+                new Update().set("version", 0L),
+                Booking.class);
+
+        if (result.getModifiedCount() > 0) {
+            logger.info("Initialised version on {} existing bookings", result.getModifiedCount());
+        }
+    }
+}
@@ -52,6 +52,7 @@ public class DatabaseSeeder implements CommandLineRunner {
             mongoTemplate.getCollection("stations").drop();
             mongoTemplate.getCollection("users").drop();
             mongoTemplate.getCollection("bookings").drop();
+            mongoTemplate.getCollection("seat_ledger").drop();
 
             // Seed data in order
             seedStations();
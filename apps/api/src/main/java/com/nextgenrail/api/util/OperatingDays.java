@@ -0,0 +1,77 @@
+package com.nextgenrail.api.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Encodes train operating days as a 7-bit mask (bit 0 = Monday ... bit 6 = Sunday)
+ */
+public final class OperatingDays {
+
+    public static final int ALL_DAYS = 0x7F;
+
+    private static final Logger logger = LoggerFactory.getLogger(OperatingDays.class);
+
+    // Values meaning every day of the week, as some timetables list them
+    private static final Set<String> EVERY_DAY = Set.of("DAILY", "ALL");
+
+    private OperatingDays() {
+    }
+
+    /**
+     * Bit for a day of the week
+     */
+    public static int bit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+
+    /**
+     * Convert day codes (MON, TUE, ...) or DAILY/ALL to a mask; unknown values are logged and ignored
+     */
+    public static int toMask(List<String> days) {
+        if (days == null) {
+            return 0;
+        }
+
+        int mask = 0;
+        for (String day : days) {
+            if (day != null && EVERY_DAY.contains(day.trim().toUpperCase(Locale.ROOT))) {
+                return ALL_DAYS;
+            }
+            DayOfWeek dayOfWeek = parse(day);
+            if (dayOfWeek != null) {
+                mask |= bit(dayOfWeek);
+            } else {
+                logger.warn("Ignoring unknown operating day '{}' in {}", day, days);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Check whether a mask includes a day of the week
+     */
+    public static boolean includes(int mask, DayOfWeek day) {
+        return (mask & bit(day)) != 0;
+    }
+
+    private static DayOfWeek parse(String day) {
+        String trimmed = day != null ? day.trim() : "";
+        if (trimmed.length() < 3) {
+            return null;
+        }
+
+        String prefix = trimmed.substring(0, 3).toUpperCase(Locale.ROOT);
+        for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+            if (dayOfWeek.name().startsWith(prefix)) {
+                return dayOfWeek;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,155 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.CoachLayout;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Berth allocation on a 12-coach SL run: how well groups are placed, and the cost of one allocate call
+ */
+@Tag("benchmark")
+class BerthAllocatorBenchmark {
+
+    private static final CoachLayout LAYOUT = CoachLayout.SL;
+    private static final int COACHES = 12;
+    private static final int SEATS = COACHES * LAYOUT.getSeatsPerCoach();
+    private static final int LEGS = 10;
+    private static final String[] BERTHS = {"LOWER", "MIDDLE", "UPPER", "SIDE_LOWER", "SIDE_UPPER"};
+
+    @Test
+    void placementOfGroupsUntilTheRunIsFull() {
+        Placement ignoring = fill(false);
+        Placement preferring = fill(true);
+        System.out.println("Ignoring preferences:  " + ignoring);
+        System.out.println("Honouring preferences: " + preferring);
+
+        assertTrue(preferring.seniorsOnLower() > ignoring.seniorsOnLower(), "Seniors must get more lower berths");
+        assertTrue(preferring.preferencesMet() > ignoring.preferencesMet(), "More preferences must be met");
+        assertTrue(preferring.inOneCoach() > 0.9, "Groups must stay in one coach");
+    }
+
+    @Test
+    void allocateOnHalfFullRun() {
+        Random random = new Random(3);
+        BerthAllocator allocator = new BerthAllocator(LAYOUT, COACHES);
+        boolean[] template = new boolean[SEATS];
+        boolean[] partlyHeld = new boolean[SEATS];
+        boolean[] free = new boolean[SEATS];
+        for (int seat = 0; seat < SEATS; seat++) {
+            template[seat] = random.nextBoolean();
+            partlyHeld[seat] = !template[seat] || random.nextInt(4) == 0;
+        }
+
+        int groups = 1024;
+        int[][] wanted = new int[groups][];
+        boolean[][] senior = new boolean[groups][];
+        for (int g = 0; g < groups; g++) {
+            int size = 1 + random.nextInt(6);
+            wanted[g] = new int[size];
+            senior[g] = new boolean[size];
+            for (int p = 0; p < size; p++) {
+                wanted[g][p] = random.nextInt(3) == 0 ? random.nextInt(BERTHS.length) : BerthAllocator.NO_PREFERENCE;
+                senior[g][p] = random.nextInt(5) == 0;
+            }
+        }
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        int[] seats = new int[6];
+        long seated = 0;
+        double bytesPerCall = 0;
+        for (int round = 0; round < 5; round++) {
+            int calls = 1_000_000;
+            long bytesBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                int g = i & (groups - 1);
+                System.arraycopy(template, 0, free, 0, SEATS);
+                seated += allocator.allocate(free, partlyHeld, wanted[g], senior[g], wanted[g].length, seats);
+            }
+            long nanos = System.nanoTime() - start;
+            bytesPerCall = (double) (threads.getThreadAllocatedBytes(thread) - bytesBefore) / calls;
+            System.out.printf("BerthAllocator.allocate round %d: %.2f us per call, %.0f calls/s, "
+                    + "%.3f bytes per call%n", round, nanos / 1e3 / calls, calls / (nanos / 1e9), bytesPerCall);
+        }
+
+        assertTrue(seated > 0);
+        assertEquals(0, Math.round(bytesPerCall), "allocate must not allocate once warmed up");
+    }
+
+    /**
+     * Fill an empty run with random groups until one cannot be seated
+     */
+    private static Placement fill(boolean withPreferences) {
+        Random random = new Random(5);
+        SeatInventory inventory = new SeatInventory(LAYOUT, COACHES, LEGS);
+        int seniors = 0;
+        int seniorsOnLower = 0;
+        int preferences = 0;
+        int preferencesMet = 0;
+        int groups = 0;
+        int inOneCoach = 0;
+
+        while (groups < 3000) {
+            int size = 1 + random.nextInt(6);
+            int from = random.nextInt(LEGS / 2);
+            int to = from + 1 + random.nextInt(LEGS - from);
+            int[] wanted = new int[size];
+            boolean[] senior = new boolean[size];
+            for (int p = 0; p < size; p++) {
+                senior[p] = random.nextInt(5) == 0;
+                wanted[p] = random.nextInt(4) == 0
+                        ? CoachLayout.berthCodeOf(BERTHS[random.nextInt(BERTHS.length)])
+                        : BerthAllocator.NO_PREFERENCE;
+            }
+
+            int[] seats = withPreferences
+                    ? inventory.allocate(from, to, wanted, senior)
+                    : inventory.allocate(from, to, noPreferences(size), new boolean[size]);
+            if (seats.length == 0) {
+                break;
+            }
+            groups++;
+
+            boolean sameCoach = true;
+            for (int p = 0; p < seats.length; p++) {
+                sameCoach &= seats[p] / LAYOUT.getSeatsPerCoach() == seats[0] / LAYOUT.getSeatsPerCoach();
+                String berth = inventory.berthType(seats[p]);
+                if (senior[p]) {
+                    seniors++;
+                    seniorsOnLower += berth.endsWith("LOWER") ? 1 : 0;
+                }
+                if (wanted[p] != BerthAllocator.NO_PREFERENCE) {
+                    preferences++;
+                    preferencesMet += CoachLayout.berthCodeOf(berth) == wanted[p] ? 1 : 0;
+                }
+            }
+            inOneCoach += sameCoach ? 1 : 0;
+        }
+        return new Placement(groups, (double) seniorsOnLower / seniors, (double) preferencesMet / preferences,
+                (double) inOneCoach / groups);
+    }
+
+    private static int[] noPreferences(int size) {
+        int[] wanted = new int[size];
+        Arrays.fill(wanted, BerthAllocator.NO_PREFERENCE);
+        return wanted;
+    }
+
+    private record Placement(int groups, double seniorsOnLower, double preferencesMet, double inOneCoach) {
+        @Override
+        public String toString() {
+            return String.format("%d groups, seniors on lower berths %.0f%%, preferences met %.0f%%, "
+                    + "groups in one coach %.0f%%", groups, seniorsOnLower * 100, preferencesMet * 100,
+                    inOneCoach * 100);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.QuotaType;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Booking requests checked and booked through one instance over in-memory stores
+ */
+class BookingServiceTest {
+
+    private static final String CLASS = "AC3A";
+    // A Monday a couple of weeks ahead
+    private static final LocalDate MONDAY = LocalDate.now().plusWeeks(2).with(DayOfWeek.MONDAY);
+
+    private Train daily;
+    private Train overnight;
+    private InMemoryBookings database;
+    private BookingService service;
+
+    @BeforeEach
+    void instance() {
+        daily = TestTrains.line("12001", 10, CLASS, 2);
+        // Leaves S0 at 06:00 on Mondays only and calls at S18 onwards after midnight
+        overnight = TestTrains.line("12002", 24, CLASS, 2);
+        overnight.setOperationalDays(List.of("MON"));
+
+        List<Train> trains = List.of(daily, overnight);
+        database = new InMemoryBookings();
+        service = BookingServices.instance(TestTrains.searchIndex(trains), TestTrains.repository(trains), database,
+                database.repository(), new InMemorySeatLedger(), 10);
+    }
+
+    @Test
+    void pastTravelDatesAreRefused() {
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> service.createBooking(request(daily, "S0", "S5", LocalDate.now().minusDays(1))));
+        assertTrue(refused.getMessage().contains("Travel date"), refused.getMessage());
+    }
+
+    @Test
+    void passengersNeedAGenderTheFaresKnow() {
+        Booking unknown = request(daily, "S0", "S5", MONDAY);
+        unknown.getPassengers().get(0).setGender("X");
+        assertThrows(IllegalArgumentException.class, () -> service.createBooking(unknown));
+
+        Booking named = request(daily, "S0", "S5", MONDAY);
+        named.getPassengers().get(0).setGender("FEMALE");
+        assertEquals(BookingStatus.CONFIRMED, service.createBooking(named).getStatus());
+    }
+
+    @Test
+    void travelDatesBeyondTheReservationHorizonAreRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createBooking(request(daily, "S0", "S5", LocalDate.now().plusDays(121))));
+        assertEquals(BookingStatus.CONFIRMED,
+                service.createBooking(request(daily, "S0", "S5", LocalDate.now().plusDays(120))).getStatus());
+    }
+
+    @Test
+    void datesTheTrainDoesNotRunAreRefused() {
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> service.createBooking(request(overnight, "S0", "S5", MONDAY.plusDays(1))));
+        assertTrue(refused.getMessage().contains("does not leave S0"), refused.getMessage());
+        assertEquals(BookingStatus.CONFIRMED,
+                service.createBooking(request(overnight, "S0", "S5", MONDAY)).getStatus());
+    }
+
+    @Test
+    void trainsListedAsRunningDailyRunEveryDay() {
+        daily.setOperationalDays(List.of("Daily"));
+        service = BookingServices.instance(TestTrains.searchIndex(List.of(daily)),
+                TestTrains.repository(List.of(daily)), database, database.repository(), new InMemorySeatLedger(), 10);
+
+        for (int day = 0; day < 7; day++) {
+            assertEquals(BookingStatus.CONFIRMED,
+                    service.createBooking(request(daily, "S0", "S5", MONDAY.plusDays(day))).getStatus());
+        }
+    }
+
+    @Test
+    void stationsReachedAfterMidnightAreBookedForTheNextDay() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.createBooking(request(overnight, "S19", "S23", MONDAY)));
+        assertEquals(BookingStatus.CONFIRMED,
+                service.createBooking(request(overnight, "S19", "S23", MONDAY.plusDays(1))).getStatus());
+    }
+
+    @Test
+    void passengersBoardingAfterMidnightShareTheSeatsOfTheirRun() {
+        fill(overnight, MONDAY);
+
+        Booking late = service.createBooking(request(overnight, "S19", "S23", MONDAY.plusDays(1), 1));
+        assertEquals(MONDAY.plusDays(1), late.getTravelDate());
+        assertEquals(MONDAY, late.getRunDate());
+        assertEquals(BookingStatus.WAITLISTED, late.getStatus());
+    }
+
+    @Test
+    void groupsAreRefusedWhenTheWaitingListHasNoRoomForAllOfThem() {
+        fill(daily, MONDAY);
+
+        assertEquals(BookingStatus.WAITLISTED,
+                service.createBooking(request(daily, "S0", "S9", MONDAY, 6)).getStatus());
+        // Six waiting and a limit of ten leave room for four
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> service.createBooking(request(daily, "S0", "S9", MONDAY, 5)));
+        assertTrue(refused.getMessage().contains("Waiting list"), refused.getMessage());
+        assertEquals(BookingStatus.WAITLISTED,
+                service.createBooking(request(daily, "S0", "S9", MONDAY, 4)).getStatus());
+    }
+
+    @Test
+    void bookingsWithoutAQuotaAreCheckedAgainstEveryQuotasWaitingList() {
+        fill(daily, MONDAY);
+        service.createBooking(request(daily, "S0", "S9", MONDAY, 6));
+        Booking tatkal = request(daily, "S0", "S9", MONDAY, 4);
+        tatkal.setQuota(QuotaType.TATKAL);
+        assertEquals(BookingStatus.WAITLISTED, service.createBooking(tatkal).getStatus());
+
+        // Ten waiting across quotas, as availability without a quota reports them
+        Booking anyQuota = request(daily, "S0", "S9", MONDAY, 1);
+        anyQuota.setQuota(null);
+        assertThrows(IllegalArgumentException.class, () -> service.createBooking(anyQuota));
+        assertEquals(BookingStatus.WAITLISTED,
+                service.createBooking(request(daily, "S0", "S9", MONDAY, 4)).getStatus());
+    }
+
+    @Test
+    void bookingsOffTheRouteDoNotStopTheRunFromBeingSold() {
+        // Saved before the train stopped calling at its boarding station
+        Booking stranded = request(daily, "S0", "S5", MONDAY);
+        stranded.setId("stranded");
+        stranded.setSourceStationCode("GONE");
+        stranded.setRunDate(MONDAY);
+        stranded.setSeatAllocations(List.of(
+                new SeatAllocation("Passenger 0", "B1", 1, "LOWER", BookingStatus.CONFIRMED)));
+        database.repository().save(stranded);
+
+        assertEquals(BookingStatus.CONFIRMED, service.createBooking(request(daily, "S0", "S5", MONDAY)).getStatus());
+    }
+
+    /**
+     * Sell every berth of the train's run for its whole route
+     */
+    private void fill(Train train, LocalDate runDate) {
+        String last = "S" + (train.getRoutes().size() - 1);
+        for (int sold = 0; sold < 2 * 64; sold += 6) {
+            assertEquals(BookingStatus.CONFIRMED,
+                    service.createBooking(request(train, "S0", last, runDate, Math.min(6, 2 * 64 - sold))).getStatus());
+        }
+    }
+
+    private static Booking request(Train train, String from, String to, LocalDate travelDate) {
+        return request(train, from, to, travelDate, 1);
+    }
+
+    private static Booking request(Train train, String from, String to, LocalDate travelDate, int passengers) {
+        List<Passenger> group = new ArrayList<>(passengers);
+        for (int i = 0; i < passengers; i++) {
+            group.add(new Passenger("Passenger " + i, 30, "F"));
+        }
+
+        Booking booking = new Booking(null, train, from, to);
+        booking.setTravelDate(travelDate);
+        booking.setClassType(CLASS);
+        booking.setQuota(QuotaType.GENERAL);
+        booking.setPassengers(group);
+        return booking;
+    }
+}
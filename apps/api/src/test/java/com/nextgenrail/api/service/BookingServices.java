@@ -0,0 +1,79 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.repository.BookingRepository;
+import com.nextgenrail.api.repository.TrainRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Booking services wired the way the application wires them, one per simulated API instance
+ */
+final class BookingServices {
+
+    private BookingServices() {
+    }
+
+    /**
+     * One API instance: its own inventories, counters, queues and writer over a shared ledger and database
+     */
+    static BookingService instance(TrainSearchIndex index, TrainRepository trains, MongoTemplate database,
+            BookingRepository bookings, SeatLedgerService ledger, int waitlistLimit) {
+        SeatInventoryService seats = new SeatInventoryService();
+        ReflectionTestUtils.setField(seats, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(seats, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(seats, "seatLedgerService", ledger);
+
+        AvailabilityService availability = new AvailabilityService();
+        ReflectionTestUtils.setField(availability, "mongoTemplate", database);
+        ReflectionTestUtils.setField(availability, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(availability, "waitlistLimit", waitlistLimit);
+
+        TrainService trainService = new TrainService();
+        ReflectionTestUtils.setField(trainService, "trainRepository", trains);
+        ReflectionTestUtils.setField(trainService, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(trainService, "cacheManager", new ConcurrentMapCacheManager());
+
+        WaitlistPromotionService promotion = new WaitlistPromotionService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(promotion, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(promotion, "seatInventoryService", seats);
+        ReflectionTestUtils.setField(promotion, "availabilityService", availability);
+        ReflectionTestUtils.setField(promotion, "trainService", trainService);
+        ReflectionTestUtils.setField(promotion, "scanLimit", 200);
+
+        BookingWriter writer = new BookingWriter(200, 2);
+        ReflectionTestUtils.setField(writer, "mongoTemplate", database);
+
+        // Small blocks, so instances sharing a database keep leasing PNRs from its counter
+        PnrGenerator pnrGenerator = new PnrGenerator(100, "booking-services-test");
+        ReflectionTestUtils.setField(pnrGenerator, "mongoTemplate", database);
+
+        FlexiFarePricing flexi = new FlexiFarePricing(10, 10, 50);
+        ReflectionTestUtils.setField(flexi, "availabilityService", availability);
+        FareEngine fareEngine = new FareEngine(50, 40, 50, 5);
+        ReflectionTestUtils.setField(fareEngine, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(fareEngine, "flexiFarePricing", flexi);
+
+        RefundEngine refundEngine = new RefundEngine();
+        ReflectionTestUtils.setField(refundEngine, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(refundEngine, "cancellationHours", 2);
+        ReflectionTestUtils.setField(refundEngine, "clerkageCharge", 60.0);
+        ReflectionTestUtils.setField(refundEngine, "waitlistCutoffMinutes", 30);
+
+        BookingService service = new BookingService();
+        ReflectionTestUtils.setField(service, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(service, "trainRepository", trains);
+        ReflectionTestUtils.setField(service, "seatInventoryService", seats);
+        ReflectionTestUtils.setField(service, "availabilityService", availability);
+        ReflectionTestUtils.setField(service, "bookingWriter", writer);
+        ReflectionTestUtils.setField(service, "waitlistPromotionService", promotion);
+        ReflectionTestUtils.setField(service, "pnrGenerator", pnrGenerator);
+        ReflectionTestUtils.setField(service, "fareEngine", fareEngine);
+        ReflectionTestUtils.setField(service, "refundEngine", refundEngine);
+        ReflectionTestUtils.setField(service, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(service, "maxPassengers", 6);
+        ReflectionTestUtils.setField(service, "advanceReservationDays", 120);
+        return service;
+    }
+}
@@ -0,0 +1,166 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.TrainSnapshot;
+import com.nextgenrail.api.support.Latencies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Booking inserts one save at a time against the group-commit writer, 20000 bookings over 5 train runs
+ *
+ * No Mongo runs here, so the server is simulated: 0.5 ms round trip and a
+ * journal commit serialized across write commands costing 150 us plus 8 us
+ * per document.
+ */
+@Tag("benchmark")
+class BookingWriterBenchmark {
+
+    private static final long ROUND_TRIP_MICROS = 500;
+    private static final long COMMIT_MICROS = 150;
+    private static final long DOCUMENT_MICROS = 8;
+    private static final int BOOKINGS = 20000;
+    private static final int RUNS = 5;
+
+    private final Object journal = new Object();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private SimulatedMongo mongo;
+    private BookingWriter writer;
+
+    @BeforeEach
+    void startWriter() {
+        mongo = new SimulatedMongo();
+        writer = new BookingWriter(200, 4);
+        ReflectionTestUtils.setField(writer, "mongoTemplate", mongo);
+    }
+
+    @Test
+    void saveOneAtATime() throws Exception {
+        for (int threads : new int[] {1, 16, 64, 256}) {
+            run("MongoTemplate.save", threads, false);
+        }
+    }
+
+    @Test
+    void groupCommit() throws Exception {
+        for (int threads : new int[] {1, 16, 64, 256}) {
+            long writes = run("BookingWriter.save", threads, true);
+            if (threads >= 64) {
+                assertTrue(writes < BOOKINGS / 4, "Too little batching at " + threads + " callers: " + writes);
+            }
+        }
+    }
+
+    private long run(String name, int threads, boolean groupCommit) throws Exception {
+        commands.set(0);
+        written.set(0);
+        long[] nanos = new long[BOOKINGS];
+        AtomicInteger next = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = next.getAndIncrement(); i < BOOKINGS; i = next.getAndIncrement()) {
+                    Booking booking = new Booking();
+                    booking.setTrain(new TrainSnapshot("1295" + ThreadLocalRandom.current().nextInt(RUNS)));
+                    booking.setTravelDate(LocalDate.now().plusDays(1));
+
+                    long begin = System.nanoTime();
+                    if (groupCommit) {
+                        writer.save(booking);
+                    } else {
+                        mongo.save(booking);
+                    }
+                    nanos[i] = System.nanoTime() - begin;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s, %d callers: %.0f bookings/s, %d write commands, %s%n", name, threads,
+                BOOKINGS / seconds, commands.get(), new Latencies(nanos).summary("latency"));
+        assertEquals(BOOKINGS, written.get(), "Every booking must be written once");
+        return commands.get();
+    }
+
+    private void command(int documents) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ROUND_TRIP_MICROS / 2));
+        synchronized (journal) {
+            long commit = TimeUnit.MICROSECONDS.toNanos(COMMIT_MICROS + DOCUMENT_MICROS * documents);
+            long end = System.nanoTime() + commit;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+        }
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ROUND_TRIP_MICROS / 2));
+        commands.incrementAndGet();
+        written.addAndGet(documents);
+    }
+
+    /**
+     * Template whose single saves and bulk inserts cost one simulated write command each
+     */
+    private final class SimulatedMongo extends MongoTemplate {
+
+        SimulatedMongo() {
+            // No database behind it; every call used by the benchmark is answered here
+            super((MongoDatabaseFactory) Proxy.newProxyInstance(BookingWriterBenchmark.class.getClassLoader(),
+                    new Class<?>[] {MongoDatabaseFactory.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }));
+        }
+
+        @Override
+        public <T> T save(T objectToSave) {
+            command(1);
+            return objectToSave;
+        }
+
+        @Override
+        public BulkOperations bulkOps(BulkOperations.BulkMode mode, Class<?> entityClass) {
+            List<Object> documents = new ArrayList<>();
+            return (BulkOperations) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {BulkOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "insert" -> {
+                            documents.addAll((List<?>) args[0]);
+                            yield proxy;
+                        }
+                        case "execute" -> {
+                            command(documents.size());
+                            yield null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Group commits against a template whose bulk inserts can be made to fail
+ */
+class BookingWriterTest {
+
+    private final Train train = TestTrains.line("12001", 4, "AC3A", 1);
+    private final List<Booking> written = new ArrayList<>();
+    private final AtomicBoolean failNext = new AtomicBoolean();
+    private final CountDownLatch inFlight = new CountDownLatch(1);
+    private volatile CountDownLatch holdFirst;
+
+    @Test
+    void aRunKeepsWritingAfterAnInsertFailedWithAnError() {
+        BookingWriter writer = new BookingWriter(10, 1);
+        ReflectionTestUtils.setField(writer, "mongoTemplate", new FailingMongo());
+
+        failNext.set(true);
+        assertThrows(OutOfMemoryError.class, () -> writer.save(booking()));
+
+        // The lane of the run must be free again, or this booking would wait for a write that never comes
+        Booking next = booking();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> writer.save(next));
+        assertEquals(List.of(next), written);
+    }
+
+    @Test
+    void bookingsQueuedBehindAWriteHearOfAnErrorInTheirOwn() throws Exception {
+        BookingWriter writer = new BookingWriter(10, 1);
+        ReflectionTestUtils.setField(writer, "mongoTemplate", new FailingMongo());
+
+        // The first booking's insert is held in flight while the second one queues behind it
+        CountDownLatch hold = new CountDownLatch(1);
+        holdFirst = hold;
+        Thread first = new Thread(() -> writer.save(booking()));
+        first.start();
+        assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Booking> queued = writer.insert(booking());
+        failNext.set(true);
+        hold.countDown();
+        first.join(5000);
+
+        CompletionException failed = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(CompletionException.class, queued::join));
+        assertInstanceOf(OutOfMemoryError.class, failed.getCause());
+    }
+
+    private Booking booking() {
+        Booking booking = new Booking("user", train, "S0", "S3");
+        booking.setTravelDate(LocalDate.now().plusDays(3));
+        return booking;
+    }
+
+    /**
+     * Template whose next bulk insert throws an Error when asked to
+     */
+    private final class FailingMongo extends MongoTemplate {
+
+        FailingMongo() {
+            super((MongoDatabaseFactory) Proxy.newProxyInstance(BookingWriterTest.class.getClassLoader(),
+                    new Class<?>[] {MongoDatabaseFactory.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }));
+        }
+
+        @Override
+        public BulkOperations bulkOps(BulkOperations.BulkMode mode, Class<?> entityClass) {
+            List<Booking> inserts = new ArrayList<>();
+            return (BulkOperations) Proxy.newProxyInstance(BookingWriterTest.class.getClassLoader(),
+                    new Class<?>[] {BulkOperations.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "insert" -> {
+                            for (Object booking : (List<?>) args[0]) {
+                                inserts.add((Booking) booking);
+                            }
+                            yield proxy;
+                        }
+                        case "execute" -> {
+                            boolean fail = failNext.getAndSet(false);
+                            inFlight.countDown();
+                            CountDownLatch hold = holdFirst;
+                            if (hold != null) {
+                                holdFirst = null;
+                                hold.await(5, TimeUnit.SECONDS);
+                            }
+                            if (fail) {
+                                throw new OutOfMemoryError("Simulated");
+                            }
+                            synchronized (written) {
+                                written.addAll(inserts);
+                            }
+                            yield null;
+                        }
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    });
+        }
+    }
+}
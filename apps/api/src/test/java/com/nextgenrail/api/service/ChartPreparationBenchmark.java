@@ -0,0 +1,196 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.nextgenrail.api.support.HeapSampler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chart preparation of 1M bookings over 2500 trains with one worker and with eight
+ *
+ * No Mongo runs here: the cursor makes bookings up as they are read, and a
+ * bulk write costs 2 ms plus 15 us per update. Besides the time, the most
+ * bookings read but not yet written and the peak heap are printed; run with
+ * -Xmx256m to see that the job fits.
+ */
+@Tag("benchmark")
+class ChartPreparationBenchmark {
+
+    private static final long BULK_MICROS = 2000;
+    private static final long UPDATE_MICROS = 15;
+    private static final int BOOKINGS = 1_000_000;
+    private static final int TRAINS = 2500;
+
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong mostInMemory = new AtomicLong();
+
+    @Test
+    void chartOneDay() throws Exception {
+        long serial = run(1);
+        long parallel = run(8);
+        assertTrue(parallel * 3 < serial, "Eight workers should chart far faster than one: " + parallel
+                + " ms against " + serial + " ms");
+    }
+
+    private long run(int workers) throws Exception {
+        read.set(0);
+        written.set(0);
+        mostInMemory.set(0);
+        ChartPreparationService service = service(workers);
+
+        ChartPreparationService.ChartSummary summary;
+        try (HeapSampler heap = HeapSampler.start()) {
+            summary = service.prepareCharts(LocalDate.now().plusDays(1));
+            System.out.printf("%d workers: %d bookings over %d trains in %d ms, %d charted, %d cancelled, "
+                    + "at most %d bookings in memory, peak heap %s%n", workers, BOOKINGS, TRAINS,
+                    summary.elapsedMillis(), summary.charted(), summary.cancelled(), mostInMemory.get(),
+                    HeapSampler.megabytes(heap.peakBytes()));
+        }
+
+        assertNotNull(summary);
+        assertEquals(TRAINS, summary.trains());
+        assertEquals(BOOKINGS, summary.charted() + summary.cancelled());
+        assertEquals(0, summary.skipped());
+        // Two trains per worker read ahead, one waiting for its turn and the first booking of the next
+        assertTrue(mostInMemory.get() <= (2L * workers + 1) * (BOOKINGS / TRAINS) + 1,
+                "Read ahead is not bounded: " + mostInMemory.get());
+        return summary.elapsedMillis();
+    }
+
+    private ChartPreparationService service(int workers) {
+        RefundEngine refundEngine = new RefundEngine();
+        ReflectionTestUtils.setField(refundEngine, "clerkageCharge", 60.0);
+
+        ChartPreparationService chart = new ChartPreparationService();
+        ReflectionTestUtils.setField(chart, "mongoTemplate", new SimulatedMongo());
+        ReflectionTestUtils.setField(chart, "availabilityService", new AvailabilityService());
+        ReflectionTestUtils.setField(chart, "waitlistPromotionService",
+                new WaitlistPromotionService(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(chart, "refundEngine", refundEngine);
+        ReflectionTestUtils.setField(chart, "parallelism", workers);
+        ReflectionTestUtils.setField(chart, "bulkSize", 1000);
+        ReflectionTestUtils.setField(chart, "cursorBatchSize", 500);
+        return chart;
+    }
+
+    /**
+     * Booking i travels on train i / 400; one in ten is partly waitlisted and one in ten fully
+     */
+    private static Document booking(long i) {
+        int passengers = 1 + (int) (i % 4);
+        String waitingFrom = switch ((int) (i % 10)) {
+            case 0 -> "partly";
+            case 1 -> "fully";
+            default -> "none";
+        };
+        List<Document> allocations = new ArrayList<>(passengers);
+        for (int p = 0; p < passengers; p++) {
+            boolean waiting = waitingFrom.equals("fully") || waitingFrom.equals("partly") && p == passengers - 1;
+            allocations.add(new Document("allocationStatus", waiting ? "WAITLISTED" : "CONFIRMED"));
+        }
+        String trainNumber = String.valueOf(10000 + i / (BOOKINGS / TRAINS));
+        return new Document("_id", i)
+                .append("trainId", "train-" + trainNumber)
+                .append("train", new Document("trainNumber", trainNumber))
+                .append("version", 0L)
+                .append("status", waitingFrom.equals("none") ? "CONFIRMED" : "WAITLISTED")
+                .append("totalFare", 450.0 * passengers)
+                .append("seatAllocations", allocations);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(ChartPreparationBenchmark.class.getClassLoader(),
+                new Class<?>[] {type}, (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.handle(proxy, method.getName(), args);
+                }));
+    }
+
+    private interface Handler {
+        Object handle(Object proxy, String method, Object[] args);
+    }
+
+    /**
+     * Template whose cursor generates the day's bookings and whose bulk writes cost simulated time
+     */
+    private final class SimulatedMongo extends MongoTemplate {
+
+        SimulatedMongo() {
+            super(proxy(MongoDatabaseFactory.class, (proxy, method, args) -> switch (method) {
+                case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                default -> throw new UnsupportedOperationException(method);
+            }));
+        }
+
+        @Override
+        public MongoCollection<Document> getCollection(String collectionName) {
+            @SuppressWarnings("unchecked")
+            MongoCollection<Document> collection = proxy(MongoCollection.class, (proxy, method, args) ->
+                    switch (method) {
+                        case "find" -> cursor();
+                        default -> throw new UnsupportedOperationException(method);
+                    });
+            return collection;
+        }
+
+        @Override
+        public BulkOperations bulkOps(BulkOperations.BulkMode mode, String collectionName) {
+            AtomicLong updates = new AtomicLong();
+            return proxy(BulkOperations.class, (proxy, method, args) -> switch (method) {
+                case "updateOne" -> {
+                    updates.incrementAndGet();
+                    yield proxy;
+                }
+                case "execute" -> {
+                    int count = (int) updates.get();
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(BULK_MICROS + UPDATE_MICROS * count));
+                    written.addAndGet(count);
+                    yield BulkWriteResult.acknowledged(0, count, 0, count, List.of(), List.of());
+                }
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private Object cursor() {
+            return proxy(FindIterable.class, (proxy, method, args) -> switch (method) {
+                case "projection", "sort", "batchSize" -> proxy;
+                case "iterator" -> proxy(MongoCursor.class, (cursor, call, none) -> switch (call) {
+                    case "hasNext" -> read.get() < BOOKINGS;
+                    case "next" -> {
+                        long i = read.getAndIncrement();
+                        mostInMemory.accumulateAndGet(i + 1 - written.get(), Math::max);
+                        yield booking(i);
+                    }
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(call);
+                });
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Chart preparation against an in-memory stand-in for the bookings collection
+ */
+class ChartPreparationServiceTest {
+
+    private static final LocalDate TRAVEL_DATE = LocalDate.now().plusDays(1);
+
+    private final Map<Integer, Document> bookings = new TreeMap<>();
+    // Bookings another request changes between the cursor reading them and the bulk update running
+    private final Set<Object> changedMeanwhile = new HashSet<>();
+    private ChartPreparationService service;
+
+    @BeforeEach
+    void bookings() {
+        bookings.put(1, booking(1, "12001", 600, "CONFIRMED", "CONFIRMED", "CONFIRMED"));
+        bookings.put(2, booking(2, "12001", 900, "WAITLISTED", "CONFIRMED", "RAC", "WAITLISTED"));
+        bookings.put(3, booking(3, "12002", 500, "WAITLISTED", "WAITLISTED", "WAITLISTED"));
+        bookings.put(4, booking(4, "12002", 400, "CONFIRMED", "CONFIRMED"));
+        service = service();
+    }
+
+    @Test
+    void confirmedBookingsAreChartedWithoutARefund() {
+        ChartPreparationService.ChartSummary summary = service.prepareCharts(TRAVEL_DATE);
+
+        assertNotNull(summary);
+        assertEquals(2, summary.trains());
+        Document charted = bookings.get(1);
+        assertEquals("CHART_PREPARED", charted.get("status"));
+        assertEquals(1L, charted.get("version"));
+        assertNull(charted.get("refundAmount"));
+    }
+
+    @Test
+    void partlyWaitlistedBookingsDropAndRefundTheWaitingPassengers() {
+        service.prepareCharts(TRAVEL_DATE);
+
+        Document charted = bookings.get(2);
+        assertEquals("CHART_PREPARED", charted.get("status"));
+        assertEquals(List.of("CONFIRMED", "RAC", "CANCELLED"), allocationStatuses(charted));
+        // One passenger's share of 300 less 60 clerkage
+        assertEquals(60.0, charted.get("cancellationCharges"));
+        assertEquals(240.0, charted.get("refundAmount"));
+    }
+
+    @Test
+    void fullyWaitlistedBookingsAreCancelledAndRefunded() {
+        ChartPreparationService.ChartSummary summary = service.prepareCharts(TRAVEL_DATE);
+
+        Document cancelled = bookings.get(3);
+        assertEquals("CANCELLED", cancelled.get("status"));
+        assertEquals(List.of("CANCELLED", "CANCELLED"), allocationStatuses(cancelled));
+        assertEquals(120.0, cancelled.get("cancellationCharges"));
+        assertEquals(380.0, cancelled.get("refundAmount"));
+        assertEquals(3, summary.charted());
+        assertEquals(1, summary.cancelled());
+    }
+
+    @Test
+    void bookingsWithoutSeatAllocationsFollowTheirStatus() {
+        // Booked before seats were allocated per passenger
+        Document confirmed = booking(5, "12003", 700, "CONFIRMED");
+        confirmed.remove("seatAllocations");
+        bookings.put(5, confirmed);
+        bookings.put(6, booking(6, "12003", 300, "WAITLISTED"));
+
+        ChartPreparationService.ChartSummary summary = service.prepareCharts(TRAVEL_DATE);
+
+        assertEquals("CHART_PREPARED", bookings.get(5).get("status"));
+        assertNull(bookings.get(5).get("refundAmount"));
+        Document cancelled = bookings.get(6);
+        assertEquals("CANCELLED", cancelled.get("status"));
+        assertEquals(60.0, cancelled.get("cancellationCharges"));
+        assertEquals(240.0, cancelled.get("refundAmount"));
+        assertEquals(4, summary.charted());
+        assertEquals(2, summary.cancelled());
+    }
+
+    @Test
+    void leavesBookingsChangedSinceTheyWereRead() {
+        changedMeanwhile.add(2);
+
+        ChartPreparationService.ChartSummary summary = service.prepareCharts(TRAVEL_DATE);
+
+        assertEquals(1, summary.skipped());
+        Document changed = bookings.get(2);
+        assertEquals("WAITLISTED", changed.get("status"));
+        assertEquals(List.of("CONFIRMED", "RAC", "WAITLISTED"), allocationStatuses(changed));
+        assertNull(changed.get("refundAmount"));
+    }
+
+    @Test
+    void runningAgainForTheSameDateChangesNothing() {
+        service.prepareCharts(TRAVEL_DATE);
+        List<Object> versions = bookings.values().stream().map(booking -> booking.get("version")).toList();
+
+        ChartPreparationService.ChartSummary again = service.prepareCharts(TRAVEL_DATE);
+
+        assertEquals(0, again.trains());
+        assertEquals(versions, bookings.values().stream().map(booking -> booking.get("version")).toList());
+    }
+
+    private ChartPreparationService service() {
+        RefundEngine refundEngine = new RefundEngine();
+        ReflectionTestUtils.setField(refundEngine, "clerkageCharge", 60.0);
+
+        ChartPreparationService chart = new ChartPreparationService();
+        ReflectionTestUtils.setField(chart, "mongoTemplate", new InMemoryMongo());
+        ReflectionTestUtils.setField(chart, "availabilityService", new AvailabilityService());
+        ReflectionTestUtils.setField(chart, "waitlistPromotionService",
+                new WaitlistPromotionService(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(chart, "refundEngine", refundEngine);
+        ReflectionTestUtils.setField(chart, "parallelism", 2);
+        // Small enough that a train's updates span several bulk writes
+        ReflectionTestUtils.setField(chart, "bulkSize", 1);
+        ReflectionTestUtils.setField(chart, "cursorBatchSize", 10);
+        return chart;
+    }
+
+    private static Document booking(int id, String trainNumber, double totalFare, String status,
+            String... allocationStatuses) {
+        List<Document> allocations = new ArrayList<>();
+        for (String allocationStatus : allocationStatuses) {
+            allocations.add(new Document("allocationStatus", allocationStatus));
+        }
+        return new Document("_id", id)
+                .append("trainId", "train-" + trainNumber)
+                .append("train", new Document("trainNumber", trainNumber))
+                .append("version", 0L)
+                .append("status", status)
+                .append("totalFare", totalFare)
+                .append("seatAllocations", allocations);
+    }
+
+    private static List<String> allocationStatuses(Document booking) {
+        return booking.getList("seatAllocations", Document.class).stream()
+                .map(allocation -> allocation.getString("allocationStatus"))
+                .toList();
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(ChartPreparationServiceTest.class.getClassLoader(),
+                new Class<?>[] {type}, (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.handle(proxy, method.getName(), args);
+                }));
+    }
+
+    private interface Handler {
+        Object handle(Object proxy, String method, Object[] args);
+    }
+
+    /**
+     * Template answering the cursor and bulk updates of ChartPreparationService from the bookings of the test
+     */
+    private final class InMemoryMongo extends MongoTemplate {
+
+        InMemoryMongo() {
+            super(proxy(MongoDatabaseFactory.class, (proxy, method, args) -> switch (method) {
+                case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                default -> throw new UnsupportedOperationException(method);
+            }));
+        }
+
+        @Override
+        public MongoCollection<Document> getCollection(String collectionName) {
+            @SuppressWarnings("unchecked")
+            MongoCollection<Document> collection = proxy(MongoCollection.class, (proxy, method, args) ->
+                    switch (collectionName + "." + method) {
+                        case "bookings.find" -> chartable((Document) args[0]);
+                        default -> throw new UnsupportedOperationException(collectionName + "." + method);
+                    });
+            return collection;
+        }
+
+        @Override
+        public BulkOperations bulkOps(BulkOperations.BulkMode mode, String collectionName) {
+            List<Object[]> updates = new ArrayList<>();
+            return proxy(BulkOperations.class, (proxy, method, args) -> switch (method) {
+                case "updateOne" -> {
+                    updates.add(args);
+                    yield proxy;
+                }
+                case "execute" -> {
+                    int matched = 0;
+                    synchronized (bookings) {
+                        for (Object[] update : updates) {
+                            if (apply(((Query) update[0]).getQueryObject(), (UpdateDefinition) update[1])) {
+                                matched++;
+                            }
+                        }
+                    }
+                    yield BulkWriteResult.acknowledged(0, matched, 0, matched, List.of(), List.of());
+                }
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private boolean apply(Document query, UpdateDefinition update) {
+            Document booking = bookings.get(query.get("_id"));
+            if (changedMeanwhile.remove(query.get("_id"))) {
+                booking.put("version", booking.get("version", Long.class) + 1);
+            }
+            if (!booking.get("version").equals(query.get("version"))
+                    || !booking.get("status").equals(query.get("status"))) {
+                return false;
+            }
+
+            Document set = (Document) update.getUpdateObject().get("$set");
+            for (Map.Entry<String, Object> field : set.entrySet()) {
+                String[] path = field.getKey().split("\\.");
+                if (path.length == 3) {
+                    booking.getList(path[0], Document.class).get(Integer.parseInt(path[1]))
+                            .put(path[2], field.getValue());
+                } else {
+                    booking.put(field.getKey(), field.getValue());
+                }
+            }
+            Number inc = (Number) ((Document) update.getUpdateObject().get("$inc")).get("version");
+            booking.put("version", booking.get("version", Long.class) + inc.longValue());
+            return true;
+        }
+
+        private Object chartable(Document filter) {
+            List<?> statuses = (List<?>) ((Document) filter.get("status")).get("$in");
+            List<Document> found;
+            synchronized (bookings) {
+                found = bookings.values().stream()
+                        .filter(booking -> statuses.contains(booking.get("status")))
+                        .sorted(Comparator.comparing(booking -> booking.getString("trainId")))
+                        .map(booking -> Document.parse(booking.toJson()))
+                        .toList();
+            }
+            Iterator<Document> rows = found.iterator();
+            return proxy(FindIterable.class, (proxy, method, args) -> switch (method) {
+                case "projection", "sort", "batchSize" -> proxy;
+                case "iterator" -> proxy(MongoCursor.class, (cursor, call, none) -> switch (call) {
+                    case "hasNext" -> rows.hasNext();
+                    case "next" -> rows.next();
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(call);
+                });
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.nextgenrail.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DebouncedRebuildTest {
+
+    @Test
+    void burstOfWritesSharesOneRebuild() throws Exception {
+        AtomicInteger rebuilds = new AtomicInteger();
+        DebouncedRebuild rebuild = new DebouncedRebuild("test", 200, rebuilds::incrementAndGet);
+
+        // As when the seeder saves trains one at a time
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            rebuild.request();
+        }
+        long requestMillis = (System.nanoTime() - start) / 1_000_000;
+        Thread.sleep(600);
+
+        assertEquals(1, rebuilds.get());
+        assertTrue(requestMillis < 200, "Requests must not wait for the rebuild, took " + requestMillis + " ms");
+    }
+
+    @Test
+    void writeDuringRebuildTriggersAnother() throws Exception {
+        AtomicInteger rebuilds = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DebouncedRebuild rebuild = new DebouncedRebuild("test", 10, () -> {
+            if (rebuilds.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        rebuild.request();
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        rebuild.request(); // Made after the first rebuild read its data
+        release.countDown();
+        Thread.sleep(200);
+
+        assertEquals(2, rebuilds.get());
+    }
+
+    @Test
+    void failedRebuildDoesNotStopLaterOnes() throws Exception {
+        AtomicInteger rebuilds = new AtomicInteger();
+        DebouncedRebuild rebuild = new DebouncedRebuild("test", 10, () -> {
+            if (rebuilds.incrementAndGet() == 1) {
+                throw new IllegalStateException("database down");
+            }
+        });
+
+        rebuild.request();
+        Thread.sleep(100);
+        rebuild.request();
+        Thread.sleep(100);
+
+        assertEquals(2, rebuilds.get());
+    }
+}
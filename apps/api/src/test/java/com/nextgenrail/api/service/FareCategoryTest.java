@@ -0,0 +1,50 @@
+package com.nextgenrail.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nextgenrail.api.model.Passenger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Fare categories come from the passenger's age, whatever flags the client sends
+ */
+class FareCategoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void categoryFollowsTheAge() {
+        assertEquals(FareTable.INFANT, FareEngine.categoryOf(new Passenger("A", 2, "F")));
+        assertEquals(FareTable.CHILD, FareEngine.categoryOf(new Passenger("B", 8, "M")));
+        assertEquals(FareTable.ADULT, FareEngine.categoryOf(new Passenger("C", 35, "M")));
+        assertEquals(FareTable.SENIOR_MALE, FareEngine.categoryOf(new Passenger("D", 66, "M")));
+        assertEquals(FareTable.SENIOR_FEMALE, FareEngine.categoryOf(new Passenger("E", 61, "F")));
+    }
+
+    @Test
+    void gendersAreReadAsCodesOrNames() {
+        assertEquals(FareTable.SENIOR_FEMALE, FareEngine.categoryOf(new Passenger("F", 61, "FEMALE")));
+        assertEquals(FareTable.SENIOR_FEMALE, FareEngine.categoryOf(new Passenger("G", 61, "female")));
+        assertEquals(FareTable.SENIOR_MALE, FareEngine.categoryOf(new Passenger("H", 66, "MALE")));
+    }
+
+    @Test
+    void clientFlagsAreIgnored() throws Exception {
+        Passenger passenger = objectMapper.readValue(
+                "{\"name\":\"A\",\"age\":35,\"gender\":\"M\",\"infant\":true,\"child\":true,\"seniorCitizen\":true}",
+                Passenger.class);
+
+        assertFalse(passenger.isInfant());
+        assertFalse(passenger.isSeniorCitizen());
+        assertEquals(FareTable.ADULT, FareEngine.categoryOf(passenger));
+    }
+
+    @Test
+    void flagsAreStillInResponses() throws Exception {
+        String json = objectMapper.writeValueAsString(new Passenger("A", 3, "F"));
+
+        assertEquals(Boolean.TRUE, objectMapper.readTree(json).get("infant").booleanValue());
+    }
+}
@@ -0,0 +1,142 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainRoute;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fares for search result pages on a synthetic network of 5000 trains x 40 stops over 1500 stations
+ * Every class of every train on the page is quoted for a family of four, from the compiled fare tables and, for
+ * comparison, by working each fare out from the train document the way a per-request calculation would
+ */
+@Tag("benchmark")
+class FareEngineBenchmark {
+
+    private static final int STATIONS = 1500;
+    private static final int PAGES = 200;
+    private static final int REPEATS = 50;
+    private static final int[] SLAB_END_KM = {500, 1000, 2500, Integer.MAX_VALUE};
+    private static final int[] SLAB_PERCENT = {100, 80, 65, 50};
+
+    private final List<Passenger> family = List.of(new Passenger("A", 35, "M"), new Passenger("B", 33, "F"),
+            new Passenger("C", 8, "F"), new Passenger("D", 66, "M"));
+
+    @Test
+    void quoteSearchPages() {
+        List<Train> trains = TestTrains.network(5000, STATIONS, 40, 7);
+        FareEngine engine = new FareEngine(50, 40, 50, 5);
+        ReflectionTestUtils.setField(engine, "trainSearchIndex", TestTrains.searchIndex(trains));
+
+        long start = System.nanoTime();
+        FareTable table = engine.getTable();
+        System.out.printf("Fare tables compiled in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        CompiledTimetable timetable = table.timetable();
+        Random random = new Random(1);
+        List<String[]> pages = new ArrayList<>();
+        int rows = 0;
+        while (pages.size() < PAGES) {
+            String from = "S" + random.nextInt(STATIONS);
+            String to = "S" + random.nextInt(STATIONS);
+            int trainsOnPage = timetable.trainsBetween(from, to).size();
+            if (trainsOnPage >= 3) {
+                pages.add(new String[] {from, to});
+                rows += trainsOnPage;
+            }
+        }
+        Map<String, Train> byNumber = new HashMap<>();
+        trains.forEach(train -> byNumber.put(train.getTrainNumber(), train));
+        System.out.printf("%d search pages, %.1f trains per page, %d passengers%n", PAGES,
+                (double) rows / PAGES, family.size());
+
+        double tableNanos = 0;
+        double perRequestNanos = 0;
+        for (int round = 0; round < 10; round++) {
+            long sink = 0;
+            long quotes = 0;
+            start = System.nanoTime();
+            for (int repeat = 0; repeat < REPEATS; repeat++) {
+                for (String[] page : pages) {
+                    FareTable fares = engine.getTable();
+                    CompiledTimetable current = fares.timetable();
+                    for (CompiledTimetable.Segment segment : current.trainsBetween(page[0], page[1])) {
+                        for (String classCode : current.classesOffered(segment.train())) {
+                            int classId = current.classId(classCode);
+                            for (Passenger passenger : family) {
+                                sink += fares.fare(segment.train(), classId, segment.fromStop(), segment.toStop(),
+                                        FareEngine.categoryOf(passenger), false, 0);
+                                quotes++;
+                            }
+                        }
+                    }
+                }
+            }
+            tableNanos = (double) (System.nanoTime() - start) / quotes;
+
+            start = System.nanoTime();
+            for (int repeat = 0; repeat < REPEATS; repeat++) {
+                for (String[] page : pages) {
+                    for (CompiledTimetable.Segment segment : timetable.trainsBetween(page[0], page[1])) {
+                        Train train = byNumber.get(timetable.trainNumber(segment.train()));
+                        String from = timetable.stationCode(timetable.stopStation(segment.fromStop()));
+                        String to = timetable.stationCode(timetable.stopStation(segment.toStop()));
+                        for (String classCode : timetable.classesOffered(segment.train())) {
+                            for (Passenger passenger : family) {
+                                sink -= perRequestFare(train, classCode, from, to, passenger);
+                            }
+                        }
+                    }
+                }
+            }
+            perRequestNanos = (double) (System.nanoTime() - start) / quotes;
+
+            if (round >= 7) {
+                System.out.printf("Round %d: fare tables %.0f ns per fare, per-request calculation %.0f ns per fare"
+                        + " (%d)%n", round, tableNanos, perRequestNanos, sink & 1);
+            }
+        }
+
+        assertTrue(tableNanos < perRequestNanos, "Fare tables must beat working fares out per request");
+    }
+
+    /**
+     * Fare worked out from the train document: route scan, telescopic distance and the concession by age
+     */
+    private static int perRequestFare(Train train, String classCode, String from, String to, Passenger passenger) {
+        int fromKm = -1;
+        int toKm = -1;
+        for (TrainRoute route : train.getRoutes()) {
+            if (route.getStationCode().equals(from)) {
+                fromKm = route.getDistanceFromSource();
+            }
+            if (route.getStationCode().equals(to)) {
+                toKm = route.getDistanceFromSource();
+            }
+        }
+
+        int km = Math.max(toKm - fromKm, 200);
+        double charged = 0;
+        int slabStart = 0;
+        for (int slab = 0; slab < SLAB_END_KM.length && km > slabStart; slab++) {
+            charged += (Math.min(km, SLAB_END_KM[slab]) - slabStart) * SLAB_PERCENT[slab] / 100.0;
+            slabStart = SLAB_END_KM[slab];
+        }
+        int base = (int) Math.ceil(charged * train.getBaseFarePerKm().get(classCode));
+        int percent = passenger.isInfant() ? 0 : passenger.isChild() ? 50 : passenger.isSeniorCitizen() ? 60 : 100;
+        int fare = (base * percent + 99) / 100 + 40;
+        fare += (fare * 5 + 99) / 100;
+        return (fare + 4) / 5 * 5;
+    }
+}
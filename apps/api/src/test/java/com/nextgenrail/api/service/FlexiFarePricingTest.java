@@ -0,0 +1,139 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.QuotaType;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainType;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Flexi fares of a premium run read from the availability counters while it is booked from many threads
+ */
+class FlexiFarePricingTest {
+
+    private static final String CLASS = "AC3A";
+    private static final int COACHES = 40;
+    private static final int SEATS = COACHES * 64;
+
+    private final LocalDate travelDate = LocalDate.now().plusDays(3);
+    private final List<Passenger> one = List.of(new Passenger("A", 30, "M"));
+    private Train rajdhani;
+    private TrainSearchIndex index;
+    private AvailabilityService availability;
+    private FlexiFarePricing flexi;
+    private FareEngine engine;
+
+    @BeforeEach
+    void premiumRun() {
+        rajdhani = TestTrains.line("12951", 20, CLASS, COACHES);
+        rajdhani.setTrainType(TrainType.RAJDHANI);
+        index = TestTrains.searchIndex(List.of(rajdhani));
+
+        availability = new AvailabilityService();
+        ReflectionTestUtils.setField(availability, "trainSearchIndex", index);
+        flexi = new FlexiFarePricing(10, 10, 50);
+        ReflectionTestUtils.setField(flexi, "availabilityService", availability);
+        engine = new FareEngine(50, 40, 50, 5);
+        ReflectionTestUtils.setField(engine, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(engine, "flexiFarePricing", flexi);
+    }
+
+    @Test
+    void surchargeRisesOneStepPerTenthOfTheSeatsSold() {
+        assertEquals(0, surcharge());
+        int fare = quote();
+        for (int tier = 1; tier <= 5; tier++) {
+            sell(SEATS / 10);
+            assertEquals(tier * 10, surcharge(), "Surcharge after " + tier + " tenths sold");
+            assertTrue(quote() > fare, "Fare did not rise at tier " + tier);
+            fare = quote();
+        }
+        sell(SEATS / 10);
+        assertEquals(50, surcharge(), "The surcharge is capped");
+        assertEquals(fare, quote());
+    }
+
+    @Test
+    void faresNeverDropWhileSeatsSell() throws Exception {
+        int base = quote();
+        AtomicBoolean selling = new AtomicBoolean(true);
+        AtomicLong quotes = new AtomicLong();
+        AtomicLong drops = new AtomicLong();
+        AtomicInteger next = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(20);
+        List<Future<?>> readers = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            readers.add(executor.submit(() -> {
+                int last = 0;
+                while (selling.get()) {
+                    int fare = quote();
+                    drops.addAndGet(fare < last ? 1 : 0);
+                    last = fare;
+                    quotes.incrementAndGet();
+                }
+            }));
+        }
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < 16; w++) {
+            writers.add(executor.submit(() -> {
+                while (next.getAndIncrement() < SEATS) {
+                    sell(1);
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        selling.set(false);
+        for (Future<?> reader : readers) {
+            reader.get();
+        }
+        executor.shutdown();
+
+        assertEquals(SEATS, availability.soldSeats("12951", travelDate, CLASS), "Bookings were lost by the counters");
+        assertEquals(0, drops.get(), "A flexi fare went down while seats were only being sold");
+        assertTrue(quotes.get() > 0);
+        assertEquals(50, surcharge(), "A sold-out run pays the highest surcharge");
+        assertTrue(quote() > base);
+    }
+
+    private int quote() {
+        return engine.quote("12951", CLASS, "S0", "S19", travelDate, QuotaType.GENERAL, one).getAsInt();
+    }
+
+    private int surcharge() {
+        CompiledTimetable timetable = index.getTimetable();
+        return flexi.surchargePercent(timetable, timetable.trainId("12951"), timetable.classId(CLASS), travelDate);
+    }
+
+    private void sell(int seats) {
+        for (int i = 0; i < seats; i++) {
+            Booking booking = new Booking(null, rajdhani, "S0", "S19");
+            booking.setTravelDate(travelDate);
+            booking.setClassType(CLASS);
+            booking.setQuota(QuotaType.GENERAL);
+            booking.setSeatAllocations(List.of(new SeatAllocation("A", "B1", 1, "LOWER", BookingStatus.CONFIRMED)));
+            availability.recordBooking(booking);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.nextgenrail.api.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.repository.BookingRepository;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bookings collection and PNR counter kept in memory, shared by the instances of a test
+ *
+ * Only the calls made while booking, cancelling and promoting are answered.
+ * Bookings are stored as copies, so instances never share objects, and saves
+ * check and bump the version the way the repository does for @Version.
+ */
+final class InMemoryBookings extends MongoTemplate {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final Map<String, Booking> bookings = new HashMap<>();
+    private long pnrCounter;
+
+    InMemoryBookings() {
+        super(proxy(MongoDatabaseFactory.class, (proxy, method, args) -> switch (method) {
+            case "getExceptionTranslator" -> new MongoExceptionTranslator();
+            default -> throw new UnsupportedOperationException(method);
+        }));
+    }
+
+    /**
+     * Repository over the stored bookings
+     */
+    BookingRepository repository() {
+        return proxy(BookingRepository.class, (proxy, method, args) -> switch (method) {
+            case "save" -> save((Booking) args[0]);
+            case "findById" -> findById((String) args[0]);
+            case "findActiveBookingsForTrainRun" -> find((String) args[0], (LocalDate) args[1], null);
+            case "findWaitingBookingsForTrainRun" -> find((String) args[0], (LocalDate) args[1], (String) args[2]);
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    @Override
+    public BulkOperations bulkOps(BulkOperations.BulkMode mode, Class<?> entityClass) {
+        List<Booking> inserts = new ArrayList<>();
+        return proxy(BulkOperations.class, (proxy, method, args) -> switch (method) {
+            case "insert" -> {
+                for (Object booking : (List<?>) args[0]) {
+                    inserts.add((Booking) booking);
+                }
+                yield proxy;
+            }
+            case "execute" -> {
+                insert(inserts);
+                yield null;
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized <T> T findAndModify(Query query, UpdateDefinition update, FindAndModifyOptions options,
+            Class<T> entityClass, String collectionName) {
+        // Only the PNR block lease increments a counter
+        pnrCounter += ((Document) update.getUpdateObject().get("$inc")).get("next", Number.class).longValue();
+        return (T) new Document("_id", "pnr").append("next", pnrCounter);
+    }
+
+    private synchronized void insert(List<Booking> inserted) {
+        for (Booking booking : inserted) {
+            if (bookings.containsKey(booking.getId())) {
+                throw new DuplicateKeyException("Booking " + booking.getId() + " already exists");
+            }
+        }
+        for (Booking booking : inserted) {
+            bookings.put(booking.getId(), copy(booking));
+        }
+    }
+
+    private synchronized Booking save(Booking booking) {
+        Booking stored = bookings.get(booking.getId());
+        if (stored != null && !stored.getVersion().equals(booking.getVersion())) {
+            throw new OptimisticLockingFailureException("Booking " + booking.getId() + " has version "
+                    + stored.getVersion() + ", not " + booking.getVersion());
+        }
+        booking.setVersion(stored != null ? stored.getVersion() + 1 : 0L);
+        bookings.put(booking.getId(), copy(booking));
+        return booking;
+    }
+
+    private synchronized Optional<Booking> findById(String id) {
+        return Optional.ofNullable(bookings.get(id)).map(this::copy);
+    }
+
+    private synchronized List<Booking> find(String trainId, LocalDate runDate, String waitingInClass) {
+        List<Booking> found = new ArrayList<>();
+        for (Booking booking : bookings.values()) {
+            boolean matches = booking.getTrainId().equals(trainId) && booking.getRunDate().equals(runDate)
+                    && (waitingInClass == null
+                            ? booking.getStatus() != BookingStatus.CANCELLED
+                            : waitingInClass.equals(booking.getClassType())
+                                    && (booking.getStatus() == BookingStatus.WAITLISTED
+                                            || booking.getStatus() == BookingStatus.RAC));
+            if (matches) {
+                found.add(copy(booking));
+            }
+        }
+        return found;
+    }
+
+    private Booking copy(Booking booking) {
+        return objectMapper.convertValue(booking, Booking.class);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(InMemoryBookings.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> "InMemoryBookings." + type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.handle(proxy, method.getName(), args);
+                }));
+    }
+
+    private interface Handler {
+        Object handle(Object proxy, String method, Object[] args);
+    }
+}
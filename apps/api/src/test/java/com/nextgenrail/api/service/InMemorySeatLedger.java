@@ -0,0 +1,60 @@
+package com.nextgenrail.api.service;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Seat ledger of one run kept in memory, with the same all-or-nothing updates as the Mongo document
+ * Routes must have fewer than 64 legs, so each seat fits in one bitmask word
+ */
+final class InMemorySeatLedger extends SeatLedgerService {
+
+    private final Map<String, long[]> runs = new HashMap<>();
+    private long[] occupancy;
+
+    @Override
+    public synchronized void initialize(String trainNumber, LocalDate travelDate, String classType,
+            SeatInventory inventory) {
+        long[] local = inventory.occupancy();
+        long[] shared = runs.putIfAbsent(trainNumber + ":" + travelDate + ":" + classType, local);
+        if (shared == null) {
+            occupancy = local;
+            return;
+        }
+        for (int i = 0; i < local.length; i++) {
+            shared[i] |= local[i];
+        }
+        inventory.loadOccupancy(shared.clone());
+    }
+
+    @Override
+    public synchronized long[] occupancy(String trainNumber, LocalDate travelDate, String classType,
+            int seatCount, int words) {
+        return occupancy.clone();
+    }
+
+    @Override
+    public synchronized boolean reserve(String trainNumber, LocalDate travelDate, String classType, int words,
+            int[] seats, int fromLeg, int toLeg) {
+        long mask = SeatInventory.legMask(0, fromLeg, toLeg);
+        for (int seat : seats) {
+            if ((occupancy[seat] & mask) != 0) {
+                return false;
+            }
+        }
+        for (int seat : seats) {
+            occupancy[seat] |= mask;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void release(String trainNumber, LocalDate travelDate, String classType, int words,
+            int[] seats, int fromLeg, int toLeg) {
+        long mask = SeatInventory.legMask(0, fromLeg, toLeg);
+        for (int seat : seats) {
+            occupancy[seat] &= ~mask;
+        }
+    }
+}
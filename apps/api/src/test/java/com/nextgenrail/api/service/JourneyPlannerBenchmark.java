@@ -0,0 +1,76 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.dto.JourneyItinerary;
+import com.nextgenrail.api.dto.JourneyLeg;
+import com.nextgenrail.api.support.Latencies;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Planner latency on a synthetic network of 5000 trains x 30 stops over 2000 stations
+ */
+@Tag("benchmark")
+class JourneyPlannerBenchmark {
+
+    private static final int STATIONS = 2000;
+    private static final int MIN_CONNECTION_MINUTES = 30;
+
+    @Test
+    void planRandomJourneys() {
+        JourneyPlanner planner = new JourneyPlanner();
+        ReflectionTestUtils.setField(planner, "trainSearchIndex",
+                TestTrains.searchIndex(TestTrains.network(5000, STATIONS, 30, 42)));
+        ReflectionTestUtils.setField(planner, "minConnectionMinutes", MIN_CONNECTION_MINUTES);
+        ReflectionTestUtils.setField(planner, "maxChangesLimit", 2);
+
+        Random random = new Random(1);
+        LocalDate date = LocalDate.now().plusDays(10);
+        for (int i = 0; i < 2000; i++) {
+            planner.plan("S" + random.nextInt(STATIONS), "S" + random.nextInt(STATIONS), date, null, 2);
+        }
+
+        long[] nanos = new long[5000];
+        int answered = 0;
+        for (int i = 0; i < nanos.length; i++) {
+            String from = "S" + random.nextInt(STATIONS);
+            String to = "S" + random.nextInt(STATIONS);
+            long start = System.nanoTime();
+            List<JourneyItinerary> itineraries = planner.plan(from, to, date, null, 2);
+            nanos[i] = System.nanoTime() - start;
+
+            if (!itineraries.isEmpty()) {
+                answered++;
+            }
+            for (JourneyItinerary itinerary : itineraries) {
+                checkItinerary(itinerary, from, to);
+            }
+        }
+
+        System.out.println(new Latencies(nanos).summary("JourneyPlanner.plan") + ", " + answered + "/"
+                + nanos.length + " queries answered");
+        assertTrue(answered > 0, "No journey found on the synthetic network");
+    }
+
+    private static void checkItinerary(JourneyItinerary itinerary, String from, String to) {
+        List<JourneyLeg> legs = itinerary.getLegs();
+        assertEquals(from, legs.get(0).getFromStationCode());
+        assertEquals(to, legs.get(legs.size() - 1).getToStationCode());
+        for (int k = 1; k < legs.size(); k++) {
+            JourneyLeg previous = legs.get(k - 1);
+            JourneyLeg next = legs.get(k);
+            assertEquals(previous.getToStationCode(), next.getFromStationCode(), "Legs must connect");
+            assertTrue(Duration.between(previous.getArrival(), next.getDeparture()).toMinutes()
+                    >= MIN_CONNECTION_MINUTES, "Connection shorter than the minimum");
+        }
+    }
+}
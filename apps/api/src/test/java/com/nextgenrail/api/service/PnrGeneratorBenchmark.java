@@ -0,0 +1,135 @@
+package com.nextgenrail.api.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PNR numbers from two API instances sharing one block counter, 4M PNRs per run from up to 256 threads
+ * No Mongo runs here; leasing a block costs a simulated 1 ms round trip
+ */
+@Tag("benchmark")
+class PnrGeneratorBenchmark {
+
+    private static final long ROUND_TRIP_MICROS = 1000;
+    private static final int PNRS = 4_000_000;
+    private static final int INSTANCES = 2;
+    private static final String SECRET = "benchmark-pnr-secret";
+
+    private final AtomicLong counter = new AtomicLong();
+    private final AtomicLong leases = new AtomicLong();
+    private final SimulatedMongo mongo = new SimulatedMongo();
+
+    @Test
+    void uniquePnrsFromManyThreads() throws Exception {
+        for (int threads : new int[] {1, 8, 64, 256}) {
+            PnrGenerator[] instances = new PnrGenerator[INSTANCES];
+            for (int n = 0; n < INSTANCES; n++) {
+                instances[n] = generator();
+            }
+            leases.set(0);
+            long[] pnrs = new long[PNRS];
+            AtomicInteger next = new AtomicInteger();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                PnrGenerator instance = instances[t % INSTANCES];
+                futures.add(executor.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < PNRS; i = next.getAndIncrement()) {
+                        pnrs[i] = Long.parseLong(instance.next());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            Arrays.sort(pnrs);
+            int duplicates = 0;
+            for (int i = 1; i < pnrs.length; i++) {
+                duplicates += pnrs[i] == pnrs[i - 1] ? 1 : 0;
+            }
+            System.out.printf("PnrGenerator.next, %d threads on %d instances: %.1f M PNRs/s, %d block leases, "
+                    + "%d duplicates%n", threads, INSTANCES, PNRS / seconds / 1e6, leases.get(), duplicates);
+            assertEquals(0, duplicates, "PNR handed out twice at " + threads + " threads");
+        }
+    }
+
+    @Test
+    void neighbouringPnrsAreUnrelated() {
+        PnrGenerator generator = generator();
+        long previous = Long.parseLong(generator.next());
+        int close = 0;
+        for (int i = 0; i < 100_000; i++) {
+            long pnr = Long.parseLong(generator.next());
+            close += Math.abs(pnr - previous) < 1000 ? 1 : 0;
+            previous = pnr;
+        }
+        System.out.printf("Consecutive PNRs within 1000 of each other: %d of 100000%n", close);
+        assertTrue(close < 10, "Consecutive PNRs are guessable");
+    }
+
+    @Test
+    void secretIsRequired() {
+        assertThrows(IllegalStateException.class, () -> new PnrGenerator(10000, ""));
+        assertThrows(IllegalStateException.class, () -> new PnrGenerator(10000, null));
+    }
+
+    private PnrGenerator generator() {
+        PnrGenerator generator = new PnrGenerator(10000, SECRET);
+        ReflectionTestUtils.setField(generator, "mongoTemplate", mongo);
+        return generator;
+    }
+
+    /**
+     * Template answering the block lease from an in-memory counter after one round trip
+     */
+    private final class SimulatedMongo extends MongoTemplate {
+
+        SimulatedMongo() {
+            // No database behind it; the only call the generator makes is answered here
+            super((MongoDatabaseFactory) Proxy.newProxyInstance(PnrGeneratorBenchmark.class.getClassLoader(),
+                    new Class<?>[] {MongoDatabaseFactory.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> T findAndModify(Query query, UpdateDefinition update, FindAndModifyOptions options,
+                Class<T> entityClass, String collectionName) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(ROUND_TRIP_MICROS));
+            leases.incrementAndGet();
+            long increment = ((Document) update.getUpdateObject().get("$inc")).get("next", Number.class).longValue();
+            return (T) new Document("_id", "pnr").append("next", counter.addAndGet(increment));
+        }
+    }
+}
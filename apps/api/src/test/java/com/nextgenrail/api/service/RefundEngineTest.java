@@ -0,0 +1,99 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.QuotaType;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cancellation charges by allocation, class, quota and time left before the train leaves the boarding station
+ */
+class RefundEngineTest {
+
+    private static final LocalDate TRAVEL_DATE = LocalDate.now().plusDays(10);
+    // The test line leaves S0 at 06:00
+    private static final LocalDateTime DEPARTURE = TRAVEL_DATE.atTime(6, 0);
+
+    private Train train;
+    private RefundEngine engine;
+
+    @BeforeEach
+    void engine() {
+        train = TestTrains.line("12001", 5, "AC3A", 2);
+        engine = new RefundEngine();
+        ReflectionTestUtils.setField(engine, "trainSearchIndex", TestTrains.searchIndex(List.of(train)));
+        ReflectionTestUtils.setField(engine, "cancellationHours", 2);
+        ReflectionTestUtils.setField(engine, "clerkageCharge", 60.0);
+        ReflectionTestUtils.setField(engine, "waitlistCutoffMinutes", 30);
+    }
+
+    @ParameterizedTest(name = "{0} {1} {2}, {4} min ahead")
+    @CsvSource({
+            // class, quota, allocations, fare, minutes before departure, charges, refund
+            "AC3A, GENERAL, CONFIRMED,            1000, 4320,  180, 820", // 48 h or more: flat charge by class
+            "SL,   GENERAL, CONFIRMED,            1000, 4320,  120, 880",
+            "AC3A, GENERAL, CONFIRMED,             100, 4320,  100,   0", // Never more than the fare
+            "AC3A, GENERAL, CONFIRMED,            1000, 1440,  250, 750", // 12-48 h: a quarter
+            "SL,   GENERAL, CONFIRMED,             400, 1440,  120, 280", // ... but at least the flat charge
+            "AC3A, GENERAL, CONFIRMED,            1000,  360,  500, 500", // Under 12 h: half
+            "AC3A, GENERAL, CONFIRMED,            1000,   90, 1000,   0", // Inside the cancellation window
+            "AC3A, TATKAL,  CONFIRMED,            1000, 4320, 1000,   0", // Tatkal: no refund
+            "AC3A, GENERAL, WAITLISTED,           1000, 4320,   60, 940", // Clerkage only
+            "AC3A, GENERAL, RAC,                  1000,   60,   60, 940",
+            "AC3A, TATKAL,  WAITLISTED,           1000,   60,   60, 940", // Tatkal waitlist: clerkage too
+            "AC3A, GENERAL, WAITLISTED,           1000,   20, 1000,   0", // Past the waitlist cutoff
+            "AC3A, GENERAL, CONFIRMED;WAITLISTED, 1000, 4320,  240, 760", // Each passenger's share on its own
+            "AC3A, GENERAL, CONFIRMED;CANCELLED,  1000, 4320,  180, 320", // Dropped at chart: refunded then
+    })
+    void chargesByAllocationAndTimeLeft(String classType, QuotaType quota, String allocations, double fare,
+            long minutesBefore, double charges, double refund) {
+        Booking booking = new Booking(null, train, "S0", "S4");
+        booking.setTravelDate(TRAVEL_DATE);
+        booking.setClassType(classType);
+        booking.setQuota(quota);
+        booking.setTotalFare(fare);
+        List<SeatAllocation> seats = new ArrayList<>();
+        for (String status : allocations.split(";")) {
+            seats.add(new SeatAllocation("P" + seats.size(), null, 0, null, BookingStatus.valueOf(status)));
+        }
+        booking.setSeatAllocations(seats);
+
+        RefundEngine.Refund result = engine.calculate(booking, DEPARTURE.minusMinutes(minutesBefore));
+
+        assertEquals(charges, result.cancellationCharges());
+        assertEquals(refund, result.refundAmount());
+    }
+
+    @Test
+    void cancellationWindowFollowsTheConfiguration() {
+        ReflectionTestUtils.setField(engine, "cancellationHours", 4);
+        Booking booking = new Booking(null, train, "S0", "S4");
+        booking.setTravelDate(TRAVEL_DATE);
+        booking.setClassType("AC3A");
+        booking.setTotalFare(1000);
+        booking.setSeatAllocations(List.of(new SeatAllocation("P", "B1", 1, "LOWER", BookingStatus.CONFIRMED)));
+
+        assertEquals(0.0, engine.calculate(booking, DEPARTURE.minusHours(3)).refundAmount());
+        assertEquals(500.0, engine.calculate(booking, DEPARTURE.minusHours(5)).refundAmount());
+    }
+
+    @Test
+    void chartCancellationKeepsClerkagePerPassenger() {
+        assertEquals(new RefundEngine.Refund(120, 880), engine.chartCancellation(1000, 2));
+        assertEquals(new RefundEngine.Refund(100, 0), engine.chartCancellation(100, 3));
+    }
+}
@@ -0,0 +1,263 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.AggregateIterable;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Refund runs against an in-memory stand-in for the bookings, checkpoint and lease collections
+ */
+class RefundProcessorTest {
+
+    private final Map<Integer, Document> bookings = new TreeMap<>();
+    private final Set<Object> settledElsewhere = new HashSet<>();
+    private Document checkpoint;
+    private Document lease;
+    private boolean leaseLost;
+    private Object cursorStartedAfter;
+    private RefundProcessor processor;
+
+    @BeforeEach
+    void pendingRefunds() {
+        for (int id = 1; id <= 25; id++) {
+            bookings.put(id, new Document("_id", id).append("refundAmount", 100.0 * id).append("refundedAt", null));
+        }
+        processor = processor();
+    }
+
+    @Test
+    void countsOnlyTheRefundsThisRunSettled() {
+        // Another process pays these out between the cursor reading them and the bulk update running
+        settledElsewhere.addAll(List.of(3, 4, 12, 25));
+
+        RefundProcessor.RefundSummary summary = processor.processRefunds();
+
+        assertNotNull(summary);
+        assertEquals(21, summary.refunded());
+        assertEquals(100.0 * (25 * 26 / 2 - 3 - 4 - 12 - 25), summary.amount());
+        assertNull(lease, "The lease must be released after the run");
+    }
+
+    @Test
+    void skipsWhileAnotherInstanceHoldsTheLease() {
+        lease = new Document("_id", "refunds").append("owner", "other-instance")
+                .append("lockedUntil", new Date(System.currentTimeMillis() + 60_000));
+
+        assertNull(processor.processRefunds());
+        assertNull(bookings.get(1).get("refundedAt"), "Nothing may be settled without the lease");
+    }
+
+    @Test
+    void takesOverALeaseThatRanOut() {
+        lease = new Document("_id", "refunds").append("owner", "crashed-instance")
+                .append("lockedUntil", new Date(System.currentTimeMillis() - 1000));
+
+        RefundProcessor.RefundSummary summary = processor.processRefunds();
+
+        assertNotNull(summary);
+        assertEquals(25, summary.refunded());
+    }
+
+    @Test
+    void resumesAfterTheLastCheckpointedBatch() {
+        // The first run stops after its first batch, as if its instance had crashed or stalled
+        leaseLost = true;
+        assertNull(processor.processRefunds());
+        assertNotNull(checkpoint, "The first batch must be checkpointed");
+        assertEquals(10, checkpoint.get("lastId"));
+        assertNull(bookings.get(11).get("refundedAt"), "Nothing past the first batch may be settled");
+
+        leaseLost = false;
+        RefundProcessor.RefundSummary summary = processor().processRefunds();
+
+        assertNotNull(summary);
+        assertTrue(summary.resumed());
+        assertEquals(10, cursorStartedAfter, "The second run must carry on after the checkpoint");
+        assertEquals(25, summary.refunded());
+        assertEquals(100.0 * (25 * 26 / 2), summary.amount());
+        assertNull(checkpoint, "A finished run clears its checkpoint");
+    }
+
+    private RefundProcessor processor() {
+        RefundProcessor refunds = new RefundProcessor();
+        ReflectionTestUtils.setField(refunds, "mongoTemplate", new InMemoryMongo());
+        ReflectionTestUtils.setField(refunds, "batchSize", 10);
+        ReflectionTestUtils.setField(refunds, "leaseSeconds", 300L);
+        return refunds;
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(RefundProcessorTest.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.handle(proxy, method.getName(), args);
+                }));
+    }
+
+    private interface Handler {
+        Object handle(Object proxy, String method, Object[] args);
+    }
+
+    /**
+     * Template answering the calls RefundProcessor makes from the fields of the test
+     */
+    private final class InMemoryMongo extends MongoTemplate {
+
+        InMemoryMongo() {
+            super(proxy(MongoDatabaseFactory.class, (proxy, method, args) -> switch (method) {
+                case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                default -> throw new UnsupportedOperationException(method);
+            }));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public MongoCollection<Document> getCollection(String collectionName) {
+            return proxy(MongoCollection.class, (proxy, method, args) -> switch (collectionName + "." + method) {
+                case "job_checkpoints.find" -> single(FindIterable.class, checkpoint);
+                case "job_checkpoints.replaceOne" -> {
+                    checkpoint = (Document) args[1];
+                    yield null;
+                }
+                case "job_checkpoints.deleteOne" -> {
+                    checkpoint = null;
+                    yield null;
+                }
+                case "bookings.find" -> pending((Document) args[0]);
+                case "bookings.aggregate" -> single(AggregateIterable.class, settledBy((List<Document>) args[0]));
+                default -> throw new UnsupportedOperationException(collectionName + "." + method);
+            });
+        }
+
+        @Override
+        public BulkOperations bulkOps(BulkOperations.BulkMode mode, String collectionName) {
+            List<Object[]> updates = new ArrayList<>();
+            return proxy(BulkOperations.class, (proxy, method, args) -> switch (method) {
+                case "updateOne" -> {
+                    updates.add(args);
+                    yield proxy;
+                }
+                case "execute" -> {
+                    int modified = 0;
+                    for (Object[] update : updates) {
+                        Object id = ((Query) update[0]).getQueryObject().get("_id");
+                        Document booking = bookings.get(id);
+                        if (settledElsewhere.remove(id)) {
+                            booking.put("refundedAt", new Date());
+                        }
+                        if (booking.get("refundedAt") == null) {
+                            booking.putAll((Document) ((UpdateDefinition) update[1]).getUpdateObject().get("$set"));
+                            modified++;
+                        }
+                    }
+                    yield BulkWriteResult.acknowledged(0, updates.size(), 0, modified, List.of(), List.of());
+                }
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        @Override
+        public UpdateResult upsert(Query query, UpdateDefinition update, String collectionName) {
+            Document set = (Document) update.getUpdateObject().get("$set");
+            Date now = ((Document) query.getQueryObject().get("lockedUntil")).get("$lt", Date.class);
+            if (lease != null && !lease.get("lockedUntil", Date.class).before(now)) {
+                throw new DuplicateKeyException("E11000 duplicate key error, _id: refunds");
+            }
+            lease = new Document("_id", "refunds").append("owner", set.get("owner"))
+                    .append("lockedUntil", set.get("lockedUntil"));
+            return UpdateResult.acknowledged(1, 1L, null);
+        }
+
+        @Override
+        public UpdateResult updateFirst(Query query, UpdateDefinition update, String collectionName) {
+            if (leaseLost || lease == null || !lease.get("owner").equals(query.getQueryObject().get("owner"))) {
+                return UpdateResult.acknowledged(0, 0L, null);
+            }
+            lease.put("lockedUntil", ((Document) update.getUpdateObject().get("$set")).get("lockedUntil"));
+            return UpdateResult.acknowledged(1, 1L, null);
+        }
+
+        @Override
+        public DeleteResult remove(Query query, String collectionName) {
+            if (lease != null && lease.get("owner").equals(query.getQueryObject().get("owner"))) {
+                lease = null;
+                return DeleteResult.acknowledged(1);
+            }
+            return DeleteResult.acknowledged(0);
+        }
+
+        private Object single(Class<?> type, Document document) {
+            return proxy(type, (proxy, method, args) -> switch (method) {
+                case "first" -> document;
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private Object pending(Document filter) {
+            Document after = (Document) filter.get("_id");
+            cursorStartedAfter = after != null ? after.get("$gt") : null;
+            int afterId = after != null ? (Integer) after.get("$gt") : 0;
+            List<Document> found = bookings.values().stream()
+                    .filter(booking -> booking.get("refundedAt") == null && booking.getInteger("_id") > afterId)
+                    .map(booking -> new Document("_id", booking.get("_id"))
+                            .append("refundAmount", booking.get("refundAmount")))
+                    .toList();
+            Iterator<Document> rows = found.iterator();
+            return proxy(FindIterable.class, (proxy, method, args) -> switch (method) {
+                case "projection", "sort", "batchSize" -> proxy;
+                case "iterator" -> proxy(MongoCursor.class, (cursor, call, none) -> switch (call) {
+                    case "hasNext" -> rows.hasNext();
+                    case "next" -> rows.next();
+                    case "close" -> null;
+                    default -> throw new UnsupportedOperationException(call);
+                });
+                default -> throw new UnsupportedOperationException(method);
+            });
+        }
+
+        private Document settledBy(List<Document> pipeline) {
+            Document match = (Document) pipeline.get(0).get("$match");
+            List<?> ids = (List<?>) ((Document) match.get("_id")).get("$in");
+            double amount = 0;
+            for (Object id : ids) {
+                Document booking = bookings.get(id);
+                if (match.get("refundBatch").equals(booking.get("refundBatch"))) {
+                    amount += booking.get("refundAmount", Number.class).doubleValue();
+                }
+            }
+            return new Document("_id", null).append("amount", amount);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.nextgenrail.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nextgenrail.api.dto.TrainSearchResult;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Jackson payload of a search hit on a 40-stop long-distance train: the full Train document search used to return
+ * against the segment-level TrainSearchResult
+ */
+@Tag("benchmark")
+class SearchPayloadBenchmark {
+
+    private static final int STOPS = 40;
+    private static final int ROUNDS = 50_000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Test
+    void fullTrainAgainstSegment() throws Exception {
+        Train train = TestTrains.line("12951", STOPS, "AC3A", 10);
+        train.setCoachConfiguration(Map.of("AC1A", 1, "AC2A", 4, "AC3A", 10, "SL", 8));
+        train.setBaseFarePerKm(Map.of("AC1A", 4.2, "AC2A", 2.6, "AC3A", 1.9, "SL", 0.6));
+
+        TrainService service = new TrainService();
+        ReflectionTestUtils.setField(service, "trainSearchIndex", TestTrains.searchIndex(List.of(train)));
+        List<TrainSearchResult> results = service.searchTrains("S0", "S" + (STOPS - 1),
+                LocalDate.now().plusDays(3));
+        assertEquals(1, results.size());
+
+        byte[] full = objectMapper.writeValueAsBytes(List.of(train));
+        byte[] segment = objectMapper.writeValueAsBytes(results);
+        double fullMicros = serialize(List.of(train));
+        double segmentMicros = serialize(results);
+
+        System.out.printf("%d-stop train: full Train %d bytes (%.1f us), TrainSearchResult %d bytes (%.1f us), "
+                + "%.0fx smaller%n", STOPS, full.length, fullMicros, segment.length, segmentMicros,
+                (double) full.length / segment.length);
+        assertTrue(segment.length * 10 < full.length, "The segment result should be an order of magnitude smaller");
+    }
+
+    /**
+     * Mean time to serialise the response, after warming up
+     */
+    private double serialize(Object response) throws Exception {
+        long bytes = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            bytes += objectMapper.writeValueAsBytes(response).length;
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            bytes += objectMapper.writeValueAsBytes(response).length;
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / ROUNDS;
+        assertTrue(bytes > 0);
+        return micros;
+    }
+}
@@ -0,0 +1,95 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.CoachLayout;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Allocation throughput of one AC3A run (18 coaches, 1152 seats) over a 30-leg route
+ * Each operation holds 1-4 seats on a random segment; every thread keeps its 150 latest holdings
+ */
+@Tag("benchmark")
+class SeatInventoryBenchmark {
+
+    private static final int COACHES = 18;
+    private static final int LEGS = 30;
+    private static final long RUN_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    @Test
+    void seatsHeldToAStopAreReusedFromIt() {
+        SeatInventory inventory = new SeatInventory(CoachLayout.AC3A, COACHES, LEGS);
+        int seats = inventory.getSeatCount();
+
+        int[] firstHalf = inventory.allocate(0, 10, anyBerth(seats), new boolean[seats]);
+        int[] secondHalf = inventory.allocate(10, LEGS, anyBerth(seats), new boolean[seats]);
+
+        assertEquals(seats, firstHalf.length);
+        assertEquals(seats, secondHalf.length, "Seats freed at the stop must be sold again from it");
+        assertEquals(0, inventory.available(0, LEGS));
+    }
+
+    @Test
+    void allocateConcurrently() throws InterruptedException {
+        for (int threads : new int[] {1, 4, 8}) {
+            SeatInventory inventory = new SeatInventory(CoachLayout.AC3A, COACHES, LEGS);
+            // Holders per (seat, leg); anything above one is a double booking
+            AtomicIntegerArray holders = new AtomicIntegerArray(inventory.getSeatCount() * LEGS);
+            AtomicLong allocations = new AtomicLong();
+            AtomicLong doubleBooked = new AtomicLong();
+
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            long end = System.nanoTime() + RUN_NANOS;
+            for (int t = 0; t < threads; t++) {
+                executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    ArrayDeque<int[]> held = new ArrayDeque<>();
+                    while (System.nanoTime() < end) {
+                        int from = random.nextInt(LEGS - 1);
+                        int to = from + 1 + random.nextInt(LEGS - from);
+                        int passengers = 1 + random.nextInt(4);
+                        for (int seat : inventory.allocate(from, to, anyBerth(passengers), new boolean[passengers])) {
+                            for (int leg = from; leg < to; leg++) {
+                                if (holders.incrementAndGet(seat * LEGS + leg) != 1) {
+                                    doubleBooked.incrementAndGet();
+                                }
+                            }
+                            held.add(new int[] {seat, from, to});
+                        }
+                        while (held.size() > 150) {
+                            int[] holding = held.poll();
+                            for (int leg = holding[1]; leg < holding[2]; leg++) {
+                                holders.decrementAndGet(holding[0] * LEGS + leg);
+                            }
+                            inventory.release(holding[0], holding[1], holding[2]);
+                        }
+                        allocations.incrementAndGet();
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(RUN_NANOS + TimeUnit.SECONDS.toNanos(10), TimeUnit.NANOSECONDS));
+
+            System.out.printf("SeatInventory.allocate: %d threads, %,d allocations/s%n", threads,
+                    allocations.get() * TimeUnit.SECONDS.toNanos(1) / RUN_NANOS);
+            assertEquals(0, doubleBooked.get(), "Seat held twice on the same leg");
+        }
+    }
+
+    private static int[] anyBerth(int passengers) {
+        int[] wanted = new int[passengers];
+        Arrays.fill(wanted, BerthAllocator.NO_PREFERENCE);
+        return wanted;
+    }
+}
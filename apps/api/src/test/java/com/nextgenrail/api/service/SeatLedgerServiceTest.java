@@ -0,0 +1,136 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.client.result.UpdateResult;
+import com.nextgenrail.api.model.SeatLedger;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.core.MongoExceptionTranslator;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The guarded updates SeatLedgerService sends to Mongo for reservations and releases
+ */
+class SeatLedgerServiceTest {
+
+    private static final LocalDate TRAVEL_DATE = LocalDate.of(2026, 11, 2);
+    private static final String LEDGER_ID = "12001:2026-11-02:AC3A";
+
+    private final RecordingMongo mongo = new RecordingMongo();
+    private SeatLedgerService ledger;
+
+    @BeforeEach
+    void ledger() {
+        ledger = new SeatLedgerService();
+        ReflectionTestUtils.setField(ledger, "mongoTemplate", mongo);
+    }
+
+    @Test
+    void reserveSetsTheLegBitsOnlyWhereTheyAreAllClear() {
+        mongo.result = new SeatLedger();
+
+        assertTrue(ledger.reserve("12001", TRAVEL_DATE, "AC3A", 1, new int[] {3, 7}, 2, 5));
+
+        Document query = mongo.query.getQueryObject();
+        assertEquals(LEDGER_ID, query.get("_id"));
+        assertEquals(1, query.get("words"));
+        assertEquals(new Document("$bitsAllClear", List.of(2, 3, 4)), query.get("occupancy.3"));
+        assertEquals(new Document("$bitsAllClear", List.of(2, 3, 4)), query.get("occupancy.7"));
+
+        Document bit = mongo.update.getUpdateObject().get("$bit", Document.class);
+        assertEquals(new Document("or", 0b11100L), bit.get("occupancy.3"));
+        assertEquals(new Document("or", 0b11100L), bit.get("occupancy.7"));
+        assertEquals(2, bit.size());
+    }
+
+    @Test
+    void reserveSpansBothWordsOfALongRoute() {
+        mongo.result = new SeatLedger();
+
+        assertTrue(ledger.reserve("12001", TRAVEL_DATE, "AC3A", 2, new int[] {5}, 62, 66));
+
+        Document query = mongo.query.getQueryObject();
+        assertEquals(new Document("$bitsAllClear", List.of(62, 63)), query.get("occupancy.10"));
+        assertEquals(new Document("$bitsAllClear", List.of(0, 1)), query.get("occupancy.11"));
+
+        Document bit = mongo.update.getUpdateObject().get("$bit", Document.class);
+        assertEquals(new Document("or", 0b11L << 62), bit.get("occupancy.10"));
+        assertEquals(new Document("or", 0b11L), bit.get("occupancy.11"));
+    }
+
+    @Test
+    void reserveReportsALostRaceWhenNoLedgerMatches() {
+        mongo.result = null;
+
+        assertFalse(ledger.reserve("12001", TRAVEL_DATE, "AC3A", 1, new int[] {3}, 0, 4));
+    }
+
+    @Test
+    void releaseClearsTheLegBitsOnSeatsInsideTheRun() {
+        ledger.release("12001", TRAVEL_DATE, "AC3A", 1, new int[] {-1, 4, 9}, 1, 3);
+
+        Document query = mongo.query.getQueryObject();
+        assertEquals(LEDGER_ID, query.get("_id"));
+        assertEquals(new Document("$gt", 9), query.get("seatCount"));
+
+        Document bit = mongo.update.getUpdateObject().get("$bit", Document.class);
+        assertEquals(new Document("and", ~0b110L), bit.get("occupancy.4"));
+        assertEquals(new Document("and", ~0b110L), bit.get("occupancy.9"));
+        assertEquals(2, bit.size(), "Seats outside the run must not be touched");
+    }
+
+    @Test
+    void releaseWithoutSeatsSendsNothing() {
+        ledger.release("12001", TRAVEL_DATE, "AC3A", 1, new int[] {-1}, 1, 3);
+
+        assertNull(mongo.query);
+    }
+
+    /**
+     * Template recording the last guarded update and answering it with a fixed result
+     */
+    private static final class RecordingMongo extends MongoTemplate {
+
+        private Query query;
+        private UpdateDefinition update;
+        private SeatLedger result;
+
+        RecordingMongo() {
+            super((MongoDatabaseFactory) Proxy.newProxyInstance(SeatLedgerServiceTest.class.getClassLoader(),
+                    new Class<?>[] {MongoDatabaseFactory.class}, (proxy, method, args) -> switch (method.getName()) {
+                        case "getExceptionTranslator" -> new MongoExceptionTranslator();
+                        case "toString" -> "MongoDatabaseFactory";
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new UnsupportedOperationException(method.getName());
+                    }));
+        }
+
+        @Override
+        public <T> T findAndModify(Query query, UpdateDefinition update, Class<T> entityClass) {
+            this.query = query;
+            this.update = update;
+            return entityClass.cast(result);
+        }
+
+        @Override
+        public UpdateResult updateFirst(Query query, UpdateDefinition update, Class<?> entityClass) {
+            this.query = query;
+            this.update = update;
+            return UpdateResult.acknowledged(1, 1L, null);
+        }
+    }
+}
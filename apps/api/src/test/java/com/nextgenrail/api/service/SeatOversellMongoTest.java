@@ -0,0 +1,61 @@
+package com.nextgenrail.api.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.SeatLedger;
+import com.nextgenrail.api.repository.BookingRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * The oversell stress test with both instances keeping the seat ledger, the bookings and the PNR counter in a
+ * real Mongo
+ * Skipped when Docker is not available
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class SeatOversellMongoTest extends SeatOversellStressTest {
+
+    @Container
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getConnectionString());
+        mongoTemplate = new MongoTemplate(client, "seat-oversell-test");
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @Override
+    SeatLedgerService newLedger() {
+        mongoTemplate.dropCollection(SeatLedger.class);
+        SeatLedgerService ledger = new SeatLedgerService();
+        ReflectionTestUtils.setField(ledger, "mongoTemplate", mongoTemplate);
+        return ledger;
+    }
+
+    @Override
+    MongoTemplate newDatabase() {
+        mongoTemplate.dropCollection(Booking.class);
+        mongoTemplate.dropCollection("pnr_blocks");
+        return mongoTemplate;
+    }
+
+    @Override
+    BookingRepository bookingsOf(MongoTemplate database) {
+        return new MongoRepositoryFactory(database).getRepository(BookingRepository.class);
+    }
+}
@@ -0,0 +1,209 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.QuotaType;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.BookingRepository;
+import com.nextgenrail.api.repository.TrainRepository;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Two API instances booking and cancelling on the same run through BookingService, sharing one seat ledger and
+ * one bookings collection
+ * Runs against in-memory stores here and against Mongo in SeatOversellMongoTest
+ */
+class SeatOversellStressTest {
+
+    private static final String CLASS = "AC3A";
+    private static final int STOPS = 10;
+    private static final int LEGS = STOPS - 1;
+    private static final int SEATS = 2 * 64;
+    private static final int BOOKINGS = 5000;
+    private static final int WAITLIST_LIMIT = 40;
+
+    private final LocalDate travelDate = LocalDate.now().plusDays(5);
+    private Train train;
+    private SeatLedgerService ledger;
+    private BookingRepository bookings;
+    private BookingService[] instances;
+
+    @BeforeEach
+    void startInstances() {
+        train = TestTrains.line("12001", STOPS, CLASS, 2);
+        TrainSearchIndex index = TestTrains.searchIndex(List.of(train));
+        TrainRepository trains = TestTrains.repository(List.of(train));
+        ledger = newLedger();
+        MongoTemplate database = newDatabase();
+        bookings = bookingsOf(database);
+        instances = new BookingService[] {
+                BookingServices.instance(index, trains, database, bookings, ledger, WAITLIST_LIMIT),
+                BookingServices.instance(index, trains, database, bookings, ledger, WAITLIST_LIMIT)};
+    }
+
+    @Test
+    void parallelBookingsOnTwoInstancesNeverOversell() throws Exception {
+        AtomicLong confirmed = new AtomicLong();
+        AtomicLong waitlisted = new AtomicLong();
+        AtomicLong refused = new AtomicLong();
+        AtomicLong cancelled = new AtomicLong();
+        ConcurrentLinkedQueue<String> held = new ConcurrentLinkedQueue<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int b = 0; b < BOOKINGS; b++) {
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                BookingService instance = instances[random.nextInt(instances.length)];
+
+                // Cancel an earlier booking now and then, so seats keep changing hands and waiting passengers move up
+                String cancelledId = random.nextInt(4) == 0 ? held.poll() : null;
+                if (cancelledId != null) {
+                    try {
+                        instance.cancelBooking(bookings.findById(cancelledId).orElseThrow());
+                        cancelled.incrementAndGet();
+                    } catch (OptimisticLockingFailureException e) {
+                        // Promoted on the other instance since it was read; try again later
+                        held.add(cancelledId);
+                    }
+                }
+
+                int from = random.nextInt(LEGS);
+                int to = from + 1 + random.nextInt(LEGS - from);
+                Booking booking;
+                try {
+                    booking = book(instance, from, to, 1 + random.nextInt(4));
+                } catch (IllegalArgumentException e) {
+                    assertTrue(e.getMessage().contains("Waiting list"), e.getMessage());
+                    refused.incrementAndGet();
+                    return;
+                }
+                for (SeatAllocation allocation : booking.getSeatAllocations()) {
+                    if (allocation.getAllocationStatus() == BookingStatus.CONFIRMED) {
+                        confirmed.incrementAndGet();
+                    } else {
+                        waitlisted.incrementAndGet();
+                    }
+                }
+                held.add(booking.getId());
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertTrue(confirmed.get() > SEATS, "Too few seats sold to exercise the ledger: " + confirmed.get());
+        assertTrue(waitlisted.get() > 0, "The run never filled up");
+        assertTrue(refused.get() > 0, "The waiting list never filled up");
+        assertTrue(cancelled.get() > 0, "Nothing was cancelled");
+
+        // Holders per (seat, leg) among the bookings saved; anything above one is a berth sold twice
+        int[] holders = new int[SEATS * LEGS];
+        for (Booking booking : bookings.findActiveBookingsForTrainRun(train.getId(), travelDate)) {
+            forEachHeldLeg(booking, (seat, leg) -> holders[seat * LEGS + leg]++);
+        }
+        long[] occupancy = ledger.occupancy(train.getTrainNumber(), travelDate, CLASS, SEATS, 1);
+        for (int seat = 0; seat < SEATS; seat++) {
+            for (int leg = 0; leg < LEGS; leg++) {
+                int holding = holders[seat * LEGS + leg];
+                assertTrue(holding <= 1, "Seat " + seat + " sold " + holding + " times on leg " + leg);
+                boolean occupied = (occupancy[seat] & (1L << leg)) != 0;
+                assertEquals(holding, occupied ? 1 : 0,
+                        "Ledger disagrees with the bookings on seat " + seat + " leg " + leg);
+            }
+        }
+    }
+
+    @Test
+    void staleInstanceWaitlistsOnlyThePassengersWithoutSeats() {
+        // Both instances load the run while it is empty
+        book(instances[0], 0, LEGS, 1);
+        book(instances[1], 0, LEGS, 1);
+
+        // The first instance then sells all but two of the remaining seats
+        for (int sold = 2; sold < SEATS - 2; sold += 2) {
+            book(instances[0], 0, LEGS, 2);
+        }
+
+        Booking late = book(instances[1], 0, LEGS, 4);
+        long seated = late.getSeatAllocations().stream()
+                .filter(allocation -> allocation.getAllocationStatus() == BookingStatus.CONFIRMED)
+                .count();
+        assertEquals(2, seated, "The two seats still free must be sold");
+        assertEquals(BookingStatus.WAITLISTED, late.getStatus());
+    }
+
+    /**
+     * Empty ledger shared by both instances
+     */
+    SeatLedgerService newLedger() {
+        return new InMemorySeatLedger();
+    }
+
+    /**
+     * Empty database holding the bookings and the PNR counter of both instances
+     */
+    MongoTemplate newDatabase() {
+        return new InMemoryBookings();
+    }
+
+    /**
+     * Booking repository over the database
+     */
+    BookingRepository bookingsOf(MongoTemplate database) {
+        return ((InMemoryBookings) database).repository();
+    }
+
+    private Booking book(BookingService instance, int fromLeg, int toLeg, int passengers) {
+        List<Passenger> group = new ArrayList<>(passengers);
+        for (int i = 0; i < passengers; i++) {
+            group.add(new Passenger("Passenger " + i, 30, "F"));
+        }
+
+        Booking booking = new Booking(null, train, "S" + fromLeg, "S" + toLeg);
+        booking.setTravelDate(travelDate);
+        booking.setClassType(CLASS);
+        booking.setQuota(QuotaType.GENERAL);
+        booking.setPassengers(group);
+        return instance.createBooking(booking);
+    }
+
+    private void forEachHeldLeg(Booking booking, SeatLegAction action) {
+        int from = Integer.parseInt(booking.getSourceStationCode().substring(1));
+        int to = Integer.parseInt(booking.getDestinationStationCode().substring(1));
+        for (SeatAllocation allocation : booking.getSeatAllocations()) {
+            if (allocation.getAllocationStatus() == BookingStatus.CONFIRMED) {
+                int seat = (Integer.parseInt(allocation.getCoachNumber().substring(1)) - 1) * 64
+                        + allocation.getSeatNumber() - 1;
+                for (int leg = from; leg < to; leg++) {
+                    action.apply(seat, leg);
+                }
+            }
+        }
+    }
+
+    private interface SeatLegAction {
+        void apply(int seat, int leg);
+    }
+}
@@ -0,0 +1,119 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Station;
+import com.nextgenrail.api.repository.StationRepository;
+import com.nextgenrail.api.support.Latencies;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Autocomplete latency over 10000 stations with made-up names, for prefixes and for names with one typo
+ */
+@Tag("benchmark")
+class StationSearchBenchmark {
+
+    private static final int STATIONS = 10000;
+    private static final int QUERIES = 20000;
+    private static final String[] SUFFIXES = {"Junction", "Central", "Cantt", "Road", "Terminus", "City", ""};
+
+    private final Random random = new Random(7);
+    private List<Station> stations;
+    private StationSearchIndex index;
+
+    @BeforeEach
+    void buildIndex() {
+        stations = new ArrayList<>(STATIONS);
+        for (int i = 0; i < STATIONS; i++) {
+            String city = cityName();
+            Station station = new Station("S" + i, (city + " " + SUFFIXES[random.nextInt(SUFFIXES.length)]).trim(),
+                    city, "ST", "ZN");
+            station.setPrincipalStation(random.nextInt(20) == 0);
+            station.setActive(true);
+            stations.add(station);
+        }
+
+        StationRepository repository = (StationRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {StationRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByIsActiveTrue", "findAll" -> stations;
+                    case "toString" -> "StationSearchBenchmark.repository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+        index = new StationSearchIndex();
+        ReflectionTestUtils.setField(index, "stationRepository", repository);
+        ReflectionTestUtils.setField(index, "maxSuggestions", 10);
+        index.rebuild();
+    }
+
+    @Test
+    void suggestPrefixes() {
+        String[] queries = new String[1000];
+        for (int i = 0; i < queries.length; i++) {
+            String city = stations.get(random.nextInt(STATIONS)).getCity();
+            queries[i] = city.substring(0, 2 + random.nextInt(Math.min(4, city.length() - 1)));
+        }
+
+        int hits = measure("StationSearchIndex.suggest (prefix)", queries);
+        assertEquals(QUERIES, hits, "Every prefix of a station city must match");
+    }
+
+    @Test
+    void suggestWithTypos() {
+        String[] queries = new String[1000];
+        for (int i = 0; i < queries.length; i++) {
+            String name = stations.get(random.nextInt(STATIONS)).getName().toLowerCase();
+            int at = 1 + random.nextInt(name.length() - 2);
+            queries[i] = random.nextBoolean()
+                    ? name.substring(0, at) + name.substring(at + 1)
+                    : name.substring(0, at) + "x" + name.substring(at);
+        }
+
+        int hits = measure("StationSearchIndex.suggest (one typo)", queries);
+        assertTrue(hits > QUERIES * 9 / 10, "Too few typo queries matched: " + hits + "/" + QUERIES);
+    }
+
+    private int measure(String name, String[] queries) {
+        for (int i = 0; i < QUERIES; i++) {
+            index.suggest(queries[i % queries.length], 10);
+        }
+
+        long[] nanos = new long[QUERIES];
+        int hits = 0;
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            List<Station> suggestions = index.suggest(queries[i % queries.length], 10);
+            nanos[i] = System.nanoTime() - start;
+
+            assertTrue(suggestions.size() <= 10, "More suggestions than the limit");
+            if (!suggestions.isEmpty()) {
+                hits++;
+            }
+        }
+        System.out.println(new Latencies(nanos).summary(name) + ", " + hits + "/" + QUERIES + " matched");
+        return hits;
+    }
+
+    private String cityName() {
+        String consonants = "kgcjtdnpbmyrlvshzfwq";
+        String vowels = "aeiou";
+        StringBuilder name = new StringBuilder();
+        int syllables = 2 + random.nextInt(3);
+        for (int i = 0; i < syllables; i++) {
+            name.append(consonants.charAt(random.nextInt(consonants.length())))
+                    .append(vowels.charAt(random.nextInt(vowels.length())));
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
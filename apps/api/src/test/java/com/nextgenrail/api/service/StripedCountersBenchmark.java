@@ -0,0 +1,124 @@
+package com.nextgenrail.api.service;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Striped availability counters under contention: update throughput against one atomic array, and exact counts
+ * once bookings and cancellations stop
+ * Flexi fares read from the counters while a run sells out are checked by FlexiFarePricingTest
+ */
+@Tag("benchmark")
+class StripedCountersBenchmark {
+
+    private static final int SLOTS = 98; // Classes x quotas x (sold, waitlisted), as AvailabilityService sizes them
+    private static final int UPDATES = 20_000_000;
+    private static final int CHUNK = 1000;
+
+    @Test
+    void updatesFromManyThreads() throws Exception {
+        for (int threads : new int[] {1, 8, 64}) {
+            for (int round = 0; round < 2; round++) {
+                AtomicIntegerArray atomic = new AtomicIntegerArray(SLOTS);
+                double atomicRate = run(threads, slot -> atomic.addAndGet(slot, 1));
+                StripedCounters striped = new StripedCounters(SLOTS);
+                double stripedRate = run(threads, slot -> striped.add(slot, 1));
+
+                long atomicSum = 0;
+                long stripedSum = 0;
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    atomicSum += atomic.get(slot);
+                    stripedSum += striped.get(slot);
+                }
+                assertEquals(UPDATES, stripedSum, "Striped counters lost updates");
+                assertEquals(atomicSum, stripedSum);
+                if (round == 1) {
+                    System.out.printf("%d threads: AtomicIntegerArray %.1f M updates/s, StripedCounters %.1f M "
+                            + "updates/s%n", threads, atomicRate / 1e6, stripedRate / 1e6);
+                }
+            }
+        }
+    }
+
+    @Test
+    void countsAreExactOnceUpdatesStop() throws Exception {
+        StripedCounters counters = new StripedCounters(SLOTS);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong decreases = new AtomicLong();
+
+        // Slot 0 only grows, like sold seats during a sell-off; slot 1 goes up and down like a waiting list
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        Future<?> reader = executor.submit(() -> {
+            int last = 0;
+            while (writing.get()) {
+                int value = counters.get(0);
+                decreases.addAndGet(value < last ? 1 : 0);
+                last = value;
+                reads.incrementAndGet();
+            }
+        });
+        AtomicInteger next = new AtomicInteger();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < 15; t++) {
+            writers.add(executor.submit(() -> {
+                while (next.getAndIncrement() < UPDATES / CHUNK) {
+                    for (int i = 0; i < CHUNK; i++) {
+                        counters.add(0, 1);
+                        counters.add(1, 3);
+                        counters.add(1, -2);
+                    }
+                }
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        reader.get();
+        executor.shutdown();
+
+        System.out.printf("%d concurrent reads of a growing counter, %d went down%n", reads.get(), decreases.get());
+        assertEquals(0, decreases.get(), "A counter that only grows was read lower than before");
+        assertEquals(UPDATES, counters.get(0));
+        assertEquals(UPDATES, counters.get(1));
+    }
+
+    private static double run(int threads, SlotUpdate update) throws Exception {
+        AtomicInteger chunks = new AtomicInteger(UPDATES / CHUNK);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                while (chunks.getAndDecrement() > 0) {
+                    for (int i = 0; i < CHUNK; i++) {
+                        // A few hot slots, as on a run being booked in one class and quota
+                        update.apply((i & 3) * 2);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        return UPDATES / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private interface SlotUpdate {
+        void apply(int slot);
+    }
+}
@@ -0,0 +1,52 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.dto.AdmissionTicket;
+import com.nextgenrail.api.model.AdmissionStatus;
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tickets of the Tatkal admission queue, which the booking controller only shows to their owners
+ */
+class TatkalAdmissionQueueTest {
+
+    private final Train train = TestTrains.line("12001", 4, "AC3A", 1);
+
+    @Test
+    void ticketsRememberWhoQueuedThemAfterTheBookingIsDone() throws InterruptedException {
+        // Without a booking service every request fails, which is as finished as a ticket gets
+        TatkalAdmissionQueue queue = new TatkalAdmissionQueue(1, 1, 10, 120, 50, 15);
+
+        AdmissionTicket queued = queue.submit(booking("user-1"));
+        assertEquals("user-1", queued.getUserId());
+
+        AdmissionTicket polled = queue.getTicket(queued.getTicketId()).orElseThrow();
+        for (int i = 0; i < 500 && polled.getStatus() != AdmissionStatus.FAILED; i++) {
+            Thread.sleep(10);
+            polled = queue.getTicket(queued.getTicketId()).orElseThrow();
+        }
+        assertEquals(AdmissionStatus.FAILED, polled.getStatus());
+        assertEquals("user-1", polled.getUserId());
+    }
+
+    @Test
+    void rejectedTicketsNameTheirOwnerToo() {
+        TatkalAdmissionQueue queue = new TatkalAdmissionQueue(1, 1, 0, 120, 50, 15);
+
+        AdmissionTicket rejected = queue.submit(booking("user-2"));
+        assertEquals(AdmissionStatus.REJECTED, rejected.getStatus());
+        assertEquals("user-2", rejected.getUserId());
+    }
+
+    private Booking booking(String userId) {
+        Booking booking = new Booking(userId, train, "S0", "S3");
+        booking.setTravelDate(LocalDate.now().plusDays(1));
+        return booking;
+    }
+}
@@ -0,0 +1,87 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainRoute;
+import com.nextgenrail.api.support.HeapSampler;
+import com.nextgenrail.api.support.TestTrains;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retained heap of a synthetic timetable of 5000 trains x 60 stops over 8000 stations
+ *
+ * Measured as used heap after a full collection, so run it alone and with a
+ * stop-the-world collector for stable figures (-XX:+UseSerialGC); the pair
+ * index needs about 1 GB of heap. The station pair index is the one train
+ * search kept before the timetable was compiled.
+ */
+@Tag("benchmark")
+class TimetableHeapBenchmark {
+
+    private static final int TRAINS = 5000;
+    private static final int STATIONS = 8000;
+    private static final int STOPS = 60;
+
+    @Test
+    void retainedHeap() {
+        long empty = HeapSampler.usedAfterGc();
+        List<Train> trains = TestTrains.network(TRAINS, STATIONS, STOPS, 42);
+        long entities = HeapSampler.usedAfterGc() - empty;
+
+        long beforePairs = HeapSampler.usedAfterGc();
+        Map<String, Map<String, List<Train>>> pairs = stationPairIndex(trains);
+        long pairIndex = HeapSampler.usedAfterGc() - beforePairs;
+        Reference.reachabilityFence(pairs);
+
+        long beforeCompiled = HeapSampler.usedAfterGc();
+        CompiledTimetable timetable = CompiledTimetable.compile(trains, LocalDate.now(), 121);
+        long compiled = HeapSampler.usedAfterGc() - beforeCompiled;
+        Reference.reachabilityFence(timetable);
+        Reference.reachabilityFence(trains);
+
+        System.out.printf("%d trains x %d stops over %d stations: entity graph %s, station pair index %s on top, "
+                + "compiled timetable %s on top%n", TRAINS, STOPS, STATIONS, HeapSampler.megabytes(entities),
+                HeapSampler.megabytes(pairIndex), HeapSampler.megabytes(compiled));
+        assertTrue(compiled * 10 < pairIndex, "The compiled timetable should be far smaller than the pair index");
+    }
+
+    /**
+     * Trains by ordered station pair, as TrainSearchIndex built them before CompiledTimetable
+     */
+    private static Map<String, Map<String, List<Train>>> stationPairIndex(List<Train> trains) {
+        Map<String, Map<String, List<Train>>> index = new HashMap<>();
+        for (Train train : trains) {
+            List<TrainRoute> routes = new ArrayList<>(train.getRoutes());
+            routes.sort(Comparator.comparingInt(TrainRoute::getStopNumber));
+            for (int i = 0; i < routes.size() - 1; i++) {
+                String fromCode = routes.get(i).getStationCode();
+                Map<String, List<Train>> destinations = index.computeIfAbsent(fromCode, k -> new HashMap<>());
+                for (int j = i + 1; j < routes.size(); j++) {
+                    List<Train> served = destinations.computeIfAbsent(routes.get(j).getStationCode(),
+                            k -> new ArrayList<>());
+                    if (served.isEmpty() || served.get(served.size() - 1) != train) {
+                        served.add(train);
+                    }
+                }
+            }
+        }
+
+        Map<String, Map<String, List<Train>>> frozen = new HashMap<>(index.size() * 2);
+        index.forEach((fromCode, destinations) -> {
+            Map<String, List<Train>> frozenDestinations = new HashMap<>(destinations.size() * 2);
+            destinations.forEach((toCode, served) -> frozenDestinations.put(toCode, List.copyOf(served)));
+            frozen.put(fromCode, frozenDestinations);
+        });
+        return frozen;
+    }
+}
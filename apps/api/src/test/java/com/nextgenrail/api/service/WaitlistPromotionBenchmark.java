@@ -0,0 +1,223 @@
+package com.nextgenrail.api.service;
+
+import com.nextgenrail.api.model.Booking;
+import com.nextgenrail.api.model.BookingStatus;
+import com.nextgenrail.api.model.Passenger;
+import com.nextgenrail.api.model.SeatAllocation;
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.repository.BookingRepository;
+import com.nextgenrail.api.support.Latencies;
+import com.nextgenrail.api.support.TestTrains;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Cancellations on a full run with a long waiting list, from 32 threads, while new waiting bookings keep arriving
+ * The repository is in memory and costs 0.3 ms per read or write, like a nearby Mongo
+ */
+@Tag("benchmark")
+class WaitlistPromotionBenchmark {
+
+    private static final long DATABASE_MICROS = 300;
+    private static final String CLASS = "SL";
+    private static final int STOPS = 20;
+    private static final int BERTHS = 4 * 72;
+
+    private final Map<String, Booking> store = new ConcurrentHashMap<>();
+    private final LocalDate travelDate = LocalDate.now().plusDays(5);
+    private final Random random = new Random(7);
+    private LocalDateTime clock = LocalDateTime.now().minusDays(1);
+
+    @Test
+    void cancelAndPromote() throws Exception {
+        Train train = TestTrains.line("12951", STOPS, CLASS, 4);
+        TrainSearchIndex index = TestTrains.searchIndex(List.of(train));
+        BookingRepository bookings = repository();
+
+        SeatInventoryService seats = new SeatInventoryService();
+        ReflectionTestUtils.setField(seats, "trainSearchIndex", index);
+        ReflectionTestUtils.setField(seats, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(seats, "seatLedgerService", new InMemorySeatLedger());
+
+        TrainService trains = new TrainService();
+        ReflectionTestUtils.setField(trains, "trainRepository", TestTrains.repository(List.of(train)));
+        ReflectionTestUtils.setField(trains, "cacheManager", new ConcurrentMapCacheManager());
+
+        WaitlistPromotionService promotion = new WaitlistPromotionService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(promotion, "bookingRepository", bookings);
+        ReflectionTestUtils.setField(promotion, "seatInventoryService", seats);
+        ReflectionTestUtils.setField(promotion, "availabilityService", new AvailabilityService());
+        ReflectionTestUtils.setField(promotion, "trainService", trains);
+        ReflectionTestUtils.setField(promotion, "scanLimit", 50);
+
+        List<Booking> confirmed = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            Booking booking = book(train, seats, "B" + i);
+            if (booking.getStatus() == BookingStatus.CONFIRMED) {
+                confirmed.add(booking);
+            } else {
+                promotion.enqueue(booking);
+            }
+        }
+        System.out.printf("Run of %d berths: %d confirmed and %d waiting bookings%n", BERTHS, confirmed.size(),
+                store.size() - confirmed.size());
+
+        // New waiting bookings join the queue throughout; they must not wait for promotions to finish
+        AtomicBoolean cancelling = new AtomicBoolean(true);
+        List<Long> enqueueNanos = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService joiner = Executors.newSingleThreadExecutor();
+        Future<?> joining = joiner.submit(() -> {
+            for (int i = 0; cancelling.get(); i++) {
+                Booking late = waiting(train, "L" + i);
+                long start = System.nanoTime();
+                promotion.enqueue(late);
+                enqueueNanos.add(System.nanoTime() - start);
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            }
+        });
+
+        Collections.shuffle(confirmed, random);
+        List<Booking> cancelled = confirmed.subList(0, Math.min(150, confirmed.size()));
+        long[] nanos = new long[cancelled.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger promoted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> futures = new ArrayList<>();
+        for (Booking booking : cancelled) {
+            futures.add(executor.submit(() -> {
+                booking.setStatus(BookingStatus.CANCELLED);
+                bookings.save(booking);
+                long start = System.nanoTime();
+                promoted.addAndGet(promotion.releaseAndPromote(booking).size());
+                nanos[next.getAndIncrement()] = System.nanoTime() - start;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        cancelling.set(false);
+        joining.get();
+        joiner.shutdown();
+
+        System.out.println(new Latencies(nanos).summary("WaitlistPromotionService.releaseAndPromote") + ", "
+                + promoted.get() + " bookings promoted");
+        System.out.println(new Latencies(enqueueNanos.stream().mapToLong(Long::longValue).toArray())
+                .summary("WaitlistPromotionService.enqueue during promotions"));
+
+        int[] sold = new int[STOPS - 1];
+        for (Booking booking : store.values()) {
+            if (booking.getStatus() == BookingStatus.CANCELLED) {
+                continue;
+            }
+            long held = booking.getSeatAllocations().stream()
+                    .filter(allocation -> allocation.getAllocationStatus() == BookingStatus.CONFIRMED)
+                    .count();
+            for (int leg = stopOf(booking.getSourceStationCode()); leg < stopOf(booking.getDestinationStationCode());
+                    leg++) {
+                sold[leg] += held;
+            }
+        }
+        assertTrue(promoted.get() > 0, "No waiting booking was promoted");
+        assertTrue(Arrays.stream(sold).max().getAsInt() <= BERTHS, "More berths sold than the run has");
+    }
+
+    private Booking book(Train train, SeatInventoryService seats, String id) {
+        Booking booking = waiting(train, id);
+        List<SeatAllocation> allocations = seats.allocate(train, travelDate, CLASS,
+                booking.getSourceStationCode(), booking.getDestinationStationCode(), booking.getPassengers());
+        booking.setSeatAllocations(allocations);
+        booking.setStatus(allocations.stream().allMatch(a -> a.getAllocationStatus() == BookingStatus.CONFIRMED)
+                ? BookingStatus.CONFIRMED
+                : BookingStatus.WAITLISTED);
+        return booking;
+    }
+
+    private Booking waiting(Train train, String id) {
+        int from;
+        int to;
+        synchronized (random) {
+            from = random.nextInt(10);
+            to = from + 5 + random.nextInt(STOPS - from - 5);
+        }
+        List<Passenger> passengers = new ArrayList<>();
+        List<SeatAllocation> allocations = new ArrayList<>();
+        for (int k = 0, n = 1 + id.length() % 3; k < n; k++) {
+            passengers.add(new Passenger(id + "-" + k, 30, "M"));
+            allocations.add(new SeatAllocation(id + "-" + k, null, 0, null, BookingStatus.WAITLISTED));
+        }
+
+        Booking booking = new Booking("user-1", train, "S" + from, "S" + to);
+        booking.setId(id);
+        booking.setVersion(0L);
+        booking.setTravelDate(travelDate);
+        booking.setClassType(CLASS);
+        booking.setPassengers(passengers);
+        booking.setSeatAllocations(allocations);
+        booking.setStatus(BookingStatus.WAITLISTED);
+        synchronized (random) {
+            clock = clock.plusSeconds(1);
+            booking.setBookedAt(clock);
+        }
+        store.put(id, booking);
+        return booking;
+    }
+
+    private BookingRepository repository() {
+        return (BookingRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {BookingRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> {
+                        database();
+                        yield Optional.ofNullable(store.get((String) args[0]));
+                    }
+                    case "save" -> {
+                        database();
+                        Booking booking = (Booking) args[0];
+                        store.put(booking.getId(), booking);
+                        yield booking;
+                    }
+                    case "findActiveBookingsForTrainRun" -> store.values().stream()
+                            .filter(booking -> booking.getStatus() != BookingStatus.CANCELLED)
+                            .toList();
+                    case "findWaitingBookingsForTrainRun" -> store.values().stream()
+                            .filter(booking -> booking.getStatus() == BookingStatus.WAITLISTED)
+                            .toList();
+                    case "toString" -> "WaitlistPromotionBenchmark.bookings";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static void database() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(DATABASE_MICROS));
+    }
+
+    private static int stopOf(String stationCode) {
+        return Integer.parseInt(stationCode.substring(1));
+    }
+}
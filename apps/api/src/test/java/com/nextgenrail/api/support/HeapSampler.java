@@ -0,0 +1,68 @@
+package com.nextgenrail.api.support;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Heap use of the JVM, printed by benchmarks
+ * A sampler started before the measured work records the highest heap use seen until it is closed
+ */
+public final class HeapSampler implements AutoCloseable {
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicLong peak = new AtomicLong();
+    private final Thread thread;
+
+    private HeapSampler(long intervalMillis) {
+        thread = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(MEMORY.getHeapMemoryUsage().getUsed(), Math::max);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(intervalMillis));
+            }
+        }, "heap-sampler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start sampling the heap every few milliseconds, after collecting what earlier work left behind
+     */
+    public static HeapSampler start() {
+        usedAfterGc();
+        return new HeapSampler(5);
+    }
+
+    /**
+     * Heap still in use once garbage has been collected, as far as the JVM can be made to collect it
+     */
+    public static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    public static String megabytes(long bytes) {
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Highest heap use sampled so far, garbage not yet collected included
+     */
+    public long peakBytes() {
+        return peak.get();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running.set(false);
+        thread.join();
+    }
+}
@@ -0,0 +1,26 @@
+package com.nextgenrail.api.support;
+
+import java.util.Arrays;
+
+/**
+ * Percentile summary of measured latencies, printed by benchmarks
+ */
+public final class Latencies {
+
+    private final long[] sorted;
+
+    public Latencies(long[] nanos) {
+        this.sorted = nanos.clone();
+        Arrays.sort(sorted);
+    }
+
+    public double percentileMillis(double percentile) {
+        int index = Math.min(sorted.length - 1, (int) (sorted.length * percentile / 100));
+        return sorted[index] / 1e6;
+    }
+
+    public String summary(String name) {
+        return String.format("%s: n=%d p50=%.3f ms p90=%.3f ms p99=%.3f ms max=%.3f ms", name, sorted.length,
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), sorted[sorted.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,139 @@
+package com.nextgenrail.api.support;
+
+import com.nextgenrail.api.model.Train;
+import com.nextgenrail.api.model.TrainRoute;
+import com.nextgenrail.api.model.TrainType;
+import com.nextgenrail.api.repository.TrainRepository;
+import com.nextgenrail.api.service.TrainSearchIndex;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic trains for tests and benchmarks
+ *
+ * Stations are named S0..S(n-1). Each train walks between nearby station
+ * numbers, so routes overlap and form a connected network, and offers three
+ * classes picked at random.
+ */
+public final class TestTrains {
+
+    private static final String[] CLASSES = {"AC1A", "AC2A", "AC3A", "SL", "CC", "2S"};
+    private static final List<String> DAILY = List.of("MON", "TUE", "WED", "THU", "FRI", "SAT", "SUN");
+
+    private TestTrains() {
+    }
+
+    /**
+     * Random trains with the given number of stops each, reproducible from the seed
+     */
+    public static List<Train> network(int trainCount, int stationCount, int stops, long seed) {
+        Random random = new Random(seed);
+        List<Train> trains = new ArrayList<>(trainCount);
+        for (int t = 0; t < trainCount; t++) {
+            Train train = new Train(String.valueOf(10000 + t), "Train " + t,
+                    TrainType.values()[random.nextInt(TrainType.values().length)]);
+            train.setId("train-" + t);
+            train.setOperationalDays(random.nextBoolean() ? DAILY : List.of("MON", "WED", "FRI"));
+
+            List<TrainRoute> routes = new ArrayList<>(stops);
+            Set<Integer> visited = new HashSet<>();
+            int station = random.nextInt(stationCount);
+            int minute = random.nextInt(1440);
+            int distance = 0;
+            for (int i = 0; i < stops; i++) {
+                while (!visited.add(station)) {
+                    station = random.nextInt(stationCount);
+                }
+                LocalTime arrival = i == 0 ? null : timeOf(minute);
+                int halt = i == 0 ? 0 : 2 + random.nextInt(10);
+                minute += halt;
+                LocalTime departure = i == stops - 1 ? null : timeOf(minute);
+                TrainRoute route = new TrainRoute("S" + station, "Station " + station, arrival, departure, distance,
+                        i + 1);
+                route.setHaltDurationMinutes(halt);
+                routes.add(route);
+
+                minute += 20 + random.nextInt(60);
+                distance += 15 + random.nextInt(60);
+                station = Math.floorMod(station + random.nextInt(41) - 20, stationCount);
+            }
+            train.setRoutes(routes);
+
+            Map<String, Integer> coaches = new HashMap<>();
+            Map<String, Double> farePerKm = new HashMap<>();
+            for (int c = 0; c < 3; c++) {
+                String classCode = CLASSES[random.nextInt(CLASSES.length)];
+                coaches.put(classCode, 2 + random.nextInt(10));
+                farePerKm.put(classCode, 1.0 + random.nextInt(5));
+            }
+            train.setCoachConfiguration(coaches);
+            train.setBaseFarePerKm(farePerKm);
+            trains.add(train);
+        }
+        return trains;
+    }
+
+    /**
+     * A daily train calling at S0, S1, ... with the given coaches of one class
+     */
+    public static Train line(String trainNumber, int stops, String classCode, int coaches) {
+        Train train = new Train(trainNumber, "Line " + trainNumber, TrainType.EXPRESS);
+        train.setId("train-" + trainNumber);
+        train.setOperationalDays(DAILY);
+        List<TrainRoute> routes = new ArrayList<>(stops);
+        for (int i = 0; i < stops; i++) {
+            routes.add(new TrainRoute("S" + i, "Station " + i, i == 0 ? null : timeOf(360 + i * 60 - 5),
+                    i == stops - 1 ? null : timeOf(360 + i * 60), i * 100, i + 1));
+        }
+        train.setRoutes(routes);
+        train.setCoachConfiguration(Map.of(classCode, coaches));
+        train.setBaseFarePerKm(Map.of(classCode, 1.5));
+        return train;
+    }
+
+    /**
+     * Read-only train repository over a fixed list of trains
+     */
+    public static TrainRepository repository(List<Train> trains) {
+        return (TrainRepository) Proxy.newProxyInstance(TestTrains.class.getClassLoader(),
+                new Class<?>[] {TrainRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findByIsActiveTrue", "findAll" -> trains;
+                    case "findByTrainNumberIgnoreCase" -> trains.stream()
+                            .filter(train -> train.getTrainNumber().equalsIgnoreCase((String) args[0]))
+                            .findFirst();
+                    case "findById" -> trains.stream().filter(train -> train.getId().equals(args[0])).findFirst();
+                    case "count" -> (long) trains.size();
+                    case "toString" -> "TestTrains.repository";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Search index built over the trains
+     */
+    public static TrainSearchIndex searchIndex(List<Train> trains) {
+        TrainSearchIndex index = new TrainSearchIndex();
+        ReflectionTestUtils.setField(index, "trainRepository", repository(trains));
+        ReflectionTestUtils.setField(index, "cacheManager", new ConcurrentMapCacheManager());
+        ReflectionTestUtils.setField(index, "advanceReservationDays", 120);
+        index.rebuild();
+        return index;
+    }
+
+    private static LocalTime timeOf(int minute) {
+        return LocalTime.of(minute / 60 % 24, minute % 60);
+    }
+}
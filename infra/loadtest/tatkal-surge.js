@@ -0,0 +1,85 @@
+// Tatkal opening surge: 50k booking requests in 10 seconds against a local API
+//
+//   docker-compose -f docker-compose.dev.yml up -d mongodb-dev
+//   (cd apps/api && ./mvnw spring-boot:run)
+//   k6 run -e TOKEN=<access token> infra/loadtest/tatkal-surge.js
+//
+// Every request should be answered quickly with 202 (queued) or 429 (queue full);
+// a sample of accepted tickets is polled until the booking completes.
+
+import http from 'k6/http';
+import { check, sleep } from 'k6';
+import { Counter, Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080/api';
+const TOKEN = __ENV.TOKEN || '';
+const TRAINS = (__ENV.TRAINS || '12951').split(',');
+const TRAVEL_DATE = __ENV.TRAVEL_DATE || new Date(Date.now() + 86400000).toISOString().slice(0, 10);
+
+const accepted = new Counter('tatkal_accepted');
+const rejected = new Counter('tatkal_rejected');
+const completion = new Trend('tatkal_time_to_booking', true);
+
+export const options = {
+  scenarios: {
+    surge: {
+      executor: 'constant-arrival-rate',
+      rate: 5000,
+      timeUnit: '1s',
+      duration: '10s',
+      preAllocatedVUs: 500,
+      maxVUs: 2000,
+    },
+  },
+  thresholds: {
+    http_req_failed: ['rate<0.01'],
+    'http_req_duration{name:submit}': ['p(99)<250'],
+  },
+};
+
+const headers = {
+  'Content-Type': 'application/json',
+  Authorization: `Bearer ${TOKEN}`,
+};
+
+export default function () {
+  const train = TRAINS[Math.floor(Math.random() * TRAINS.length)];
+  const body = JSON.stringify({
+    train: { trainNumber: train },
+    sourceStationCode: __ENV.FROM || 'NDLS',
+    destinationStationCode: __ENV.TO || 'CSMT',
+    travelDate: TRAVEL_DATE,
+    classType: 'AC3A',
+    quota: 'TATKAL',
+    passengers: [{ name: `Passenger ${__VU}-${__ITER}`, age: 30, gender: __ITER % 2 === 0 ? 'M' : 'F' }],
+  });
+
+  const res = http.post(`${BASE_URL}/bookings`, body, {
+    headers,
+    tags: { name: 'submit' },
+    responseCallback: http.expectedStatuses(202, 429),
+  });
+  check(res, { 'queued or rejected': (r) => r.status === 202 || r.status === 429 });
+
+  if (res.status === 429) {
+    rejected.add(1);
+    return;
+  }
+  accepted.add(1);
+
+  // Follow about 1% of accepted requests to measure time until the booking is made
+  if (Math.random() >= 0.01) {
+    return;
+  }
+  const ticketId = res.json('ticketId');
+  const start = Date.now();
+  for (let i = 0; i < 120; i++) {
+    const ticket = http.get(`${BASE_URL}/bookings/queue/${ticketId}`, { headers, tags: { name: 'poll' } });
+    const status = ticket.status === 200 ? ticket.json('status') : 'UNKNOWN';
+    if (status === 'COMPLETED' || status === 'FAILED') {
+      completion.add(Date.now() - start);
+      return;
+    }
+    sleep(Math.min(5, Math.max(1, ticket.status === 200 ? ticket.json('etaSeconds') : 1)));
+  }
+}